@@ -38,6 +38,11 @@ android {
     buildFeatures {
         viewBinding = true
     }
+
+    // ✅ Let JVM unit tests run code that logs through android.util.Log
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
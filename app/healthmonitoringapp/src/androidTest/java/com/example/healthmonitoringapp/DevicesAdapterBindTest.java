@@ -0,0 +1,115 @@
+package com.example.healthmonitoringapp;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.healthmonitoringapp.adapter.DevicesAdapter;
+import com.example.healthmonitoringapp.model.Device;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Submits scan-like bursts to a laid-out {@link DevicesAdapter} and counts the binds they cause.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DevicesAdapterBindTest {
+    private static final int DEVICES = 12;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 20_000; // Every row is laid out, so every change is bound
+
+    private Instrumentation instrumentation;
+    private RecyclerView recyclerView;
+    private DevicesAdapter adapter;
+    private List<Device> devices;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_HealthMonitoringApp);
+        devices = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            String address = String.format(Locale.US, "AA:BB:CC:DD:EE:%02X", i);
+            devices.add(new Device("Sensor " + i, address, false, -40 - i, false, "BLE", "Unknown", 1));
+        }
+
+        instrumentation.runOnMainSync(() -> {
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setItemAnimator(null); // Changed rows keep their holder instead of animating a copy
+            adapter = new DevicesAdapter(context, null, null, false);
+            recyclerView.setAdapter(adapter);
+        });
+        submitAndLayout(devices);
+        assertEquals(DEVICES, recyclerView.getChildCount());
+        instrumentation.runOnMainSync(() -> adapter.resetBindCount());
+    }
+
+    @Test
+    public void burstRebindsOnlyTheRowsThatChanged() throws InterruptedException {
+        CountDownLatch committed = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> {
+            // Submitted back to back, as a scan flush would; only the last list is shown
+            for (int round = 0; round < 10; round++) {
+                devices.get(0).setRssi(-60 - round);
+                devices.get(1).setRssi(-70 - round);
+                if (round == 9) devices.get(2).setName("Renamed");
+                adapter.submitList(new ArrayList<>(devices), round == 9 ? committed::countDown : null);
+            }
+        });
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        layout();
+
+        assertEquals(-69, adapter.getCurrentList().get(0).getRssi());
+        assertEquals("Renamed", adapter.getCurrentList().get(2).getName());
+        assertEquals(1, adapter.getBindCount());
+        assertEquals(2, adapter.getPartialBindCount());
+    }
+
+    @Test
+    public void unchangedResubmitBindsNothing() throws InterruptedException {
+        submitAndLayout(new ArrayList<>(devices));
+        assertEquals(0, adapter.getBindCount());
+        assertEquals(0, adapter.getPartialBindCount());
+    }
+
+    @Test
+    public void connectionChangeIsAPartialBind() throws InterruptedException {
+        devices.get(5).setConnected(true);
+        submitAndLayout(new ArrayList<>(devices));
+        assertEquals(0, adapter.getBindCount());
+        assertEquals(1, adapter.getPartialBindCount());
+    }
+
+    private void submitAndLayout(List<Device> list) throws InterruptedException {
+        CountDownLatch committed = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> adapter.submitList(list, committed::countDown));
+        assertTrue(committed.await(5, TimeUnit.SECONDS));
+        layout();
+    }
+
+    private void layout() {
+        instrumentation.runOnMainSync(() -> {
+            recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            recyclerView.layout(0, 0, WIDTH, HEIGHT);
+        });
+    }
+}
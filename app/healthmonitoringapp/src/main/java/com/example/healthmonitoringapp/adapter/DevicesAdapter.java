@@ -2,15 +2,11 @@ package com.example.healthmonitoringapp.adapter;
 
 import android.Manifest;
 import android.annotation.SuppressLint;
-import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,32 +16,78 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.healthmonitoringapp.R;
 import com.example.healthmonitoringapp.model.Device;
+import com.example.healthmonitoringapp.model.DeviceSnapshot;
+import com.example.healthmonitoringapp.utils.BondManager;
 
-import java.io.IOException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
-
+import java.util.Set;
+
+/**
+ * ✅ Device rows backed by an {@link AsyncListDiffer}: every submitted list is diffed on a background
+ * thread by address (identity) and field content, so only rows that actually changed are rebound.
+ * Rows hold {@link DeviceSnapshot}s interned per adapter, so unchanged devices compare by reference
+ * and later in-place changes need a new {@link #submitList}.
+ * Signal and connection changes are bound as payloads that touch only the affected view.
+ */
 public class DevicesAdapter extends RecyclerView.Adapter<DevicesAdapter.ViewHolder> {
     private static final String TAG = "DevicesAdapter";
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
 
-    private final List<Device> deviceList;
+    // Partial-bind payloads, OR-ed together
+    private static final int PAYLOAD_RSSI = 1;
+    private static final int PAYLOAD_CONNECTION = 1 << 1;
+    private static final int PAYLOAD_CONNECTING = 1 << 2;
+
+    private static final DiffUtil.ItemCallback<DeviceSnapshot> DIFF_CALLBACK = new DiffUtil.ItemCallback<DeviceSnapshot>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull DeviceSnapshot oldItem, @NonNull DeviceSnapshot newItem) {
+            return oldItem.isSameDevice(newItem);
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull DeviceSnapshot oldItem, @NonNull DeviceSnapshot newItem) {
+            return oldItem.equals(newItem);
+        }
+
+        /** Flags for signal/connection-only changes; {@code null} (full bind) if anything else changed. */
+        @Override
+        public Object getChangePayload(@NonNull DeviceSnapshot oldItem, @NonNull DeviceSnapshot newItem) {
+            int flags = 0;
+            if (oldItem.getRssi() != newItem.getRssi()) flags |= PAYLOAD_RSSI;
+            if (oldItem.isConnected() != newItem.isConnected()) flags |= PAYLOAD_CONNECTION;
+
+            boolean restSame = oldItem.getName().equals(newItem.getName()) &&
+                    oldItem.isPaired() == newItem.isPaired() &&
+                    oldItem.getDeviceType().equals(newItem.getDeviceType());
+            return (flags != 0 && restSame) ? flags : null;
+        }
+    };
+
+    private final AsyncListDiffer<DeviceSnapshot> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final DeviceSnapshot.Interner interner = new DeviceSnapshot.Interner();
     private final Context context;
     private final OnDeviceClickListener listener;
     private final boolean isPairedList;
-    private final BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+    private final Set<String> connectingAddresses = new HashSet<>();
+    private OnDeviceUnpairedListener unpairedListener;
+    private long bindCount;
+    private long partialBindCount;
 
     public DevicesAdapter(Context context, List<Device> devices, OnDeviceClickListener listener, boolean isPairedList) {
         this.context = context;
-        this.deviceList = (devices != null) ? devices : new ArrayList<>();
         this.listener = listener;
         this.isPairedList = isPairedList;
+        if (devices != null) {
+            submitList(devices);
+        }
     }
 
     @NonNull
@@ -57,157 +99,219 @@ public class DevicesAdapter extends RecyclerView.Adapter<DevicesAdapter.ViewHold
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Device device = deviceList.get(position);
-        holder.bind(device, listener);
+        bindCount++;
+        holder.bind(differ.getCurrentList().get(position));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        int flags = 0;
+        for (Object payload : payloads) {
+            if (!(payload instanceof Integer)) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+            flags |= (Integer) payload;
+        }
+        partialBindCount++;
+        DeviceSnapshot device = differ.getCurrentList().get(position);
+        if ((flags & PAYLOAD_RSSI) != 0) holder.bindRssi(device);
+        if ((flags & PAYLOAD_CONNECTION) != 0) holder.bindConnection(device);
+        if ((flags & (PAYLOAD_CONNECTION | PAYLOAD_CONNECTING)) != 0) holder.bindConnecting(device);
     }
 
     @Override
     public int getItemCount() {
-        return deviceList.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * ✅ Show {@code devices}; the list is snapshotted here and diffed against the current rows off the main thread
+     */
+    public void submitList(List<Device> devices) {
+        submitList(devices, null);
+    }
+
+    /**
+     * ✅ Like {@link #submitList(List)}; {@code commitCallback} runs on the main thread once this list is
+     * shown, or is dropped if a newer list was submitted before the diff finished
+     */
+    public void submitList(List<Device> devices, Runnable commitCallback) {
+        List<DeviceSnapshot> snapshots = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            snapshots.add(interner.of(device));
+        }
+        interner.sweep(); // Only this list's devices stay interned
+        differ.submitList(snapshots, commitCallback);
+    }
+
+    /** ✅ Rows currently shown */
+    public List<DeviceSnapshot> getCurrentList() {
+        return differ.getCurrentList();
     }
 
     /**
      * ✅ Swipe-to-Delete support
      */
     public void removeItem(int position) {
-        if (position >= 0 && position < deviceList.size()) {
-            deviceList.remove(position);
-            notifyItemRemoved(position);
-            notifyItemRangeChanged(position, deviceList.size());
+        List<DeviceSnapshot> current = differ.getCurrentList();
+        if (position >= 0 && position < current.size()) {
+            List<DeviceSnapshot> remaining = new ArrayList<>(current);
+            remaining.remove(position);
+            differ.submitList(remaining);
+        }
+    }
+
+    /**
+     * ✅ Show the loading indicator on a row while its connection attempt runs
+     */
+    public void setConnecting(String address, boolean connecting) {
+        boolean changed = connecting ? connectingAddresses.add(address) : connectingAddresses.remove(address);
+        if (changed) {
+            notifyConnectingChanged(address);
+        }
+    }
+
+    /**
+     * ✅ Reflect the outcome of a connection attempt made elsewhere
+     */
+    public void setConnectionState(String address, boolean connected) {
+        boolean wasConnecting = connectingAddresses.remove(address);
+        List<DeviceSnapshot> current = differ.getCurrentList();
+        List<DeviceSnapshot> updated = null;
+        for (int i = 0; i < current.size(); i++) {
+            DeviceSnapshot device = current.get(i);
+            if (device.getAddress().equals(address) && device.isConnected() != connected) {
+                if (updated == null) updated = new ArrayList<>(current);
+                updated.set(i, interner.put(device.withConnected(connected)));
+            }
+        }
+        if (updated != null) {
+            differ.submitList(updated);
+        } else if (wasConnecting) {
+            notifyConnectingChanged(address);
         }
     }
 
+    private void notifyConnectingChanged(String address) {
+        List<DeviceSnapshot> current = differ.getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i).getAddress().equals(address)) {
+                notifyItemChanged(i, PAYLOAD_CONNECTING);
+            }
+        }
+    }
+
+    /**
+     * ✅ Tell the owner of the submitted lists about long-press unpairs, so its next list leaves the device out
+     */
+    public void setOnDeviceUnpairedListener(OnDeviceUnpairedListener listener) {
+        this.unpairedListener = listener;
+    }
+
     public void updateList(List<Device> newDevices) {
         if (newDevices == null) return;
-        deviceList.clear();
-        deviceList.addAll(newDevices);
-        notifyDataSetChanged();
+        submitList(newDevices);
+    }
+
+    /** ✅ Full row binds since creation or the last {@link #resetBindCount()}, to measure rebinds per scan burst */
+    public long getBindCount() { return bindCount; }
+    /** ✅ Payload binds that only touched the signal or connection views */
+    public long getPartialBindCount() { return partialBindCount; }
+    public void resetBindCount() {
+        bindCount = 0;
+        partialBindCount = 0;
     }
 
     public class ViewHolder extends RecyclerView.ViewHolder {
-        private final TextView nameTextView, addressTextView;
+        private final TextView nameTextView, addressTextView, rssiTextView;
         private final ProgressBar loadingIndicator;
 
         public ViewHolder(View itemView) {
             super(itemView);
             nameTextView = itemView.findViewById(R.id.deviceName);
             addressTextView = itemView.findViewById(R.id.deviceAddress);
+            rssiTextView = itemView.findViewById(R.id.deviceRssi);
             loadingIndicator = itemView.findViewById(R.id.loadingIndicator);
-        }
-
-        @SuppressLint("MissingPermission")
-        public void bind(Device device, OnDeviceClickListener listener) {
-            nameTextView.setText(device.getName() != null ? device.getName() : "Unknown Device");
-            addressTextView.setText(device.getAddress() != null ? device.getAddress() : "No Address");
-
-            // ✅ Highlight connected devices
-            itemView.setBackgroundColor(ContextCompat.getColor(context,
-                    device.isConnected() ? android.R.color.holo_green_light : android.R.color.white));
 
-            // ✅ Handle device click (Connect)
+            // ✅ Handle device click (Connect), ignoring taps while an attempt is already running
             itemView.setOnClickListener(v -> {
-                if (listener != null) {
-                    loadingIndicator.setVisibility(View.VISIBLE);
-                    listener.onDeviceClick(device, isPairedList);
-                    connectToDevice(device);
+                DeviceSnapshot device = currentDevice();
+                if (device != null && listener != null && !connectingAddresses.contains(device.getAddress())) {
+                    listener.onDeviceClick(device.toDevice(), isPairedList);
                 }
             });
 
             // ✅ Handle long press to unpair
             itemView.setOnLongClickListener(v -> {
-                unpairDevice(device);
+                DeviceSnapshot device = currentDevice();
+                if (device != null) {
+                    unpairDevice(device);
+                }
                 return true;
             });
         }
 
-        private void connectToDevice(Device device) {
-            new Thread(() -> {
-                BluetoothSocket socket = null;
-                try {
-                    if (!hasBluetoothPermissions()) {
-                        showToast("Bluetooth permission required");
-                        updateUI(false);
-                        return;
-                    }
-
-                    BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(device.getAddress());
-
-                    if (!hasConnectPermission()) {
-                        showToast("Permission denied: Cannot connect to Bluetooth device.");
-                        updateUI(false);
-                        return;
-                    }
-
-                    socket = bluetoothDevice.createRfcommSocketToServiceRecord(MY_UUID);
-
-                    if (hasScanPermission()) {
-                        bluetoothAdapter.cancelDiscovery();
-                    }
-
-                    socket.connect();
-
-                    // ✅ Update device status
-                    device.setConnected(true);
-                    showToast("Connected to " + device.getName());
-                    updateUI(true);
-
-                } catch (SecurityException se) {
-                    Log.e(TAG, "Permission denied: " + se.getMessage());
-                    showToast("Permission denied: Cannot connect to Bluetooth device.");
-                    updateUI(false);
-                } catch (IOException e) {
-                    Log.e(TAG, "Connection failed: " + e.getMessage());
-                    showToast("Failed to connect to " + device.getName());
-                    updateUI(false);
-                    closeSocket(socket);
-                }
-            }).start();
+        /** Device shown in this row now, or {@code null} while the row is being removed */
+        private DeviceSnapshot currentDevice() {
+            int position = getBindingAdapterPosition();
+            List<DeviceSnapshot> current = differ.getCurrentList();
+            return (position != RecyclerView.NO_POSITION && position < current.size()) ? current.get(position) : null;
         }
 
-        private void unpairDevice(Device device) {
-            try {
-                if (!hasBluetoothPermissions()) {
-                    showToast("Bluetooth permission required to unpair device.");
-                    return;
-                }
-
-                BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(device.getAddress());
+        @SuppressLint("MissingPermission")
+        public void bind(DeviceSnapshot device) {
+            nameTextView.setText(device.getName() != null ? device.getName() : "Unknown Device");
+            addressTextView.setText(device.getAddress() != null ? device.getAddress() : "No Address");
+            bindRssi(device);
+            bindConnection(device);
+            bindConnecting(device);
+        }
 
-                if (bluetoothDevice.getBondState() == BluetoothDevice.BOND_BONDED) {
-                    Method removeBond = bluetoothDevice.getClass().getMethod("removeBond");
-                    boolean success = (boolean) removeBond.invoke(bluetoothDevice);
+        void bindRssi(DeviceSnapshot device) {
+            rssiTextView.setText(device.getRssi() + " dBm (" + device.getSignalStrengthCategory() + ")");
+        }
 
-                    if (success) {
-                        device.setPaired(false);
-                        device.setConnected(false);
-                        deviceList.remove(device);
-                        notifyDataSetChanged();
-                        showToast(device.getName() + " unpaired successfully");
-                    } else {
-                        showToast("Failed to unpair " + device.getName());
-                    }
-                }
-            } catch (SecurityException e) {
-                showToast("Permission denied: Unable to unpair device.");
-            } catch (Exception e) {
-                Log.e(TAG, "Error while unpairing device: " + e.getMessage());
-                showToast("Error while unpairing device.");
-            }
+        // ✅ Highlight connected devices
+        void bindConnection(DeviceSnapshot device) {
+            itemView.setBackgroundColor(ContextCompat.getColor(context,
+                    device.isConnected() ? android.R.color.holo_green_light : android.R.color.white));
         }
 
-        private boolean hasBluetoothPermissions() {
-            return Build.VERSION.SDK_INT < Build.VERSION_CODES.S ||
-                    ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
+        void bindConnecting(DeviceSnapshot device) {
+            loadingIndicator.setVisibility(connectingAddresses.contains(device.getAddress()) ? View.VISIBLE : View.GONE);
         }
 
-        private boolean hasConnectPermission() {
-            return Build.VERSION.SDK_INT < Build.VERSION_CODES.S ||
-                    ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
+        /** Unpairing runs on the BondManager thread; the row goes once the bond is actually gone */
+        private void unpairDevice(DeviceSnapshot device) {
+            if (!hasBluetoothPermissions()) {
+                showToast("Bluetooth permission required to unpair device.");
+                return;
+            }
+            BondManager.getInstance(context).unpairAll(Collections.singletonList(device.getAddress()),
+                    (succeeded, failed) -> {
+                        if (succeeded.isEmpty()) {
+                            showToast("Failed to unpair " + device.getName());
+                            return;
+                        }
+                        // The row may hold a newer snapshot by now, so match the device, not the fields
+                        List<DeviceSnapshot> remaining = new ArrayList<>(differ.getCurrentList());
+                        remaining.removeIf(row -> row.isSameDevice(device));
+                        differ.submitList(remaining);
+                        if (unpairedListener != null) {
+                            unpairedListener.onDeviceUnpaired(device.getAddress());
+                        }
+                        showToast(device.getName() + " unpaired successfully");
+                    });
         }
 
-        private boolean hasScanPermission() {
+        private boolean hasBluetoothPermissions() {
             return Build.VERSION.SDK_INT < Build.VERSION_CODES.S ||
-                    ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_SCAN) == PackageManager.PERMISSION_GRANTED;
+                    ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
         }
 
         private void showToast(String message) {
@@ -215,23 +319,14 @@ public class DevicesAdapter extends RecyclerView.Adapter<DevicesAdapter.ViewHold
                     Toast.makeText(context, message, Toast.LENGTH_SHORT).show()
             );
         }
-
-        private void updateUI(boolean success) {
-            new Handler(Looper.getMainLooper()).post(() -> loadingIndicator.setVisibility(View.GONE));
-        }
-
-        private void closeSocket(BluetoothSocket socket) {
-            if (socket != null) {
-                try {
-                    socket.close();
-                } catch (IOException ex) {
-                    Log.e(TAG, "Error closing socket: " + ex.getMessage());
-                }
-            }
-        }
     }
 
     public interface OnDeviceClickListener {
         void onDeviceClick(Device device, boolean isPaired);
     }
+
+    /** ✅ Called on the main thread once a row's bond was removed */
+    public interface OnDeviceUnpairedListener {
+        void onDeviceUnpaired(String address);
+    }
 }
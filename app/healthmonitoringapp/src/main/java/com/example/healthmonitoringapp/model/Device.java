@@ -1,8 +1,11 @@
 package com.example.healthmonitoringapp.model;
 
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 public class Device implements Comparable<Device> {
+    private static final Pattern ADDRESS_PATTERN = Pattern.compile("^([0-9A-Fa-f]{2}:){5}[0-9A-Fa-f]{2}$");
+
     private String name;
     private String address;
     private boolean isPaired;
@@ -65,7 +68,7 @@ public class Device implements Comparable<Device> {
     }
 
     private String validateAddress(String address) {
-        return (address != null && address.matches("^([0-9A-Fa-f]{2}:){5}[0-9A-Fa-f]{2}$")) ? address : "00:00:00:00:00:00";
+        return (address != null && ADDRESS_PATTERN.matcher(address).matches()) ? address : "00:00:00:00:00:00";
     }
 
     private int validateRssi(int rssi) {
@@ -116,6 +119,6 @@ public class Device implements Comparable<Device> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(address);
+        return Objects.hashCode(address);
     }
 }
@@ -0,0 +1,256 @@
+package com.example.healthmonitoringapp.model;
+
+import com.example.healthmonitoringapp.utils.MacAddress;
+
+import java.util.Arrays;
+
+/**
+ * ✅ Immutable view of a {@link Device} at one point in time.
+ *
+ * <p>The address is kept as a packed 48-bit long, so {@link #equals} and {@link #hashCode} compare
+ * primitives and never allocate. An {@link Interner} keeps the latest snapshot per address for one
+ * owner, e.g. one list adapter: as long as a device is unchanged, it returns the same instance, and
+ * list diffs can settle on an identity check.
+ */
+public final class DeviceSnapshot {
+
+    private final long address;
+    private final String addressText;
+    private final String name;
+    private final boolean isPaired;
+    private final boolean isConnected;
+    private final int rssi;
+    private final String deviceType;
+    private final String deviceCategory;
+    private final long lastConnectedTime;
+
+    private DeviceSnapshot(long address, String addressText, String name, boolean isPaired, boolean isConnected,
+                           int rssi, String deviceType, String deviceCategory, long lastConnectedTime) {
+        this.address = address;
+        this.addressText = addressText;
+        this.name = name;
+        this.isPaired = isPaired;
+        this.isConnected = isConnected;
+        this.rssi = rssi;
+        this.deviceType = deviceType;
+        this.deviceCategory = deviceCategory;
+        this.lastConnectedTime = lastConnectedTime;
+    }
+
+    /**
+     * ✅ New snapshot of {@code device}; see {@link Interner#of} to reuse unchanged ones.
+     */
+    public static DeviceSnapshot of(Device device) {
+        long packed = MacAddress.pack(device.getAddress()); // Device already validated the format
+        return new DeviceSnapshot(packed, device.getAddress(), device.getName(),
+                device.isPaired(), device.isConnected(), device.getRssi(),
+                device.getDeviceType(), device.getDeviceCategory(), device.getLastConnectedTime());
+    }
+
+    /**
+     * ✅ Same snapshot with a different connection state.
+     */
+    public DeviceSnapshot withConnected(boolean connected) {
+        if (connected == isConnected) return this;
+        return new DeviceSnapshot(address, addressText, name, isPaired, connected,
+                rssi, deviceType, deviceCategory, lastConnectedTime);
+    }
+
+    /** ✅ Mutable copy, for code that works with {@link Device} */
+    public Device toDevice() {
+        return new Device(name, addressText, isPaired, rssi, isConnected, deviceType, deviceCategory, lastConnectedTime);
+    }
+
+    /** ✅ Whether {@code device} currently holds exactly these values */
+    public boolean matches(Device device) {
+        return isPaired == device.isPaired() &&
+                isConnected == device.isConnected() &&
+                rssi == device.getRssi() &&
+                lastConnectedTime == device.getLastConnectedTime() &&
+                name.equals(device.getName()) &&
+                addressText.equals(device.getAddress()) &&
+                deviceType.equals(device.getDeviceType()) &&
+                deviceCategory.equals(device.getDeviceCategory());
+    }
+
+    public long getPackedAddress() { return address; }
+    public String getAddress() { return addressText; }
+    public String getName() { return name; }
+    public boolean isPaired() { return isPaired; }
+    public boolean isConnected() { return isConnected; }
+    public int getRssi() { return rssi; }
+    public String getDeviceType() { return deviceType; }
+    public String getDeviceCategory() { return deviceCategory; }
+    public long getLastConnectedTime() { return lastConnectedTime; }
+
+    public String getSignalStrengthCategory() {
+        if (rssi >= -50) return "Strong";
+        if (rssi >= -70) return "Medium";
+        if (rssi >= -90) return "Weak";
+        return "Very Weak";
+    }
+
+    /** ✅ Same address (the device identity); {@link #equals} also compares every field */
+    public boolean isSameDevice(DeviceSnapshot other) {
+        return address == other.address;
+    }
+
+    // ✅ Value equality over every field; no boxing or varargs
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof DeviceSnapshot)) return false;
+        DeviceSnapshot other = (DeviceSnapshot) obj;
+        return address == other.address &&
+                isPaired == other.isPaired &&
+                isConnected == other.isConnected &&
+                rssi == other.rssi &&
+                lastConnectedTime == other.lastConnectedTime &&
+                name.equals(other.name) &&
+                deviceType.equals(other.deviceType) &&
+                deviceCategory.equals(other.deviceCategory);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(address);
+        result = 31 * result + rssi;
+        result = 31 * result + (isConnected ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceSnapshot{" + name + ", " + addressText + ", " + rssi + " dBm" +
+                (isConnected ? ", connected" : "") + (isPaired ? ", paired" : "") + '}';
+    }
+
+    /**
+     * ✅ Latest snapshot per address for one owner, in an open-addressing table keyed by the packed
+     * address, so lookups never box. Each {@link #sweep()} drops the addresses not seen since the
+     * previous one, so the table never outgrows the owner's list. Not thread-safe.
+     */
+    public static final class Interner {
+        private static final long EMPTY = MacAddress.INVALID;
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys;
+        private DeviceSnapshot[] snapshots;
+        private int[] passes;
+        private int size;
+        private int pass = 1;
+
+        public Interner() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        /**
+         * ✅ Snapshot of {@code device}: the interned instance when nothing changed since it was taken.
+         */
+        public DeviceSnapshot of(Device device) {
+            long packed = MacAddress.pack(device.getAddress());
+            int slot = slotOf(packed);
+            DeviceSnapshot interned = snapshots[slot];
+            if (interned != null && interned.matches(device)) {
+                passes[slot] = pass;
+                return interned;
+            }
+            DeviceSnapshot snapshot = new DeviceSnapshot(packed, device.getAddress(), device.getName(),
+                    device.isPaired(), device.isConnected(), device.getRssi(),
+                    device.getDeviceType(), device.getDeviceCategory(), device.getLastConnectedTime());
+            store(slot, snapshot);
+            return snapshot;
+        }
+
+        /** ✅ Make {@code snapshot} the interned one for its address, e.g. after {@link #withConnected} */
+        public DeviceSnapshot put(DeviceSnapshot snapshot) {
+            store(slotOf(snapshot.address), snapshot);
+            return snapshot;
+        }
+
+        /** ✅ Drop every address not passed to {@link #of} or {@link #put} since the last sweep */
+        public void sweep() {
+            int slot = 0;
+            while (slot < keys.length) {
+                if (keys[slot] != EMPTY && passes[slot] != pass) {
+                    deleteSlot(slot); // An entry may shift into this slot, so look at it again
+                    size--;
+                } else {
+                    slot++;
+                }
+            }
+            pass++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void store(int slot, DeviceSnapshot snapshot) {
+            if (keys[slot] == EMPTY) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    rehash(keys.length * 2);
+                    slot = slotOf(snapshot.address);
+                }
+                keys[slot] = snapshot.address;
+                size++;
+            }
+            snapshots[slot] = snapshot;
+            passes[slot] = pass;
+        }
+
+        private int slotOf(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /** Backward-shift deletion, as in {@code DeviceRegistry}. */
+        private void deleteSlot(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    snapshots[hole] = snapshots[next];
+                    passes[hole] = passes[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            snapshots[hole] = null;
+            passes[hole] = 0;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            snapshots = new DeviceSnapshot[capacity];
+            passes = new int[capacity];
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            DeviceSnapshot[] oldSnapshots = snapshots;
+            int[] oldPasses = passes;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                snapshots[slot] = oldSnapshots[i];
+                passes[slot] = oldPasses[i];
+            }
+        }
+
+        private static int hash(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.healthmonitoringapp.processing;
+
+/**
+ * A rule changing state for one device: raised when its condition starts holding, cleared
+ * when it stops.
+ */
+public final class Alert {
+    private final String address;
+    private final AlertRule rule;
+    private final boolean raised;
+    private final double value;
+    private final long timestamp;
+
+    Alert(String address, AlertRule rule, boolean raised, double value, long timestamp) {
+        this.address = address;
+        this.rule = rule;
+        this.raised = raised;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    public String getAddress() { return address; }
+    public AlertRule getRule() { return rule; }
+    public boolean isRaised() { return raised; }
+    /** Input value that caused the transition. */
+    public double getValue() { return value; }
+    /** Receive time of the sample that caused the transition. */
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return rule.getName() + (raised ? " raised" : " cleared") + " for " + address + " (" + value + ")";
+    }
+}
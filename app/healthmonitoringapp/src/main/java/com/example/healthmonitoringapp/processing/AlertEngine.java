@@ -0,0 +1,187 @@
+package com.example.healthmonitoringapp.processing;
+
+import android.os.Handler;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.stream.SampleSink;
+import com.example.healthmonitoringapp.utils.Histogram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates {@link AlertRule}s against raw samples and derived metrics as they stream in.
+ *
+ * <p>Runs on the dispatch thread: raw channels arrive through {@link #onSample}, heart rate and
+ * SpO2 through {@link #onMetric} as soon as {@link VitalsProcessor} detects a beat, so alert
+ * latency is bounded by one beat plus the dispatch queue. Rules are compiled into a per-input
+ * index, each input only touches the rules that read it, and per-device state is a set of
+ * primitive arrays. Only transitions allocate, to post the {@link Alert} to the listener.
+ */
+public class AlertEngine implements SampleSink, VitalsProcessor.MetricSink {
+    private static final int COST_SAMPLE_MASK = 63;
+
+    /**
+     * Receives raised and cleared alerts on the delivery handler's thread.
+     */
+    public interface Listener {
+        void onAlert(Alert alert);
+    }
+
+    /** Compiled, immutable form of a rule list. */
+    private static final class RuleSet {
+        final AlertRule[] rules;
+        final int[] slots;
+        final int stateSize;
+        /** Rule indexes per input; {@code null} where no rule reads the input. */
+        final int[][] rulesByInput = new int[AlertRule.INPUT_COUNT][];
+        final boolean hasChannelRules;
+
+        RuleSet(List<AlertRule> ruleList) {
+            rules = ruleList.toArray(new AlertRule[0]);
+            slots = new int[rules.length];
+            int size = 0;
+            for (int i = 0; i < rules.length; i++) {
+                slots[i] = size;
+                size += rules[i].stateSlots();
+            }
+            stateSize = size;
+
+            int[] counts = new int[AlertRule.INPUT_COUNT];
+            for (AlertRule rule : rules) counts[rule.input]++;
+            boolean channelRules = false;
+            for (int input = 0; input < AlertRule.INPUT_COUNT; input++) {
+                if (counts[input] == 0) continue;
+                rulesByInput[input] = new int[counts[input]];
+                counts[input] = 0;
+                if (input < FrameDecoder.MAX_CHANNELS) channelRules = true;
+            }
+            for (int i = 0; i < rules.length; i++) {
+                int input = rules[i].input;
+                rulesByInput[input][counts[input]++] = i;
+            }
+            hasChannelRules = channelRules;
+        }
+    }
+
+    private static final class DeviceState {
+        final RuleSet ruleSet;
+        final long[] times;
+        final double[] values;
+        final boolean[] active;
+
+        DeviceState(RuleSet ruleSet) {
+            this.ruleSet = ruleSet;
+            this.times = new long[ruleSet.stateSize];
+            this.values = new double[ruleSet.stateSize];
+            this.active = new boolean[ruleSet.rules.length];
+            for (int i = 0; i < ruleSet.rules.length; i++) {
+                ruleSet.rules[i].initState(times, values, ruleSet.slots[i]);
+            }
+        }
+    }
+
+    private final Handler deliveryHandler;
+    private volatile Listener listener;
+    private volatile RuleSet ruleSet = new RuleSet(new ArrayList<>());
+
+    // Dispatch thread only
+    private final Map<String, DeviceState> devices = new HashMap<>();
+    private volatile long evaluations;
+    private long costSamples;
+    private long costNanos;
+    private volatile long averageCostNanos;
+    private volatile long raisedCount;
+
+    /** Receive time to rule evaluation, in ms. */
+    private final Histogram evaluationLatency = new Histogram("ms");
+
+    public AlertEngine(Handler deliveryHandler) {
+        this.deliveryHandler = deliveryHandler;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Replace the rules. Per-device state starts over with the next input.
+     */
+    public void setRules(List<AlertRule> rules) {
+        this.ruleSet = new RuleSet(rules);
+    }
+
+    public List<AlertRule> getRules() {
+        return Arrays.asList(ruleSet.rules);
+    }
+
+    @Override
+    public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        RuleSet rules = ruleSet;
+        if (!rules.hasChannelRules) return;
+        DeviceState state = stateFor(address, rules);
+        int channels = Math.min(valueCount, FrameDecoder.MAX_CHANNELS);
+        for (int channel = 0; channel < channels; channel++) {
+            int[] indexes = rules.rulesByInput[channel];
+            if (indexes != null) {
+                evaluate(address, state, indexes, values[channel], timestamp);
+            }
+        }
+    }
+
+    @Override
+    public void onMetric(String address, int metric, double value, long timestamp) {
+        RuleSet rules = ruleSet;
+        int[] indexes = rules.rulesByInput[AlertRule.metric(metric)];
+        if (indexes == null) return;
+        evaluate(address, stateFor(address, rules), indexes, value, timestamp);
+    }
+
+    private DeviceState stateFor(String address, RuleSet rules) {
+        DeviceState state = devices.get(address);
+        if (state == null || state.ruleSet != rules) {
+            state = new DeviceState(rules);
+            devices.put(address, state);
+        }
+        return state;
+    }
+
+    private void evaluate(String address, DeviceState state, int[] indexes, double value, long timestamp) {
+        boolean measure = (costSamples++ & COST_SAMPLE_MASK) == 0;
+        long start = measure ? System.nanoTime() : 0;
+
+        RuleSet rules = state.ruleSet;
+        for (int index : indexes) {
+            boolean holds = rules.rules[index].test(value, timestamp, state.times, state.values, rules.slots[index]);
+            if (holds != state.active[index]) {
+                state.active[index] = holds;
+                if (holds) raisedCount++;
+                post(new Alert(address, rules.rules[index], holds, value, timestamp));
+            }
+        }
+        evaluations += indexes.length;
+
+        if (measure) {
+            costNanos += System.nanoTime() - start;
+            averageCostNanos = costNanos / ((costSamples + COST_SAMPLE_MASK) / (COST_SAMPLE_MASK + 1));
+            evaluationLatency.record(System.currentTimeMillis() - timestamp);
+        }
+    }
+
+    private void post(Alert alert) {
+        Listener target = listener;
+        if (target != null) {
+            deliveryHandler.post(() -> target.onAlert(alert));
+        }
+    }
+
+    /** Mean cost of evaluating all rules of one input, in ns, measured on every 64th input. */
+    public long getAverageCostNanos() { return averageCostNanos; }
+    /** Socket receive to rule evaluation, sampled on every 64th input. */
+    public Histogram getEvaluationLatencyHistogram() { return evaluationLatency; }
+    public long getRaisedCount() { return raisedCount; }
+    public long getEvaluationCount() { return evaluations; }
+}
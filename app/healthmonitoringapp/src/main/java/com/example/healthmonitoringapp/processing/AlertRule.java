@@ -0,0 +1,221 @@
+package com.example.healthmonitoringapp.processing;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, precompiled alert condition on one input: a raw sample channel or a derived
+ * metric from {@link VitalsProcessor}.
+ *
+ * <p>Rules hold no per-device state. {@link AlertEngine} gives each rule fixed slots in per-device
+ * primitive arrays, so every rule costs O(1) memory per device and evaluation never allocates.
+ * The same rule instances can be shared by several engines.
+ */
+public abstract class AlertRule {
+    /** Inputs {@code 0..MAX_CHANNELS-1} are raw channels, the rest are derived metrics. */
+    public static final int INPUT_COUNT = FrameDecoder.MAX_CHANNELS + VitalsProcessor.METRIC_COUNT;
+
+    public enum Severity { WARNING, CRITICAL }
+
+    final String name;
+    final int input;
+    final Severity severity;
+
+    AlertRule(String name, int input, Severity severity) {
+        if (input < 0 || input >= INPUT_COUNT) throw new IllegalArgumentException("Bad input " + input);
+        this.name = name;
+        this.input = input;
+        this.severity = severity;
+    }
+
+    public static int channel(int channel) {
+        return channel;
+    }
+
+    public static int metric(int metric) {
+        return FrameDecoder.MAX_CHANNELS + metric;
+    }
+
+    /**
+     * Whether the condition holds after seeing {@code value}. {@code times} and {@code values}
+     * are the device's state arrays; this rule owns {@link #stateSlots()} entries from {@code slot}.
+     */
+    abstract boolean test(double value, long timestamp, long[] times, double[] values, int slot);
+
+    /** Entries this rule needs in each per-device state array. */
+    int stateSlots() {
+        return 1;
+    }
+
+    /** Reset this rule's slots for a new device. */
+    void initState(long[] times, double[] values, int slot) {
+        times[slot] = Long.MIN_VALUE;
+        values[slot] = Double.NaN;
+    }
+
+    public String getName() { return name; }
+    public Severity getSeverity() { return severity; }
+
+    /**
+     * Fires while the value is above (or below) a limit.
+     */
+    public static AlertRule threshold(String name, int input, boolean above, double limit, Severity severity) {
+        return threshold(name, input, above, limit, 0, severity);
+    }
+
+    /**
+     * Fires once the value crosses {@code limit} and clears only when it is back by at least
+     * {@code hysteresis}, so a value hovering at the limit does not raise and clear on every beat.
+     */
+    public static AlertRule threshold(String name, int input, boolean above, double limit, double hysteresis,
+                                      Severity severity) {
+        return new Threshold(name, input, above, limit, hysteresis, severity);
+    }
+
+    /**
+     * Fires while the value changes faster than {@code limitPerSecond} (signed; negative for falls),
+     * with the slope smoothed over about {@code windowMillis}.
+     */
+    public static AlertRule rateOfChange(String name, int input, double limitPerSecond, long windowMillis, Severity severity) {
+        return new RateOfChange(name, input, limitPerSecond, windowMillis, severity);
+    }
+
+    /**
+     * Fires once the value has stayed above (or below) a limit for {@code durationMillis}.
+     */
+    public static AlertRule sustained(String name, int input, boolean above, double limit, long durationMillis, Severity severity) {
+        return sustained(name, input, above, limit, 0, durationMillis, severity);
+    }
+
+    /**
+     * Like {@link #sustained(String, int, boolean, double, long, Severity)}, but once raised only
+     * clears when the value is back by at least {@code hysteresis}.
+     */
+    public static AlertRule sustained(String name, int input, boolean above, double limit, double hysteresis,
+                                      long durationMillis, Severity severity) {
+        return new Sustained(name, input, above, limit, hysteresis, durationMillis, severity);
+    }
+
+    /**
+     * Bradycardia, tachycardia and desaturation rules used when the app does not configure its own.
+     */
+    public static List<AlertRule> defaults() {
+        int heartRate = metric(VitalsProcessor.METRIC_HEART_RATE);
+        int spo2 = metric(VitalsProcessor.METRIC_SPO2);
+        return Arrays.asList(
+                sustained("Bradycardia", heartRate, false, 50, 3, 10_000, Severity.WARNING),
+                threshold("Severe bradycardia", heartRate, false, 40, 3, Severity.CRITICAL),
+                sustained("Tachycardia", heartRate, true, 120, 5, 10_000, Severity.WARNING),
+                threshold("Severe tachycardia", heartRate, true, 150, 5, Severity.CRITICAL),
+                sustained("Desaturation", spo2, false, 92, 1, 15_000, Severity.WARNING),
+                threshold("Severe desaturation", spo2, false, 88, 1, Severity.CRITICAL),
+                rateOfChange("Rapid desaturation", spo2, -0.3, 10_000, Severity.WARNING));
+    }
+
+    /** Whether {@code value} is past {@code limit} in the direction a rule watches. */
+    private static boolean beyond(boolean above, double value, double limit) {
+        return above ? value > limit : value < limit;
+    }
+
+    /** The level a raised rule must get back past to clear. */
+    private static double clearLevel(boolean above, double limit, double hysteresis) {
+        return above ? limit - hysteresis : limit + hysteresis;
+    }
+
+    private static final class Threshold extends AlertRule {
+        final boolean above;
+        final double limit;
+        final double clearLevel;
+
+        Threshold(String name, int input, boolean above, double limit, double hysteresis, Severity severity) {
+            super(name, input, severity);
+            this.above = above;
+            this.limit = limit;
+            this.clearLevel = clearLevel(above, limit, hysteresis);
+        }
+
+        /** State: 1 while raised. */
+        @Override
+        boolean test(double value, long timestamp, long[] times, double[] values, int slot) {
+            boolean holds = beyond(above, value, (values[slot] > 0) ? clearLevel : limit);
+            values[slot] = holds ? 1 : 0;
+            return holds;
+        }
+    }
+
+    private static final class RateOfChange extends AlertRule {
+        final double limitPerMilli;
+        final double windowMillis;
+
+        RateOfChange(String name, int input, double limitPerSecond, long windowMillis, Severity severity) {
+            super(name, input, severity);
+            this.limitPerMilli = limitPerSecond / 1000.0;
+            this.windowMillis = windowMillis;
+        }
+
+        @Override
+        int stateSlots() {
+            return 2;
+        }
+
+        @Override
+        void initState(long[] times, double[] values, int slot) {
+            super.initState(times, values, slot);
+            values[slot + 1] = 0;
+        }
+
+        /**
+         * State: last time and value, and the slope smoothed over about {@code windowMillis}
+         * (an exponential average weighted by elapsed time, so irregular updates are fine).
+         */
+        @Override
+        boolean test(double value, long timestamp, long[] times, double[] values, int slot) {
+            long lastTime = times[slot];
+            double slope = values[slot + 1];
+            if (lastTime == Long.MIN_VALUE || timestamp > lastTime) {
+                if (lastTime != Long.MIN_VALUE) {
+                    long elapsed = timestamp - lastTime;
+                    double weight = Math.min(1.0, elapsed / windowMillis);
+                    slope += weight * ((value - values[slot]) / elapsed - slope);
+                    values[slot + 1] = slope;
+                }
+                times[slot] = timestamp;
+                values[slot] = value;
+            }
+            return limitPerMilli < 0 ? slope < limitPerMilli : slope > limitPerMilli;
+        }
+    }
+
+    private static final class Sustained extends AlertRule {
+        final boolean above;
+        final double limit;
+        final double clearLevel;
+        final long durationMillis;
+
+        Sustained(String name, int input, boolean above, double limit, double hysteresis, long durationMillis,
+                  Severity severity) {
+            super(name, input, severity);
+            this.above = above;
+            this.limit = limit;
+            this.clearLevel = clearLevel(above, limit, hysteresis);
+            this.durationMillis = durationMillis;
+        }
+
+        /** State: when the condition started holding, or {@code Long.MIN_VALUE}; 1 while raised. */
+        @Override
+        boolean test(double value, long timestamp, long[] times, double[] values, int slot) {
+            boolean holds = beyond(above, value, (values[slot] > 0) ? clearLevel : limit);
+            if (!holds) {
+                times[slot] = Long.MIN_VALUE;
+                values[slot] = 0;
+                return false;
+            }
+            if (times[slot] == Long.MIN_VALUE) times[slot] = timestamp;
+            boolean raised = timestamp - times[slot] >= durationMillis;
+            values[slot] = raised ? 1 : 0;
+            return raised;
+        }
+    }
+}
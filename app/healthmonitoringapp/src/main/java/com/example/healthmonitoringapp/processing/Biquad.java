@@ -0,0 +1,62 @@
+package com.example.healthmonitoringapp.processing;
+
+/**
+ * Second-order IIR section (transposed direct form II) with coefficients from the RBJ audio
+ * EQ cookbook. Two doubles of state, no allocation per sample. Not thread-safe.
+ */
+public final class Biquad {
+    private final double b0;
+    private final double b1;
+    private final double b2;
+    private final double a1;
+    private final double a2;
+
+    private double z1;
+    private double z2;
+
+    private Biquad(double b0, double b1, double b2, double a0, double a1, double a2) {
+        this.b0 = b0 / a0;
+        this.b1 = b1 / a0;
+        this.b2 = b2 / a0;
+        this.a1 = a1 / a0;
+        this.a2 = a2 / a0;
+    }
+
+    public static Biquad lowPass(double sampleRateHz, double cutoffHz) {
+        double w = 2 * Math.PI * cutoffHz / sampleRateHz;
+        double alpha = Math.sin(w) / (2 * Math.sqrt(0.5));
+        double cos = Math.cos(w);
+        return new Biquad((1 - cos) / 2, 1 - cos, (1 - cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    public static Biquad highPass(double sampleRateHz, double cutoffHz) {
+        double w = 2 * Math.PI * cutoffHz / sampleRateHz;
+        double alpha = Math.sin(w) / (2 * Math.sqrt(0.5));
+        double cos = Math.cos(w);
+        return new Biquad((1 + cos) / 2, -(1 + cos), (1 + cos) / 2, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    /**
+     * Band-pass with 0 dB peak gain, centred geometrically between {@code lowHz} and {@code highHz}.
+     */
+    public static Biquad bandPass(double sampleRateHz, double lowHz, double highHz) {
+        double centre = Math.sqrt(lowHz * highHz);
+        double q = centre / (highHz - lowHz);
+        double w = 2 * Math.PI * centre / sampleRateHz;
+        double alpha = Math.sin(w) / (2 * q);
+        double cos = Math.cos(w);
+        return new Biquad(alpha, 0, -alpha, 1 + alpha, -2 * cos, 1 - alpha);
+    }
+
+    public double process(double x) {
+        double y = b0 * x + z1;
+        z1 = b1 * x - a1 * y + z2;
+        z2 = b2 * x - a2 * y;
+        return y;
+    }
+
+    public void reset() {
+        z1 = 0;
+        z2 = 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.healthmonitoringapp.processing;
+
+import java.util.Arrays;
+
+/**
+ * Boxcar FIR filter over the last {@code length} inputs, kept as a ring plus a running sum so
+ * each sample costs O(1). Not thread-safe.
+ */
+public final class MovingAverage {
+    private final double[] window;
+    private int next;
+    private int filled;
+    private double sum;
+
+    public MovingAverage(int length) {
+        this.window = new double[Math.max(1, length)];
+    }
+
+    public double process(double x) {
+        sum += x - window[next];
+        window[next] = x;
+        next = (next + 1 == window.length) ? 0 : next + 1;
+        if (filled < window.length) filled++;
+        return sum / filled;
+    }
+
+    public void reset() {
+        Arrays.fill(window, 0);
+        next = 0;
+        filled = 0;
+        sum = 0;
+    }
+}
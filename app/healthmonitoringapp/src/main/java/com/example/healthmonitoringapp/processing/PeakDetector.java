@@ -0,0 +1,76 @@
+package com.example.healthmonitoringapp.processing;
+
+/**
+ * Streaming beat detector for a band-passed ECG or PPG signal.
+ *
+ * <p>Every local maximum is a candidate. Candidates above an adaptive threshold that sits a quarter of
+ * the way from the running noise level to the running signal level (the Pan-Tompkins rule) and outside
+ * the refractory period count as beats. Both levels are exponential averages, so the detector
+ * follows amplitude changes without keeping a history. Not thread-safe.
+ */
+public final class PeakDetector {
+    private final int refractorySamples;
+    private final int learningSamples;
+
+    private double signalLevel;
+    private double noiseLevel;
+    private double previous;
+    private boolean rising;
+    private long processed;
+    private long lastPeakIndex = Long.MIN_VALUE;
+    private double lastPeakValue;
+    private double learningMax;
+
+    /**
+     * @param refractoryMillis shortest plausible beat-to-beat interval (250 ms caps at 240 bpm)
+     */
+    public PeakDetector(double sampleRateHz, int refractoryMillis) {
+        this.refractorySamples = (int) Math.round(sampleRateHz * refractoryMillis / 1000.0);
+        this.learningSamples = (int) Math.round(sampleRateHz * 2);
+    }
+
+    /**
+     * Feed the sample at stream position {@code index}.
+     *
+     * @return {@code true} if the previous sample was a beat; see {@link #getLastPeakIndex()}
+     */
+    public boolean process(double x, long index) {
+        boolean peak = false;
+        if (processed < learningSamples) {
+            // Seed the levels from the first two seconds instead of starting at zero
+            learningMax = Math.max(learningMax, x);
+            if (++processed == learningSamples) {
+                signalLevel = learningMax * 0.5;
+                noiseLevel = learningMax * 0.125;
+            }
+        } else if (rising && x < previous) {
+            double threshold = noiseLevel + 0.25 * (signalLevel - noiseLevel);
+            long candidate = index - 1;
+            if (previous > threshold
+                    && (lastPeakIndex == Long.MIN_VALUE || candidate - lastPeakIndex >= refractorySamples)) {
+                signalLevel = 0.125 * previous + 0.875 * signalLevel;
+                lastPeakIndex = candidate;
+                lastPeakValue = previous;
+                peak = true;
+            } else {
+                noiseLevel = 0.125 * previous + 0.875 * noiseLevel;
+            }
+        }
+        rising = x > previous;
+        previous = x;
+        return peak;
+    }
+
+    public long getLastPeakIndex() { return lastPeakIndex; }
+    public double getLastPeakValue() { return lastPeakValue; }
+
+    public void reset() {
+        signalLevel = 0;
+        noiseLevel = 0;
+        previous = 0;
+        rising = false;
+        processed = 0;
+        learningMax = 0;
+        lastPeakIndex = Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.healthmonitoringapp.processing;
+
+/**
+ * Derived vitals for one device at one point in time. Values that could not be computed yet
+ * (too few beats, no PPG channels) are {@link Float#NaN}.
+ */
+public final class Vitals {
+    private final String address;
+    private final long timestamp;
+    private final float heartRate;
+    private final float rmssd;
+    private final float spo2;
+    private final long beatCount;
+
+    Vitals(String address, long timestamp, float heartRate, float rmssd, float spo2, long beatCount) {
+        this.address = address;
+        this.timestamp = timestamp;
+        this.heartRate = heartRate;
+        this.rmssd = rmssd;
+        this.spo2 = spo2;
+        this.beatCount = beatCount;
+    }
+
+    public String getAddress() { return address; }
+    public long getTimestamp() { return timestamp; }
+    /** Beats per minute over the last few beats. */
+    public float getHeartRate() { return heartRate; }
+    /** Heart rate variability: root mean square of successive RR differences, in ms. */
+    public float getRmssd() { return rmssd; }
+    /** Peripheral oxygen saturation in percent. */
+    public float getSpo2() { return spo2; }
+    public long getBeatCount() { return beatCount; }
+
+    @Override
+    public String toString() {
+        return address + " HR=" + heartRate + " RMSSD=" + rmssd + " SpO2=" + spo2;
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.healthmonitoringapp.processing;
+
+import android.os.Handler;
+
+import com.example.healthmonitoringapp.stream.SampleSink;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Derives heart rate, HRV (RMSSD) and SpO2 from the decoded sample stream.
+ *
+ * <p>Runs as a {@link SampleSink} on the dispatch thread, next to storage and off the socket
+ * readers. Per device it keeps a few filters, a beat detector and fixed primitive windows of the
+ * last RR intervals and SpO2 ratios, so a sample costs a constant amount of arithmetic and no
+ * allocation. Results go to the listener on {@code deliveryHandler} at most once per second per
+ * device, so the UI thread never does numeric work.
+ *
+ * <p>Beats come from the ECG channel when the layout has one, otherwise from the IR PPG channel.
+ * Once no beat has followed the last one for {@link #MAX_RR_MS}, the heart rate falls with the time
+ * since that beat and metric sinks keep getting it once per {@link #PUBLISH_INTERVAL_MS}, so
+ * bradycardia and asystole show up as low rates instead of the last normal one.
+ */
+public class VitalsProcessor implements SampleSink {
+    public static final int METRIC_HEART_RATE = 0;
+    public static final int METRIC_SPO2 = 1;
+    public static final int METRIC_RMSSD = 2;
+    public static final int METRIC_COUNT = 3;
+
+    static final long PUBLISH_INTERVAL_MS = 1000;
+    private static final int RR_WINDOW = 16;
+    private static final int RATIO_WINDOW = 8;
+    private static final double MIN_RR_MS = 300;   // 200 bpm
+    static final double MAX_RR_MS = 2000;          // 30 bpm; later beats are overdue
+    private static final int COST_SAMPLE_MASK = 63;
+
+    /**
+     * Where each signal sits in a sample, and the sensor's sampling rate.
+     */
+    public static final class ChannelLayout {
+        public static final int NONE = -1;
+        public static final ChannelLayout DEFAULT = new ChannelLayout(250, 0, 1, 2);
+
+        final double sampleRateHz;
+        final int ecgChannel;
+        final int redChannel;
+        final int irChannel;
+
+        public ChannelLayout(double sampleRateHz, int ecgChannel, int redChannel, int irChannel) {
+            this.sampleRateHz = sampleRateHz;
+            this.ecgChannel = ecgChannel;
+            this.redChannel = redChannel;
+            this.irChannel = irChannel;
+        }
+    }
+
+    /**
+     * Receives derived vitals on the delivery handler's thread.
+     */
+    public interface Listener {
+        void onVitals(Vitals vitals);
+    }
+
+    /**
+     * Receives every metric update as soon as a beat is detected, on the dispatch thread.
+     * Implementations must not block or allocate per call.
+     */
+    public interface MetricSink {
+        void onMetric(String address, int metric, double value, long timestamp);
+    }
+
+    private final Handler deliveryHandler;
+    private volatile Listener listener;
+    private volatile ChannelLayout layout = ChannelLayout.DEFAULT;
+    private final CopyOnWriteArrayList<MetricSink> metricSinks = new CopyOnWriteArrayList<>();
+    // Copy of metricSinks for the dispatch thread, which iterates it on every beat without an iterator
+    private volatile MetricSink[] metricSinkArray = new MetricSink[0];
+
+    // Dispatch thread only
+    private final Map<String, DeviceVitals> devices = new HashMap<>();
+    private long costSamples;
+    private long costNanos;
+    private volatile long averageCostNanos;
+
+    public VitalsProcessor(Handler deliveryHandler) {
+        this.deliveryHandler = deliveryHandler;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void addMetricSink(MetricSink sink) {
+        if (metricSinks.addIfAbsent(sink)) metricSinkArray = metricSinks.toArray(new MetricSink[0]);
+    }
+
+    public synchronized void removeMetricSink(MetricSink sink) {
+        if (metricSinks.remove(sink)) metricSinkArray = metricSinks.toArray(new MetricSink[0]);
+    }
+
+    /**
+     * Takes effect with the next sample; filter state is rebuilt for the new layout.
+     */
+    public void setChannelLayout(ChannelLayout layout) {
+        this.layout = layout;
+    }
+
+    @Override
+    public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        boolean measure = (costSamples++ & COST_SAMPLE_MASK) == 0;
+        long start = measure ? System.nanoTime() : 0;
+
+        ChannelLayout current = layout;
+        DeviceVitals device = devices.get(address);
+        if (device == null || device.layout != current) {
+            device = new DeviceVitals(address, current);
+            devices.put(address, device);
+        }
+        boolean beat = device.process(sequence, values, valueCount);
+        MetricSink[] sinks = metricSinkArray;
+        if (sinks.length > 0 && (beat
+                || (device.isBeatOverdue() && timestamp - device.lastMetricsPublished >= PUBLISH_INTERVAL_MS))) {
+            device.lastMetricsPublished = timestamp;
+            publishMetrics(sinks, device, timestamp);
+        }
+
+        if (timestamp - device.lastPublished >= PUBLISH_INTERVAL_MS) {
+            device.lastPublished = timestamp;
+            Listener target = listener;
+            if (target != null) {
+                Vitals vitals = device.snapshot(timestamp);
+                deliveryHandler.post(() -> target.onVitals(vitals));
+            }
+        }
+
+        if (measure) {
+            costNanos += System.nanoTime() - start;
+            averageCostNanos = costNanos / ((costSamples + COST_SAMPLE_MASK) / (COST_SAMPLE_MASK + 1));
+        }
+    }
+
+    private static void publishMetrics(MetricSink[] sinks, DeviceVitals device, long timestamp) {
+        float heartRate = device.heartRate();
+        float spo2 = device.spo2();
+        float rmssd = device.rmssd();
+        for (MetricSink sink : sinks) {
+            if (!Float.isNaN(heartRate)) sink.onMetric(device.address, METRIC_HEART_RATE, heartRate, timestamp);
+            if (!Float.isNaN(spo2)) sink.onMetric(device.address, METRIC_SPO2, spo2, timestamp);
+            if (!Float.isNaN(rmssd)) sink.onMetric(device.address, METRIC_RMSSD, rmssd, timestamp);
+        }
+    }
+
+    /**
+     * Mean processing cost per sample in nanoseconds, measured on every 64th sample.
+     */
+    public long getAverageCostNanos() {
+        return averageCostNanos;
+    }
+
+    /**
+     * Filters, beat detector and rolling windows of one device.
+     */
+    private static final class DeviceVitals {
+        final String address;
+        final ChannelLayout layout;
+        final double samplesPerMs;
+        final long maxGapSamples;
+
+        // Beat path: band-pass, then (ECG) squared slope integrated over ~150 ms, as in Pan-Tompkins
+        final Biquad beatBandPass;
+        final MovingAverage beatIntegrator;
+        final PeakDetector peakDetector;
+        double previousBeatSample;
+
+        // SpO2 path: DC by low-pass, AC amplitude as peak-to-peak of the band-passed signal per beat
+        final Biquad redDc;
+        final Biquad irDc;
+        final Biquad redAc;
+        final Biquad irAc;
+        double redMin = Double.MAX_VALUE;
+        double redMax = -Double.MAX_VALUE;
+        double irMin = Double.MAX_VALUE;
+        double irMax = -Double.MAX_VALUE;
+        double redDcLevel;
+        double irDcLevel;
+
+        final double[] rrIntervals = new double[RR_WINDOW];
+        int rrCount;
+        int rrNext;
+        final double[] ratios = new double[RATIO_WINDOW];
+        int ratioCount;
+        int ratioNext;
+
+        long lastSequence = Long.MIN_VALUE;
+        long previousPeak = Long.MIN_VALUE;
+        long beats;
+        long lastPublished;
+        long lastMetricsPublished;
+
+        DeviceVitals(String address, ChannelLayout layout) {
+            this.address = address;
+            this.layout = layout;
+            double fs = layout.sampleRateHz;
+            this.samplesPerMs = fs / 1000.0;
+            this.maxGapSamples = (long) (fs / 2);
+            boolean ecg = layout.ecgChannel != ChannelLayout.NONE;
+            this.beatBandPass = ecg ? Biquad.bandPass(fs, 5, 15) : Biquad.bandPass(fs, 0.5, 5);
+            this.beatIntegrator = new MovingAverage((int) Math.round(fs * (ecg ? 0.150 : 0.050)));
+            this.peakDetector = new PeakDetector(fs, 250);
+            this.redDc = Biquad.lowPass(fs, 0.5);
+            this.irDc = Biquad.lowPass(fs, 0.5);
+            this.redAc = Biquad.bandPass(fs, 0.5, 5);
+            this.irAc = Biquad.bandPass(fs, 0.5, 5);
+        }
+
+        /** @return {@code true} if this sample completed a beat */
+        boolean process(long sequence, int[] values, int valueCount) {
+            if (lastSequence != Long.MIN_VALUE && sequence - lastSequence > maxGapSamples) {
+                // Filters cannot bridge a long gap; start over but keep publishing cadence
+                resetSignalState();
+            }
+            lastSequence = sequence;
+
+            int red = layout.redChannel;
+            int ir = layout.irChannel;
+            boolean hasPpg = red >= 0 && ir >= 0 && red < valueCount && ir < valueCount;
+            if (hasPpg) {
+                redDcLevel = redDc.process(values[red]);
+                irDcLevel = irDc.process(values[ir]);
+                double redAcSample = redAc.process(values[red]);
+                double irAcSample = irAc.process(values[ir]);
+                if (redAcSample < redMin) redMin = redAcSample;
+                if (redAcSample > redMax) redMax = redAcSample;
+                if (irAcSample < irMin) irMin = irAcSample;
+                if (irAcSample > irMax) irMax = irAcSample;
+            }
+
+            int beatChannel = (layout.ecgChannel != ChannelLayout.NONE) ? layout.ecgChannel : ir;
+            if (beatChannel < 0 || beatChannel >= valueCount) return false;
+
+            double filtered = beatBandPass.process(values[beatChannel]);
+            double detectorInput;
+            if (layout.ecgChannel != ChannelLayout.NONE) {
+                double slope = filtered - previousBeatSample;
+                previousBeatSample = filtered;
+                detectorInput = beatIntegrator.process(slope * slope);
+            } else {
+                detectorInput = beatIntegrator.process(filtered);
+            }
+
+            if (peakDetector.process(detectorInput, sequence)) {
+                onBeat(peakDetector.getLastPeakIndex(), hasPpg);
+                return true;
+            }
+            return false;
+        }
+
+        private void onBeat(long peak, boolean hasPpg) {
+            beats++;
+            if (previousPeak != Long.MIN_VALUE) {
+                double rr = (peak - previousPeak) / samplesPerMs;
+                // Long intervals are kept: dropping them would freeze the rate during bradycardia
+                if (rr >= MIN_RR_MS) {
+                    rrIntervals[rrNext] = rr;
+                    rrNext = (rrNext + 1) % RR_WINDOW;
+                    if (rrCount < RR_WINDOW) rrCount++;
+                }
+            }
+            previousPeak = peak;
+
+            if (hasPpg && redDcLevel > 0 && irDcLevel > 0 && irMax > irMin) {
+                // Ratio of ratios over the beat that just ended
+                double ratio = ((redMax - redMin) / redDcLevel) / ((irMax - irMin) / irDcLevel);
+                ratios[ratioNext] = ratio;
+                ratioNext = (ratioNext + 1) % RATIO_WINDOW;
+                if (ratioCount < RATIO_WINDOW) ratioCount++;
+            }
+            redMin = Double.MAX_VALUE;
+            redMax = -Double.MAX_VALUE;
+            irMin = Double.MAX_VALUE;
+            irMax = -Double.MAX_VALUE;
+        }
+
+        boolean isBeatOverdue() {
+            return previousPeak != Long.MIN_VALUE && (lastSequence - previousPeak) / samplesPerMs > MAX_RR_MS;
+        }
+
+        /** Mean over the RR window, capped by the rate the time since the last beat still allows. */
+        float heartRate() {
+            double rate = Double.NaN;
+            if (rrCount >= 2) {
+                double sum = 0;
+                for (int i = 0; i < rrCount; i++) sum += rrIntervals[i];
+                rate = 60000.0 * rrCount / sum;
+            }
+            if (isBeatOverdue()) {
+                double bound = 60000.0 / ((lastSequence - previousPeak) / samplesPerMs);
+                rate = Double.isNaN(rate) ? bound : Math.min(rate, bound);
+            }
+            return (float) rate;
+        }
+
+        float rmssd() {
+            if (rrCount < 3) return Float.NaN;
+            // Walk the ring oldest to newest
+            int oldest = (rrCount < RR_WINDOW) ? 0 : rrNext;
+            double sumSquares = 0;
+            double previous = rrIntervals[oldest];
+            for (int i = 1; i < rrCount; i++) {
+                double current = rrIntervals[(oldest + i) % RR_WINDOW];
+                double diff = current - previous;
+                sumSquares += diff * diff;
+                previous = current;
+            }
+            return (float) Math.sqrt(sumSquares / (rrCount - 1));
+        }
+
+        float spo2() {
+            if (ratioCount == 0) return Float.NaN;
+            double sum = 0;
+            for (int i = 0; i < ratioCount; i++) sum += ratios[i];
+            // Common empirical calibration; devices with a published curve should override it
+            double spo2 = 110 - 25 * (sum / ratioCount);
+            return (float) Math.max(0, Math.min(100, spo2));
+        }
+
+        Vitals snapshot(long timestamp) {
+            return new Vitals(address, timestamp, heartRate(), rmssd(), spo2(), beats);
+        }
+
+        private void resetSignalState() {
+            beatBandPass.reset();
+            beatIntegrator.reset();
+            peakDetector.reset();
+            redDc.reset();
+            irDc.reset();
+            redAc.reset();
+            irAc.reset();
+            previousBeatSample = 0;
+            previousPeak = Long.MIN_VALUE;
+            redMin = Double.MAX_VALUE;
+            redMax = -Double.MAX_VALUE;
+            irMin = Double.MAX_VALUE;
+            irMax = -Double.MAX_VALUE;
+        }
+    }
+}
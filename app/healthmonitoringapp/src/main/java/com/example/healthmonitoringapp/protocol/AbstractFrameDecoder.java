@@ -0,0 +1,68 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Shared payload parsing and counters for the framing implementations.
+ */
+abstract class AbstractFrameDecoder implements FrameDecoder {
+    /** type + sequence */
+    static final int HEADER_SIZE = 3;
+    static final int CRC_SIZE = 2;
+
+    private final int[] values = new int[MAX_CHANNELS];
+    private long frameCount;
+    private long errorCount;
+
+    @Override
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    void recordError() {
+        errorCount++;
+    }
+
+    /**
+     * Validate and dispatch a payload stored at absolute index {@code offset} of {@code buffer},
+     * immediately followed by its two CRC bytes.
+     *
+     * @return {@code false} if the CRC did not match
+     */
+    boolean dispatchPayload(ByteBuffer buffer, int offset, int payloadLength, long timestamp, Callback callback) {
+        int expected = ((buffer.get(offset + payloadLength) & 0xFF) << 8) | (buffer.get(offset + payloadLength + 1) & 0xFF);
+        if (payloadLength < HEADER_SIZE || Crc16.compute(buffer, offset, payloadLength) != expected) {
+            errorCount++;
+            return false;
+        }
+        frameCount++;
+
+        int type = buffer.get(offset) & 0xFF;
+        int sequence = ((buffer.get(offset + 1) & 0xFF) << 8) | (buffer.get(offset + 2) & 0xFF);
+        int bodyStart = offset + HEADER_SIZE;
+        int bodyLength = payloadLength - HEADER_SIZE;
+
+        if (type == TYPE_SAMPLE) {
+            int count = Math.min(bodyLength / 2, MAX_CHANNELS);
+            for (int i = 0; i < count; i++) {
+                values[i] = buffer.getShort(bodyStart + i * 2);
+            }
+            callback.onSample(sequence, timestamp, values, count);
+        } else {
+            int position = buffer.position();
+            int limit = buffer.limit();
+            buffer.limit(bodyStart + bodyLength).position(bodyStart);
+            try {
+                callback.onControlFrame(type, sequence, buffer);
+            } finally {
+                buffer.limit(limit).position(position);
+            }
+        }
+        return true;
+    }
+}
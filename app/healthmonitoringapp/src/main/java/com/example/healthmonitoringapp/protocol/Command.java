@@ -0,0 +1,77 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bytes for one outgoing command, encoded once and sent as often as needed.
+ *
+ * <p>Commands are immutable, so one can be kept as a constant and shared between sessions and
+ * threads. Heap-backed commands are written straight from their array, without copies or
+ * per-write allocation.
+ */
+public final class Command {
+    private final ByteBuffer bytes;   // Read-only view
+    private final byte[] array;       // Backing array, or null for direct / read-only sources
+    private final int offset;
+
+    private Command(ByteBuffer slice) {
+        this.array = slice.hasArray() ? slice.array() : null;
+        this.offset = slice.hasArray() ? slice.arrayOffset() : 0;
+        this.bytes = slice.asReadOnlyBuffer();
+    }
+
+    /**
+     * Command over the remaining bytes of {@code buffer}, without copying them. The caller must
+     * not modify that range afterwards.
+     */
+    public static Command of(ByteBuffer buffer) {
+        return new Command(buffer.slice());
+    }
+
+    /** Command over {@code bytes}, without copying them. */
+    public static Command of(byte[] bytes) {
+        return new Command(ByteBuffer.wrap(bytes));
+    }
+
+    /** Text command, encoded as UTF-8 whatever the platform charset. */
+    public static Command text(String text) {
+        return of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A fresh read-only view over the command bytes. */
+    public ByteBuffer bytes() {
+        return bytes.duplicate();
+    }
+
+    public int size() {
+        return bytes.remaining();
+    }
+
+    /** Append the command to {@code target}, which must have {@link #size()} bytes left. */
+    public void copyTo(ByteBuffer target) {
+        if (array != null) {
+            target.put(array, offset, size());
+        } else {
+            target.put(bytes.duplicate());
+        }
+    }
+
+    /** Write the command on its own. */
+    public void writeTo(OutputStream out) throws IOException {
+        if (array != null) {
+            out.write(array, offset, size());
+        } else {
+            byte[] copy = new byte[size()];
+            bytes.duplicate().get(copy);
+            out.write(copy);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Command[" + size() + " bytes]";
+    }
+}
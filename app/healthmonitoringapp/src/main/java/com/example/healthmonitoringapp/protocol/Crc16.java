@@ -0,0 +1,48 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CRC-16/CCITT-FALSE (poly 0x1021, init 0xFFFF) used to validate sensor frames.
+ */
+public final class Crc16 {
+    public static final int INITIAL = 0xFFFF;
+
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = ((crc & 0x8000) != 0) ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private Crc16() {
+    }
+
+    /** Continue a running CRC with a single byte. */
+    public static int update(int crc, int b) {
+        return ((crc << 8) ^ TABLE[((crc >>> 8) ^ b) & 0xFF]) & 0xFFFF;
+    }
+
+    /** CRC over {@code length} bytes of {@code buffer} starting at absolute index {@code offset}. */
+    public static int compute(ByteBuffer buffer, int offset, int length) {
+        int crc = INITIAL;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = update(crc, buffer.get(i));
+        }
+        return crc;
+    }
+
+    /** CRC over {@code length} bytes of {@code bytes} starting at {@code offset}. */
+    public static int compute(byte[] bytes, int offset, int length) {
+        int crc = INITIAL;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = update(crc, bytes[i]);
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SLIP-style framing (RFC 1055): {@code [payload][crc16]} with 0xC0/0xDB byte stuffing,
+ * terminated by {@link #END}. Consumes the whole input; partial frames are kept internally.
+ */
+public class DelimitedFrameDecoder extends AbstractFrameDecoder {
+    public static final int END = 0xC0;
+    public static final int ESC = 0xDB;
+    public static final int ESC_END = 0xDC;
+    public static final int ESC_ESC = 0xDD;
+
+    private static final int MAX_FRAME_SIZE = 512;
+
+    private final ByteBuffer frame = ByteBuffer.allocate(MAX_FRAME_SIZE);
+    private boolean escaped;
+    private boolean discarding;
+
+    @Override
+    public void decode(ByteBuffer buffer, long timestamp, Callback callback) {
+        int limit = buffer.limit();
+        for (int i = buffer.position(); i < limit; i++) {
+            int b = buffer.get(i) & 0xFF;
+
+            if (b == END) {
+                int length = frame.position();
+                if (!discarding && length > CRC_SIZE) {
+                    dispatchPayload(frame, 0, length - CRC_SIZE, timestamp, callback);
+                } else if (!discarding && length > 0) {
+                    recordError();
+                }
+                frame.clear();
+                escaped = false;
+                discarding = false;
+                continue;
+            }
+            if (discarding) continue;
+
+            if (escaped) {
+                escaped = false;
+                if (b == ESC_END) {
+                    b = END;
+                } else if (b == ESC_ESC) {
+                    b = ESC;
+                } else {
+                    recordError();
+                    discarding = true;
+                    continue;
+                }
+            } else if (b == ESC) {
+                escaped = true;
+                continue;
+            }
+
+            if (!frame.hasRemaining()) {
+                recordError();
+                discarding = true;
+                continue;
+            }
+            frame.put((byte) b);
+        }
+        buffer.position(limit);
+    }
+
+    @Override
+    public void reset() {
+        frame.clear();
+        escaped = false;
+        discarding = false;
+    }
+}
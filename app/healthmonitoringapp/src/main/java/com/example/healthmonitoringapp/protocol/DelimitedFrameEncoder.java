@@ -0,0 +1,46 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder for {@link DelimitedFrameDecoder} framing: {@code [payload][crc16]}, byte-stuffed and
+ * terminated by {@link DelimitedFrameDecoder#END}. A leading END flushes any line noise the
+ * device may have buffered.
+ */
+public class DelimitedFrameEncoder implements FrameEncoder {
+    private static final int MAX_FRAME_SIZE = 512;
+
+    @Override
+    public Command encode(int type, int sequence, ByteBuffer body) {
+        int payloadLength = AbstractFrameDecoder.HEADER_SIZE + body.remaining();
+        if (payloadLength + AbstractFrameDecoder.CRC_SIZE > MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("Frame body too large: " + body.remaining() + " bytes");
+        }
+
+        byte[] raw = new byte[payloadLength + AbstractFrameDecoder.CRC_SIZE];
+        raw[0] = (byte) type;
+        raw[1] = (byte) (sequence >>> 8);
+        raw[2] = (byte) sequence;
+        body.duplicate().get(raw, AbstractFrameDecoder.HEADER_SIZE, body.remaining());
+        int crc = Crc16.compute(raw, 0, payloadLength);
+        raw[payloadLength] = (byte) (crc >>> 8);
+        raw[payloadLength + 1] = (byte) crc;
+
+        // Worst case every byte is escaped, plus the two delimiters
+        ByteBuffer frame = ByteBuffer.allocate(raw.length * 2 + 2);
+        frame.put((byte) DelimitedFrameDecoder.END);
+        for (byte b : raw) {
+            int value = b & 0xFF;
+            if (value == DelimitedFrameDecoder.END) {
+                frame.put((byte) DelimitedFrameDecoder.ESC).put((byte) DelimitedFrameDecoder.ESC_END);
+            } else if (value == DelimitedFrameDecoder.ESC) {
+                frame.put((byte) DelimitedFrameDecoder.ESC).put((byte) DelimitedFrameDecoder.ESC_ESC);
+            } else {
+                frame.put(b);
+            }
+        }
+        frame.put((byte) DelimitedFrameDecoder.END);
+        frame.flip();
+        return Command.of(frame);
+    }
+}
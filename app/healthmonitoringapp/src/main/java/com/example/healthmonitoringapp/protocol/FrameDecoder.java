@@ -0,0 +1,63 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns a raw RFCOMM byte stream into primitive vitals samples.
+ *
+ * <p>Every frame carries the same payload, whatever the outer framing:
+ * <pre>
+ *   [type u8][sequence u16][body ...]
+ * </pre>
+ * A {@link #TYPE_SAMPLE} body is a list of signed 16-bit channel values (big endian).
+ * The payload is followed by a CRC-16/CCITT-FALSE over the payload, see {@link Crc16}.
+ * A device answers a command frame with a frame of type {@code command type | }{@link #RESPONSE_FLAG}
+ * carrying the command's sequence number.
+ *
+ * <p>Implementations are used from a single reader thread and must not allocate per frame.
+ */
+public interface FrameDecoder {
+    int TYPE_SAMPLE = 0x01;
+
+    /** Set in the type of a frame that answers the command with the same sequence number. */
+    int RESPONSE_FLAG = 0x80;
+
+    /** Upper bound on channels in a single sample frame. */
+    int MAX_CHANNELS = 16;
+
+    /**
+     * Decode every complete frame between {@code buffer.position()} and {@code buffer.limit()}.
+     * On return the position points at the first byte of an incomplete frame (if any), so the
+     * caller can {@link ByteBuffer#compact()} and keep reading into the same buffer.
+     *
+     * @param timestamp receive time (ms) of this chunk, passed to every sample decoded from it;
+     *                  see {@link com.example.healthmonitoringapp.stream.StreamContinuity#sampleTime}
+     */
+    void decode(ByteBuffer buffer, long timestamp, Callback callback);
+
+    /** Drop any partial frame state, e.g. after a reconnect. */
+    void reset();
+
+    /** Frames that passed the CRC check. */
+    long getFrameCount();
+
+    /** Frames rejected because of a CRC mismatch or an impossible length. */
+    long getErrorCount();
+
+    /**
+     * Receives decoded frames on the reader thread.
+     */
+    interface Callback {
+        /**
+         * @param values reused between calls; only the first {@code valueCount} entries are valid
+         *               and only for the duration of the call
+         */
+        void onSample(int sequence, long timestamp, int[] values, int valueCount);
+
+        /**
+         * Any non-sample frame. {@code body} is positioned over the frame body; read it during the call only.
+         */
+        default void onControlFrame(int type, int sequence, ByteBuffer body) {
+        }
+    }
+}
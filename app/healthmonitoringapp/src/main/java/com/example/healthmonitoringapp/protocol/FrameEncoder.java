@@ -0,0 +1,18 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Builds outgoing frames in the payload format described on {@link FrameDecoder}:
+ * {@code [type u8][sequence u16][body ...]} plus CRC-16, wrapped in the same framing the
+ * device uses for its replies. Pair each decoder with the matching encoder.
+ */
+public interface FrameEncoder {
+    /**
+     * Encode one frame.
+     *
+     * @param body remaining bytes are the frame body; its position is not changed
+     * @throws IllegalArgumentException if the body does not fit in one frame
+     */
+    Command encode(int type, int sequence, ByteBuffer body);
+}
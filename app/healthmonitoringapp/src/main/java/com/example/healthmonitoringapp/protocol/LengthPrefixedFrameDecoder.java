@@ -0,0 +1,48 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frames of the form {@code [0xA5][length u8][payload][crc16]}, where {@code length} is the payload size.
+ * On a bad length or CRC the decoder slides forward one byte and hunts for the next sync byte.
+ */
+public class LengthPrefixedFrameDecoder extends AbstractFrameDecoder {
+    public static final int SYNC = 0xA5;
+    private static final int PREFIX_SIZE = 2;
+
+    @Override
+    public void decode(ByteBuffer buffer, long timestamp, Callback callback) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+
+        while (position < limit) {
+            if ((buffer.get(position) & 0xFF) != SYNC) {
+                position++;
+                continue;
+            }
+            if (limit - position < PREFIX_SIZE) break;
+
+            int payloadLength = buffer.get(position + 1) & 0xFF;
+            if (payloadLength < HEADER_SIZE) {
+                recordError();
+                position++;
+                continue;
+            }
+
+            int frameLength = PREFIX_SIZE + payloadLength + CRC_SIZE;
+            if (limit - position < frameLength) break;
+
+            if (dispatchPayload(buffer, position + PREFIX_SIZE, payloadLength, timestamp, callback)) {
+                position += frameLength;
+            } else {
+                position++;
+            }
+        }
+        buffer.position(position);
+    }
+
+    @Override
+    public void reset() {
+        // Stateless between calls: partial frames stay in the caller's buffer.
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.healthmonitoringapp.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoder for {@link LengthPrefixedFrameDecoder} framing: {@code [0xA5][length u8][payload][crc16]}.
+ */
+public class LengthPrefixedFrameEncoder implements FrameEncoder {
+    private static final int PREFIX_SIZE = 2;
+    private static final int MAX_PAYLOAD_SIZE = 0xFF;
+
+    @Override
+    public Command encode(int type, int sequence, ByteBuffer body) {
+        int payloadLength = AbstractFrameDecoder.HEADER_SIZE + body.remaining();
+        if (payloadLength > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Frame body too large: " + body.remaining() + " bytes");
+        }
+
+        byte[] frame = new byte[PREFIX_SIZE + payloadLength + AbstractFrameDecoder.CRC_SIZE];
+        frame[0] = (byte) LengthPrefixedFrameDecoder.SYNC;
+        frame[1] = (byte) payloadLength;
+        frame[2] = (byte) type;
+        frame[3] = (byte) (sequence >>> 8);
+        frame[4] = (byte) sequence;
+        body.duplicate().get(frame, PREFIX_SIZE + AbstractFrameDecoder.HEADER_SIZE, body.remaining());
+
+        int crc = Crc16.compute(frame, PREFIX_SIZE, payloadLength);
+        frame[PREFIX_SIZE + payloadLength] = (byte) (crc >>> 8);
+        frame[PREFIX_SIZE + payloadLength + 1] = (byte) crc;
+        return Command.of(frame);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.healthmonitoringapp.services;
+
+import android.bluetooth.BluetoothDevice;
+
+/**
+ * A Bluetooth system broadcast, decoded once by {@link BluetoothEventDispatcher}.
+ */
+public final class BluetoothEvent {
+    /** RSSI of {@link Type#DEVICE_FOUND} events that did not carry one. */
+    public static final int RSSI_UNKNOWN = Short.MIN_VALUE;
+
+    public enum Type {
+        /** {@link BluetoothDevice#ACTION_FOUND}: classic discovery saw a device. */
+        DEVICE_FOUND,
+        /** {@link BluetoothDevice#ACTION_BOND_STATE_CHANGED}. */
+        BOND_STATE_CHANGED,
+        /** {@link android.bluetooth.BluetoothAdapter#ACTION_STATE_CHANGED}; the device is {@code null}. */
+        ADAPTER_STATE_CHANGED,
+        DISCOVERY_STARTED,
+        DISCOVERY_FINISHED,
+        ACL_CONNECTED,
+        ACL_DISCONNECTED
+    }
+
+    private final Type type;
+    private final BluetoothDevice device;
+    private final String name;
+    private final int rssi;
+    private final int state;
+    private final int previousState;
+
+    BluetoothEvent(Type type, BluetoothDevice device, String name, int rssi, int state, int previousState) {
+        this.type = type;
+        this.device = device;
+        this.name = name;
+        this.rssi = rssi;
+        this.state = state;
+        this.previousState = previousState;
+    }
+
+    public Type getType() { return type; }
+    /** Device the event is about; {@code null} for adapter and discovery events. */
+    public BluetoothDevice getDevice() { return device; }
+    public String getAddress() { return (device != null) ? device.getAddress() : null; }
+    /** Name reported with {@link Type#DEVICE_FOUND}, read from the intent without an IPC; may be {@code null}. */
+    public String getName() { return name; }
+    public int getRssi() { return rssi; }
+    /** New bond or adapter state, {@link BluetoothDevice#ERROR} for other events. */
+    public int getState() { return state; }
+    public int getPreviousState() { return previousState; }
+
+    @Override
+    public String toString() {
+        return type + ((device != null) ? " " + device.getAddress() : "") +
+                ((state != BluetoothDevice.ERROR) ? " " + previousState + "->" + state : "");
+    }
+}
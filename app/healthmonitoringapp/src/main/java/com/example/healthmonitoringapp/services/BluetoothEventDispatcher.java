@@ -0,0 +1,161 @@
+package com.example.healthmonitoringapp.services;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Receives the app's Bluetooth system broadcasts through one application-scoped receiver.
+ *
+ * <p>The receiver is registered once, on a background {@link HandlerThread}, so intents are
+ * decoded off the main thread and screens never register or unregister their own receivers.
+ * Each intent becomes one {@link BluetoothEvent}, fanned out to subscribers held in a
+ * copy-on-write list: publishing takes no lock and subscribing never blocks delivery.
+ */
+public final class BluetoothEventDispatcher {
+    private static final String TAG = "BluetoothEventDispatcher";
+    private static volatile BluetoothEventDispatcher instance;
+
+    /**
+     * Receives events on the thread given to {@link #subscribe(Listener, Handler)}, or on the
+     * dispatcher thread. Must not block.
+     */
+    public interface Listener {
+        void onBluetoothEvent(BluetoothEvent event);
+    }
+
+    private static final class Subscription {
+        final Listener listener;
+        final Handler handler;
+
+        Subscription(Listener listener, Handler handler) {
+            this.listener = listener;
+            this.handler = handler;
+        }
+    }
+
+    private final HandlerThread thread = new HandlerThread("BluetoothEvents");
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile long dispatchedCount;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            BluetoothEvent event = decode(intent);
+            if (event != null) {
+                dispatch(event);
+            }
+        }
+    };
+
+    public static BluetoothEventDispatcher getInstance(Context context) {
+        BluetoothEventDispatcher dispatcher = instance;
+        if (dispatcher == null) {
+            synchronized (BluetoothEventDispatcher.class) {
+                dispatcher = instance;
+                if (dispatcher == null) {
+                    dispatcher = new BluetoothEventDispatcher(context.getApplicationContext());
+                    instance = dispatcher;
+                }
+            }
+        }
+        return dispatcher;
+    }
+
+    private BluetoothEventDispatcher(Context context) {
+        thread.start();
+        IntentFilter filter = new IntentFilter(BluetoothDevice.ACTION_FOUND);
+        filter.addAction(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
+        filter.addAction(BluetoothAdapter.ACTION_STATE_CHANGED);
+        filter.addAction(BluetoothAdapter.ACTION_DISCOVERY_STARTED);
+        filter.addAction(BluetoothAdapter.ACTION_DISCOVERY_FINISHED);
+        filter.addAction(BluetoothDevice.ACTION_ACL_CONNECTED);
+        filter.addAction(BluetoothDevice.ACTION_ACL_DISCONNECTED);
+        context.registerReceiver(receiver, filter, null, new Handler(thread.getLooper()));
+    }
+
+    /**
+     * Deliver events on the dispatcher thread.
+     */
+    public void subscribe(Listener listener) {
+        subscribe(listener, null);
+    }
+
+    /**
+     * Deliver events on {@code handler}'s thread, e.g. the main thread for code that updates views
+     * or {@link com.example.healthmonitoringapp.model.Device} objects.
+     */
+    public void subscribe(Listener listener, Handler handler) {
+        subscriptions.add(new Subscription(listener, handler));
+    }
+
+    public void unsubscribe(Listener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /** Events decoded and fanned out since start. */
+    public long getDispatchedCount() { return dispatchedCount; }
+
+    /** Dispatcher thread. */
+    private void dispatch(BluetoothEvent event) {
+        dispatchedCount++;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.handler == null) {
+                try {
+                    subscription.listener.onBluetoothEvent(event);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Listener failed on " + event, e);
+                }
+            } else {
+                subscription.handler.post(() -> subscription.listener.onBluetoothEvent(event));
+            }
+        }
+    }
+
+    private static BluetoothEvent decode(Intent intent) {
+        String action = intent.getAction();
+        if (action == null) return null;
+        BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+        switch (action) {
+            case BluetoothDevice.ACTION_FOUND:
+                return new BluetoothEvent(BluetoothEvent.Type.DEVICE_FOUND, device,
+                        intent.getStringExtra(BluetoothDevice.EXTRA_NAME),
+                        intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, (short) BluetoothEvent.RSSI_UNKNOWN),
+                        BluetoothDevice.ERROR, BluetoothDevice.ERROR);
+            case BluetoothDevice.ACTION_BOND_STATE_CHANGED:
+                return new BluetoothEvent(BluetoothEvent.Type.BOND_STATE_CHANGED, device, null, BluetoothEvent.RSSI_UNKNOWN,
+                        intent.getIntExtra(BluetoothDevice.EXTRA_BOND_STATE, BluetoothDevice.ERROR),
+                        intent.getIntExtra(BluetoothDevice.EXTRA_PREVIOUS_BOND_STATE, BluetoothDevice.ERROR));
+            case BluetoothAdapter.ACTION_STATE_CHANGED:
+                return new BluetoothEvent(BluetoothEvent.Type.ADAPTER_STATE_CHANGED, null, null, BluetoothEvent.RSSI_UNKNOWN,
+                        intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, BluetoothAdapter.ERROR),
+                        intent.getIntExtra(BluetoothAdapter.EXTRA_PREVIOUS_STATE, BluetoothAdapter.ERROR));
+            case BluetoothAdapter.ACTION_DISCOVERY_STARTED:
+                return simple(BluetoothEvent.Type.DISCOVERY_STARTED, null);
+            case BluetoothAdapter.ACTION_DISCOVERY_FINISHED:
+                return simple(BluetoothEvent.Type.DISCOVERY_FINISHED, null);
+            case BluetoothDevice.ACTION_ACL_CONNECTED:
+                return simple(BluetoothEvent.Type.ACL_CONNECTED, device);
+            case BluetoothDevice.ACTION_ACL_DISCONNECTED:
+                return simple(BluetoothEvent.Type.ACL_DISCONNECTED, device);
+            default:
+                return null;
+        }
+    }
+
+    private static BluetoothEvent simple(BluetoothEvent.Type type, BluetoothDevice device) {
+        return new BluetoothEvent(type, device, null, BluetoothEvent.RSSI_UNKNOWN, BluetoothDevice.ERROR, BluetoothDevice.ERROR);
+    }
+}
@@ -12,33 +12,52 @@ import android.bluetooth.le.ScanResult;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Build;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.healthmonitoringapp.model.Device;
+import com.example.healthmonitoringapp.utils.BondedDeviceCache;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class BluetoothScanService {
     private static final String TAG = "BluetoothScanService";
     private final Context context;
     private final Activity activity;
-    private final List<Device> deviceList;
+    private final ScanIngestor scanIngestor;
     private final BluetoothAdapter bluetoothAdapter;
     private BluetoothLeScanner bluetoothLeScanner;
     private ScanCallback scanCallback;
+    /** BLUETOOTH_CONNECT state, checked once per scan instead of once per result. */
+    private volatile boolean canReadDeviceInfo;
+    private ScanConfig scanConfig = ScanConfig.healthDevices();
+    private boolean batching;
+    private boolean discoveryListenerSubscribed;
+
+    private final BluetoothEventDispatcher.Listener discoveryListener = this::onDiscoveryEvent;
+
+    // Current scan session
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
 
     private static final int REQUEST_BLUETOOTH_PERMISSIONS = 101;
 
     public BluetoothScanService(Context context, Activity activity, List<Device> deviceList) {
+        this(context, activity, deviceList, null);
+    }
+
+    /**
+     * @param listener told on the main thread, at most once per frame, which devices were added or changed
+     */
+    public BluetoothScanService(Context context, Activity activity, List<Device> deviceList, ScanIngestor.Listener listener) {
         this.context = context;
         this.activity = activity;
-        this.deviceList = deviceList;
+        this.scanIngestor = new ScanIngestor(deviceList, listener, ScanIngestor.DEFAULT_COALESCE_WINDOW_MS);
 
         BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         this.bluetoothAdapter = (bluetoothManager != null) ? bluetoothManager.getAdapter() : null;
@@ -48,6 +67,17 @@ public class BluetoothScanService {
         }
     }
 
+    /**
+     * ✅ Filters, scan mode and batching for BLE scans; takes effect on the next {@link #startBluetoothScan()}
+     */
+    public void setScanConfig(ScanConfig scanConfig) {
+        this.scanConfig = scanConfig;
+    }
+
+    public ScanConfig getScanConfig() {
+        return scanConfig;
+    }
+
     /**
      * ✅ Start Bluetooth Device Discovery (Supports both Classic & BLE)
      */
@@ -66,29 +96,59 @@ public class BluetoothScanService {
             }
         }
 
+        canReadDeviceInfo = Build.VERSION.SDK_INT < Build.VERSION_CODES.S ||
+                ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED;
+        if (!canReadDeviceInfo) {
+            Log.w(TAG, "Missing BLUETOOTH_CONNECT permission, cannot access device name & address.");
+        }
+        receivedCount.set(0);
+        acceptedCount.set(0);
+        batchCount.set(0);
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && bluetoothLeScanner != null) {
             // ✅ Start BLE Scanning
             scanCallback = new ScanCallback() {
                 @Override
                 public void onScanResult(int callbackType, ScanResult result) {
-                    BluetoothDevice device = result.getDevice();
-                    if (device.getName() == null || device.getAddress() == null) return; // Ignore unnamed devices
+                    receivedCount.incrementAndGet();
+                    handleScanResult(result);
+                }
+
+                @Override
+                public void onBatchScanResults(List<ScanResult> results) {
+                    batchCount.incrementAndGet();
+                    receivedCount.addAndGet(results.size());
+                    for (ScanResult result : results) {
+                        handleScanResult(result);
+                    }
+                }
 
-                    Log.d(TAG, "BLE Device Found: " + device.getName() + " [" + device.getAddress() + "]");
-                    updateDeviceList(device, "BLE");
+                @Override
+                public void onScanFailed(int errorCode) {
+                    Log.e(TAG, "Bluetooth LE scan failed: " + errorCode);
                 }
             };
 
-            bluetoothLeScanner.startScan(scanCallback);
-            Log.d(TAG, "Bluetooth LE scan started...");
+            // ✅ Let the controller filter and queue results so the CPU sleeps between batches
+            ScanConfig config = scanConfig;
+            batching = config.getReportDelayMillis() > 0 && bluetoothAdapter.isOffloadedScanBatchingSupported();
+            if (config.isFiltered() && !bluetoothAdapter.isOffloadedFilteringSupported()) {
+                Log.w(TAG, "Scan filters are not offloaded on this controller; filtering runs on the CPU");
+            }
+            bluetoothLeScanner.startScan(config.buildFilters(), config.buildSettings(batching), scanCallback);
+            Log.d(TAG, "Bluetooth LE scan started (mode " + config.getScanMode() + ", batching " + batching + ")...");
         } else {
             // ✅ Start Classic Bluetooth Discovery
             Log.d(TAG, "Starting Classic Bluetooth discovery...");
+            if (!discoveryListenerSubscribed) {
+                BluetoothEventDispatcher.getInstance(context).subscribe(discoveryListener);
+                discoveryListenerSubscribed = true;
+            }
             bluetoothAdapter.startDiscovery();
 
-            Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
+            Set<BluetoothDevice> pairedDevices = BondedDeviceCache.getInstance(context).getBondedDevices();
             for (BluetoothDevice device : pairedDevices) {
-                updateDeviceList(device, "Classic Bluetooth");
+                updateDeviceList(device, ScanIngestor.RSSI_UNKNOWN, "Classic Bluetooth");
             }
         }
     }
@@ -100,40 +160,70 @@ public class BluetoothScanService {
     public void stopBluetoothScan() {
         if (bluetoothAdapter != null && bluetoothAdapter.isEnabled()) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && scanCallback != null && bluetoothLeScanner != null) {
+                if (batching) {
+                    // ✅ Deliver whatever the controller still holds before stopping
+                    bluetoothLeScanner.flushPendingScanResults(scanCallback);
+                }
                 bluetoothLeScanner.stopScan(scanCallback);
-                Log.d(TAG, "Bluetooth LE scan stopped.");
+                Log.d(TAG, "Bluetooth LE scan stopped. Received " + receivedCount.get()
+                        + " results in " + batchCount.get() + " batches, accepted " + acceptedCount.get());
             }
             bluetoothAdapter.cancelDiscovery(); // ✅ Stop Classic Bluetooth Discovery
         }
     }
 
     /**
-     * ✅ Add device to list safely (on UI thread)
+     * ✅ Accept named BLE results; shared by the single and batched delivery paths
      */
-    private void updateDeviceList(BluetoothDevice device, String type) {
-        new Handler(Looper.getMainLooper()).post(() -> {
-            String deviceName = "Unknown Device";
-            String deviceAddress = "00:00:00:00:00:00";
-
-            // ✅ Check BLUETOOTH_CONNECT permission before accessing device name & address
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S ||
-                    ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) == PackageManager.PERMISSION_GRANTED) {
-                if (device.getName() != null) {
-                    deviceName = device.getName();
-                }
-                deviceAddress = device.getAddress();
-            } else {
-                Log.w(TAG, "Missing BLUETOOTH_CONNECT permission, cannot access device name & address.");
-            }
+    @SuppressLint("MissingPermission")
+    private void handleScanResult(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        if (device.getName() == null || device.getAddress() == null) return; // Ignore unnamed devices
 
-            // ✅ Creating Device object safely
-            Device newDevice = new Device(deviceName, deviceAddress, false, -100, false, type, "Unknown", System.currentTimeMillis());
+        if (updateDeviceList(device, result.getRssi(), "BLE")) {
+            acceptedCount.incrementAndGet();
+        }
+    }
 
-            // ✅ Add to list if it's not already present
-            if (!deviceList.contains(newDevice)) {
-                deviceList.add(newDevice);
-            }
-        });
+    /**
+     * ✅ Hand the result to the ingestor; the device list is updated in batches on the UI thread
+     */
+    @SuppressLint("MissingPermission")
+    private boolean updateDeviceList(BluetoothDevice device, int rssi, String type) {
+        if (!canReadDeviceInfo) return false;
+
+        String deviceName = (device.getName() != null) ? device.getName() : "Unknown Device";
+        scanIngestor.ingest(device.getAddress(), deviceName, rssi, type);
+        return true;
+    }
+
+    /**
+     * ✅ Dispatcher thread: classic discovery results take the same ingest path as BLE results
+     */
+    private void onDiscoveryEvent(BluetoothEvent event) {
+        if (event.getType() != BluetoothEvent.Type.DEVICE_FOUND || event.getAddress() == null || !canReadDeviceInfo) return;
+        int rssi = (event.getRssi() != BluetoothEvent.RSSI_UNKNOWN) ? event.getRssi() : ScanIngestor.RSSI_UNKNOWN;
+        String deviceName = (event.getName() != null) ? event.getName() : "Unknown Device";
+        scanIngestor.ingest(event.getAddress(), deviceName, rssi, "Classic Bluetooth");
+    }
+
+    /** ✅ Scan results delivered by the controller in the current session, single or batched */
+    public long getReceivedCount() { return receivedCount.get(); }
+    /** ✅ Results of the current session that were handed to the device list */
+    public long getAcceptedCount() { return acceptedCount.get(); }
+    /** ✅ {@code onBatchScanResults} callbacks in the current session */
+    public long getBatchCount() { return batchCount.get(); }
+
+    /**
+     * ✅ Stop the ingest thread; call when the owning screen is destroyed
+     */
+    public void release() {
+        stopBluetoothScan();
+        if (discoveryListenerSubscribed) {
+            BluetoothEventDispatcher.getInstance(context).unsubscribe(discoveryListener);
+            discoveryListenerSubscribed = false;
+        }
+        scanIngestor.release();
     }
 
 }
@@ -18,25 +18,150 @@ import android.util.Log;
 
 import androidx.core.content.ContextCompat;
 
-import java.io.BufferedReader;
+import com.example.healthmonitoringapp.processing.AlertEngine;
+import com.example.healthmonitoringapp.processing.AlertRule;
+import com.example.healthmonitoringapp.processing.VitalsProcessor;
+import com.example.healthmonitoringapp.protocol.Command;
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.protocol.FrameEncoder;
+import com.example.healthmonitoringapp.protocol.LengthPrefixedFrameEncoder;
+import com.example.healthmonitoringapp.protocol.LengthPrefixedFrameDecoder;
+import com.example.healthmonitoringapp.storage.RollupStage;
+import com.example.healthmonitoringapp.storage.SampleJournal;
+import com.example.healthmonitoringapp.storage.TimeSeriesStore;
+import com.example.healthmonitoringapp.stream.SampleBatch;
+import com.example.healthmonitoringapp.stream.SampleBatcher;
+import com.example.healthmonitoringapp.stream.SampleDispatcher;
+import com.example.healthmonitoringapp.stream.SampleSink;
+import com.example.healthmonitoringapp.stream.StreamContinuity;
+
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 public class BluetoothService extends Service {
     private static final String TAG = "BluetoothService";
-    private static final UUID SPP_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB"); // Standard UUID for SPP
+    /** Timeout meaning "wait as long as the operation itself takes". */
+    public static final long NO_TIMEOUT = 0;
+    /** Executor that runs dependent stages on the thread that completed the operation. */
+    public static final Executor DIRECT = Runnable::run;
 
     private final IBinder binder = new LocalBinder();
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
-    private InputStream inputStream;
-    private OutputStream outputStream;
-    private boolean isConnected = false;
 
-    private BluetoothDataListener dataListener;
+    /** Open sessions keyed by {@link DeviceSession#getAddress()}. */
+    private final Map<String, DeviceSession> sessions = new ConcurrentHashMap<>();
+    /** Sequence/gap bookkeeping per address, kept across reconnects. */
+    private final Map<String, StreamContinuity> continuities = new ConcurrentHashMap<>();
+    private ConnectionEngine connectionEngine;
+    private ReconnectSupervisor reconnectSupervisor;
+    private volatile boolean autoReconnect = true;
+    private volatile ReconnectListener reconnectListener;
+
+    private volatile BluetoothDataListener dataListener;
+    private volatile SampleBatcher sampleBatcher;
+    private volatile Supplier<FrameDecoder> frameDecoderFactory = LengthPrefixedFrameDecoder::new;
+    private volatile FrameEncoder frameEncoder = new LengthPrefixedFrameEncoder();
+    private SampleDispatcher sampleDispatcher;
+    private TimeSeriesStore timeSeriesStore;
+    private volatile SampleJournal sampleJournal;
+    private volatile boolean destroyed;
+    /** Completes once the journal (or the bare store) is a sink; sessions start only after that. */
+    private final CompletableFuture<Void> storageReady = new CompletableFuture<>();
+    private RollupStage rollupStage;
+    private VitalsProcessor vitalsProcessor;
+    private AlertEngine alertEngine;
+
+    /** Dispatch thread: forward to the main-thread listener, batched or per sample. */
+    private final SampleSink listenerSink = new SampleSink() {
+        @Override
+        public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+            SampleBatcher batcher = sampleBatcher;
+            if (batcher != null) {
+                batcher.add(address, sequence, timestamp, values, valueCount);
+                return;
+            }
+
+            BluetoothDataListener listener = dataListener;
+            if (listener == null) return;
+
+            int[] sample = new int[valueCount];
+            System.arraycopy(values, 0, sample, 0, valueCount);
+            mainHandler.post(() -> listener.onSampleReceived(address, sequence, timestamp, sample));
+        }
+    };
+
+    private final ConnectionEngine.Host engineHost = new ConnectionEngine.Host() {
+        @Override
+        public DeviceSession getOpenSession(String address) {
+            DeviceSession session = sessions.get(address);
+            return (session != null && session.isOpen()) ? session : null;
+        }
+
+        @Override
+        public DeviceSession openSession(BluetoothDevice device, BluetoothSocket socket) throws IOException {
+            awaitStorage();
+            String address = device.getAddress();
+            String name = (device.getName() != null) ? device.getName() : "Unknown Device";
+            StreamContinuity continuity = continuities.computeIfAbsent(address, StreamContinuity::new);
+            DeviceSession session = new DeviceSession(device, name, socket,
+                    frameDecoderFactory.get(), frameEncoder, continuity, sampleDispatcher, backgroundHandler, sessionCloseListener);
+            sessions.put(address, session);
+            session.start();
+            Log.d(TAG, "Connected to " + name + " [" + address + "], " + sessions.size() + " active");
+            return session;
+        }
+    };
+
+    private final DeviceSession.CloseListener sessionCloseListener = (session, cause) -> {
+        sessions.remove(session.getAddress(), session);
+        Log.d(TAG, "Disconnected from " + session.getAddress() + (cause != null ? ": " + cause.getMessage() : ""));
+
+        // Only an unexpected drop is recovered; an explicit close() has no cause
+        if (cause != null && autoReconnect) {
+            reconnectSupervisor.onConnectionLost(session.getDevice());
+        }
+    };
+
+    private final ReconnectSupervisor.Listener supervisorListener = new ReconnectSupervisor.Listener() {
+        @Override
+        public void onReconnecting(String address, int attempt, long delayMillis) {
+            ReconnectListener listener = reconnectListener;
+            if (listener != null) {
+                mainHandler.post(() -> listener.onReconnecting(address, attempt, delayMillis));
+            }
+        }
+
+        @Override
+        public void onReconnected(DeviceSession session, long latencyMillis, int attempts) {
+            session.getContinuity().recordReconnect(latencyMillis);
+            ReconnectListener listener = reconnectListener;
+            if (listener != null) {
+                mainHandler.post(() -> listener.onReconnected(session.getAddress(), latencyMillis, session.getContinuity()));
+            }
+        }
+
+        @Override
+        public void onReconnectFailed(String address, int attempts) {
+            ReconnectListener listener = reconnectListener;
+            if (listener != null) {
+                mainHandler.post(() -> listener.onReconnectFailed(address, attempts));
+            }
+        }
+    };
+
     private HandlerThread handlerThread;
     private Handler backgroundHandler;
     private Handler mainHandler;
@@ -55,6 +180,24 @@ public class BluetoothService extends Service {
         handlerThread.start();
         backgroundHandler = new Handler(handlerThread.getLooper());
         mainHandler = new Handler(Looper.getMainLooper());
+
+        sampleDispatcher = new SampleDispatcher("SampleDispatcher");
+        sampleDispatcher.addSink(listenerSink);
+        timeSeriesStore = new TimeSeriesStore(new File(getNoBackupFilesDir(), "vitals"));
+        rollupStage = new RollupStage(timeSeriesStore, new File(getNoBackupFilesDir(), "rollups"));
+        sampleDispatcher.addSink(rollupStage);
+        vitalsProcessor = new VitalsProcessor(mainHandler);
+        sampleDispatcher.addSink(vitalsProcessor);
+        alertEngine = new AlertEngine(mainHandler);
+        alertEngine.setRules(AlertRule.defaults());
+        sampleDispatcher.addSink(alertEngine);
+        vitalsProcessor.addMetricSink(alertEngine);
+        sampleDispatcher.start();
+        // Crash recovery replays the journal, so open it off the main thread; sessions wait for it in openSession
+        backgroundHandler.post(this::openJournal);
+
+        connectionEngine = new ConnectionEngine(bluetoothAdapter, engineHost);
+        reconnectSupervisor = new ReconnectSupervisor(connectionEngine, supervisorListener);
     }
 
     @Override
@@ -63,135 +206,526 @@ public class BluetoothService extends Service {
     }
 
     /**
-     * Interface for Bluetooth data callbacks.
+     * Interface for Bluetooth data callbacks, delivered on the main thread.
+     * Implement {@link #onSampleReceived} for per-sample delivery or {@link #onSamplesReceived}
+     * when registered with {@link #setBluetoothDataListener(BluetoothDataListener, int, long)}.
      */
     public interface BluetoothDataListener {
-        void onDataReceived(String data);
+        default void onSampleReceived(String address, long sequence, long timestamp, int[] values) {
+        }
+
+        /**
+         * One chunk of samples, possibly from several devices. The batch is recycled once this returns.
+         */
+        default void onSamplesReceived(SampleBatch batch) {
+        }
     }
 
+    /**
+     * Deliver every sample to the main thread as it arrives.
+     */
     public void setBluetoothDataListener(BluetoothDataListener listener) {
+        replaceBatcher(null);
         this.dataListener = listener;
     }
 
     /**
-     * Connect to a Bluetooth device.
+     * Deliver samples to the main thread in batches of up to {@code maxBatchSize},
+     * flushed at the latest {@code maxLatencyMillis} after the first queued sample
+     * (e.g. 64 samples / 16 ms to wake the UI at most once per frame).
      */
-    public void connectToDevice(Context context, BluetoothDevice device, ConnectionCallback callback) {
-        if (isConnected) {
-            Log.d(TAG, "Already connected.");
-            callback.onFailure("Already connected to a device.");
-            return;
+    public void setBluetoothDataListener(BluetoothDataListener listener, int maxBatchSize, long maxLatencyMillis) {
+        this.dataListener = listener;
+        replaceBatcher(listener == null ? null
+                : new SampleBatcher(mainHandler, listener::onSamplesReceived, maxBatchSize, maxLatencyMillis));
+    }
+
+    /**
+     * Interface for automatic reconnect progress, delivered on the main thread.
+     */
+    public interface ReconnectListener {
+        void onReconnecting(String address, int attempt, long delayMillis);
+
+        /**
+         * The link is back. {@code continuity} carries the reconnect latency and, once the first
+         * sample arrives, the size of the gap the new session was stitched over.
+         */
+        void onReconnected(String address, long latencyMillis, StreamContinuity continuity);
+
+        void onReconnectFailed(String address, int attempts);
+    }
+
+    public void setReconnectListener(ReconnectListener listener) {
+        this.reconnectListener = listener;
+    }
+
+    /**
+     * Reconnect automatically (with backoff) when a link drops. Enabled by default.
+     */
+    public void setAutoReconnect(boolean enabled) {
+        this.autoReconnect = enabled;
+        if (!enabled) {
+            for (String address : continuities.keySet()) {
+                reconnectSupervisor.cancel(address);
+            }
         }
+    }
 
-        if (bluetoothAdapter == null) {
-            Log.e(TAG, "Bluetooth not supported.");
-            callback.onFailure("Bluetooth not supported on this device.");
+    /**
+     * Sequence, gap and reconnect metrics for {@code address}, or {@code null} if it never connected.
+     */
+    public StreamContinuity getStreamContinuity(String address) {
+        return continuities.get(address);
+    }
+
+    /**
+     * Register an additional consumer (chart, storage, processing). Sinks see the merged stream
+     * of every connected device on the sample dispatch thread, decoupled from the socket readers.
+     */
+    public void addSampleSink(SampleSink sink) {
+        sampleDispatcher.addSink(sink);
+    }
+
+    public void removeSampleSink(SampleSink sink) {
+        sampleDispatcher.removeSink(sink);
+    }
+
+    /** Background thread. */
+    private void openJournal() {
+        if (destroyed) {
+            // Nothing will be recorded any more; the journal is replayed on the next start instead
+            storageReady.complete(null);
             return;
         }
+        try {
+            SampleJournal journal = new SampleJournal(new File(getNoBackupFilesDir(), "journal"), timeSeriesStore);
+            sampleDispatcher.addSink(journal);
+            sampleJournal = journal;
+        } catch (IOException e) {
+            // Still persist, just without crash protection for the open blocks
+            Log.e(TAG, "Cannot open sample journal", e);
+            sampleDispatcher.addSink(timeSeriesStore);
+        } finally {
+            storageReady.complete(null);
+        }
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S &&
-                ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-            Log.e(TAG, "Missing BLUETOOTH_CONNECT permission.");
-            callback.onFailure("Missing BLUETOOTH_CONNECT permission.");
-            return;
+    /**
+     * Connect thread: hold a new session back until storage is a sink, so its first samples are
+     * persisted too. Only waits right after the service starts, while the journal replays.
+     */
+    private void awaitStorage() throws IOException {
+        try {
+            storageReady.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for sample storage", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Sample storage failed to open", e.getCause());
         }
+    }
 
-        backgroundHandler.post(() -> {
-            try {
-                bluetoothSocket = device.createRfcommSocketToServiceRecord(SPP_UUID);
-                bluetoothSocket.connect();
-                inputStream = bluetoothSocket.getInputStream();
-                outputStream = bluetoothSocket.getOutputStream();
-                isConnected = true;
-
-                Log.d(TAG, "Connected to " + (device.getName() != null ? device.getName() : "Unknown Device"));
-                mainHandler.post(callback::onSuccess);
-
-                readDataFromDevice();
-            } catch (IOException e) {
-                Log.e(TAG, "Error connecting to device", e);
-                mainHandler.post(() -> callback.onFailure("Error connecting to device: " + e.getMessage()));
-                closeConnection();
-            }
-        });
+    /**
+     * Commit latency, batch size and recovery stats of the write-ahead journal, or {@code null}
+     * while it is still opening.
+     */
+    public SampleJournal getSampleJournal() {
+        return sampleJournal;
     }
 
     /**
-     * Read data from the connected Bluetooth device.
+     * Receive heart rate, RMSSD and SpO2 per device on the main thread, about once a second.
      */
-    private void readDataFromDevice() {
-        backgroundHandler.post(() -> {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                while (isConnected) {
-                    String receivedData = reader.readLine();
-                    Log.d(TAG, "Received: " + receivedData);
+    public void setVitalsListener(VitalsProcessor.Listener listener) {
+        vitalsProcessor.setListener(listener);
+    }
+
+    /**
+     * Tell the vitals stage which channels carry ECG and red/IR PPG, and the sensor sample rate.
+     */
+    public void setVitalsChannelLayout(VitalsProcessor.ChannelLayout layout) {
+        vitalsProcessor.setChannelLayout(layout);
+    }
+
+    public VitalsProcessor getVitalsProcessor() {
+        return vitalsProcessor;
+    }
+
+    /**
+     * Receive alert transitions (raised / cleared) on the main thread.
+     */
+    public void setAlertListener(AlertEngine.Listener listener) {
+        alertEngine.setListener(listener);
+    }
+
+    /**
+     * Replace the alert rules; {@link AlertRule#defaults()} are active until then.
+     */
+    public void setAlertRules(List<AlertRule> rules) {
+        alertEngine.setRules(rules);
+    }
+
+    public AlertEngine getAlertEngine() {
+        return alertEngine;
+    }
+
+    /**
+     * 1 s / 1 min / 1 h aggregates for history charts; see {@link RollupStage#query}.
+     */
+    public RollupStage getRollupStage() {
+        return rollupStage;
+    }
+
+    /**
+     * Persistent history of every received sample. Query it off the main thread.
+     */
+    public TimeSeriesStore getTimeSeriesStore() {
+        return timeSeriesStore;
+    }
+
+    private void replaceBatcher(SampleBatcher batcher) {
+        SampleBatcher previous = sampleBatcher;
+        sampleBatcher = batcher;
+        if (previous != null) {
+            previous.flush();
+        }
+    }
+
+    /**
+     * Select the wire framing used by the sensors. Each session gets its own decoder instance;
+     * takes effect on the next connection.
+     */
+    public void setFrameDecoderFactory(Supplier<FrameDecoder> factory) {
+        this.frameDecoderFactory = (factory != null) ? factory : LengthPrefixedFrameDecoder::new;
+    }
 
-                    if (dataListener != null) {
-                        mainHandler.post(() -> dataListener.onDataReceived(receivedData));
+    /**
+     * Select the framing for outgoing request frames; must match the decoder factory.
+     * Takes effect on the next connection.
+     */
+    public void setFrameEncoder(FrameEncoder encoder) {
+        this.frameEncoder = (encoder != null) ? encoder : new LengthPrefixedFrameEncoder();
+    }
+
+    /**
+     * Connect to the device at {@code address}; see {@link #connect(String, long, Executor)}.
+     */
+    public CompletableFuture<DeviceSession> connect(String address) {
+        return connect(address, NO_TIMEOUT, DIRECT);
+    }
+
+    /**
+     * Connect to the device at {@code address} off the main thread. Several devices can be
+     * connected at the same time; an open session is reused, and a request made while another
+     * attempt for the same address is running joins that attempt.
+     *
+     * <p>A timeout only fails the returned future with a {@link TimeoutException}; the socket
+     * attempt itself keeps going, since other callers may be waiting on it.
+     *
+     * @param timeoutMillis how long to wait, or {@link #NO_TIMEOUT}
+     * @param executor where dependent stages run, e.g. {@link #getMainExecutor()} or {@link #DIRECT}
+     */
+    public CompletableFuture<DeviceSession> connect(String address, long timeoutMillis, Executor executor) {
+        if (bluetoothAdapter == null) {
+            return failed(new IllegalStateException("Bluetooth not supported on this device."), executor);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S &&
+                ContextCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
+            return failed(new SecurityException("Missing BLUETOOTH_CONNECT permission."), executor);
+        }
+        if (!BluetoothAdapter.checkBluetoothAddress(address)) {
+            return failed(new IllegalArgumentException("Invalid Bluetooth address: " + address), executor);
+        }
+        return complete(connectionEngine.connect(bluetoothAdapter.getRemoteDevice(address)),
+                "Connect to " + address, timeoutMillis, executor);
+    }
+
+    /**
+     * Connect to every address at once, e.g. all paired sensors at startup. Attempts run in
+     * parallel, bounded by the connection pool; one failure does not cancel the others.
+     *
+     * @return completes once every attempt has settled, with the sessions that connected by address
+     */
+    public CompletableFuture<Map<String, DeviceSession>> connectAll(Collection<String> addresses, long timeoutMillis, Executor executor) {
+        Map<String, CompletableFuture<DeviceSession>> attempts = new LinkedHashMap<>();
+        for (String address : addresses) {
+            attempts.computeIfAbsent(address, a -> connect(a, timeoutMillis, DIRECT));
+        }
+        CompletableFuture<Map<String, DeviceSession>> all = CompletableFuture
+                .allOf(attempts.values().stream()
+                        .map(attempt -> attempt.exceptionally(error -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<String, DeviceSession> connected = new LinkedHashMap<>();
+                    for (Map.Entry<String, CompletableFuture<DeviceSession>> attempt : attempts.entrySet()) {
+                        DeviceSession session = attempt.getValue().exceptionally(error -> null).join();
+                        if (session != null) connected.put(attempt.getKey(), session);
                     }
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Error reading data", e);
-                closeConnection();
+                    Log.d(TAG, "Connected " + connected.size() + " of " + attempts.size() + " devices");
+                    return connected;
+                });
+        return deliverOn(all, executor);
+    }
+
+    /**
+     * Connect to a Bluetooth device, reporting the outcome on the main thread.
+     */
+    public void connectToDevice(Context context, BluetoothDevice device, ConnectionCallback callback) {
+        connect(device.getAddress(), NO_TIMEOUT, getMainExecutor()).whenComplete((session, error) -> {
+            if (error == null) {
+                callback.onSuccess();
+            } else {
+                callback.onFailure("Error connecting to device: " + unwrap(error).getMessage());
             }
         });
     }
 
     /**
-     * Send data to the connected Bluetooth device.
+     * Whether a connect attempt for {@code address} is currently running.
+     */
+    public boolean isConnecting(String address) {
+        return connectionEngine.isConnecting(address);
+    }
+
+    /**
+     * Send to the only connected device; see {@link #send(String, byte[], long, Executor)}.
+     */
+    public CompletableFuture<Void> send(byte[] data) {
+        if (sessions.size() != 1) {
+            return failed(new IllegalStateException(sessions.isEmpty()
+                    ? "No device connected." : "Multiple devices connected; specify an address."), DIRECT);
+        }
+        return send(sessions.keySet().iterator().next(), data, NO_TIMEOUT, DIRECT);
+    }
+
+    /**
+     * Send {@code data} to the device at {@code address}, without copying it; see
+     * {@link #send(String, Command, long, Executor)}.
+     */
+    public CompletableFuture<Void> send(String address, byte[] data, long timeoutMillis, Executor executor) {
+        return send(address, Command.of(data), timeoutMillis, executor);
+    }
+
+    /**
+     * Send the remaining bytes of {@code data}, without copying them. Do not modify them until
+     * the future completes.
+     */
+    public CompletableFuture<Void> send(String address, ByteBuffer data, long timeoutMillis, Executor executor) {
+        return send(address, Command.of(data), timeoutMillis, executor);
+    }
+
+    /**
+     * Queue {@code command} on the session's writer. Commands queued while a write is on the
+     * socket go out together in the next one; a full queue fails the future with an {@link IOException}.
+     *
+     * @param timeoutMillis how long to wait, or {@link #NO_TIMEOUT}; a timed-out command may still go out
+     * @param executor where dependent stages run
+     */
+    public CompletableFuture<Void> send(String address, Command command, long timeoutMillis, Executor executor) {
+        DeviceSession session = sessions.get(address);
+        if (session == null || !session.isOpen()) {
+            return failed(new IllegalStateException("No device connected."), executor);
+        }
+        return complete(session.send(command), "Send to " + address, timeoutMillis, executor);
+    }
+
+    /**
+     * Send a burst of commands, e.g. one per channel when configuring a device, as one unit:
+     * in order, in as few socket writes as the writer buffer allows.
+     */
+    public CompletableFuture<Void> sendAll(String address, List<Command> commands, long timeoutMillis, Executor executor) {
+        DeviceSession session = sessions.get(address);
+        if (session == null || !session.isOpen()) {
+            return failed(new IllegalStateException("No device connected."), executor);
+        }
+        return complete(session.sendAll(commands), "Send " + commands.size() + " commands to " + address, timeoutMillis, executor);
+    }
+
+    /**
+     * Send command {@code type} with {@code body} to the device at {@code address} and wait for its
+     * response. Any number of requests, to one device or many, can be in flight at once.
+     *
+     * @param timeoutMillis deadline for the response, {@link RequestMultiplexer#DEFAULT_TIMEOUT_MS} if not positive
+     * @param executor where dependent stages run
+     */
+    public CompletableFuture<RequestMultiplexer.Response> request(String address, int type, ByteBuffer body,
+                                                                  long timeoutMillis, Executor executor) {
+        DeviceSession session = sessions.get(address);
+        if (session == null || !session.isOpen()) {
+            return failed(new IllegalStateException("No device connected."), executor);
+        }
+        return deliverOn(session.getRequestMultiplexer().request(type, body, timeoutMillis), executor);
+    }
+
+    /**
+     * Send data to the only connected device. Use {@link #sendData(String, String, DataSendCallback)}
+     * when more than one device is connected.
      */
     public void sendData(String data, DataSendCallback callback) {
-        if (!isConnected || outputStream == null) {
-            Log.e(TAG, "Not connected to a device.");
-            callback.onFailure("No device connected.");
+        if (sessions.size() != 1) {
+            Log.e(TAG, "Expected exactly one connected device, found " + sessions.size());
+            callback.onFailure(sessions.isEmpty() ? "No device connected." : "Multiple devices connected; specify an address.");
             return;
         }
+        sendData(sessions.keySet().iterator().next(), data, callback);
+    }
 
-        backgroundHandler.post(() -> {
-            try {
-                outputStream.write(data.getBytes());
-                Log.d(TAG, "Sent: " + data);
-                mainHandler.post(callback::onSuccess);
-            } catch (IOException e) {
-                Log.e(TAG, "Error sending data", e);
-                mainHandler.post(() -> callback.onFailure("Error sending data: " + e.getMessage()));
+    /**
+     * Send {@code data} as UTF-8 to the device at {@code address}, reporting the outcome on the main thread.
+     */
+    public void sendData(String address, String data, DataSendCallback callback) {
+        send(address, Command.text(data), NO_TIMEOUT, getMainExecutor()).whenComplete((ignored, error) -> {
+            if (error == null) {
+                Log.d(TAG, "Sent to " + address + ": " + data);
+                callback.onSuccess();
+            } else {
+                Throwable cause = unwrap(error);
+                callback.onFailure((cause instanceof IOException ? "Error sending data: " : "") + cause.getMessage());
             }
         });
     }
 
     /**
-     * Disconnect from the Bluetooth device.
+     * Stop reconnecting to {@code address} and close its session on the background thread.
+     * Completes once the socket is closed, or right away if it was not connected.
+     */
+    public CompletableFuture<Void> disconnect(String address, long timeoutMillis, Executor executor) {
+        reconnectSupervisor.cancel(address);
+        DeviceSession session = sessions.get(address);
+        if (session == null) {
+            return complete(CompletableFuture.completedFuture(null), "Disconnect " + address, NO_TIMEOUT, executor);
+        }
+
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        backgroundHandler.post(() -> {
+            session.close();
+            closed.complete(null);
+        });
+        return complete(closed, "Disconnect " + address, timeoutMillis, executor);
+    }
+
+    /**
+     * Disconnect every device; completes once all sessions are closed.
+     */
+    public CompletableFuture<Void> disconnectAll(long timeoutMillis, Executor executor) {
+        List<CompletableFuture<Void>> closing = new ArrayList<>();
+        for (String address : continuities.keySet()) {
+            closing.add(disconnect(address, timeoutMillis, DIRECT));
+        }
+        return deliverOn(CompletableFuture.allOf(closing.toArray(new CompletableFuture[0])), executor);
+    }
+
+    /**
+     * Disconnect from every connected device.
      */
     public void disconnectDevice() {
-        backgroundHandler.post(this::closeConnection);
+        for (String address : continuities.keySet()) {
+            reconnectSupervisor.cancel(address);
+        }
+        for (DeviceSession session : sessions.values()) {
+            session.close();
+        }
     }
 
-    private void closeConnection() {
-        try {
-            if (bluetoothSocket != null) {
-                bluetoothSocket.close();
-            }
-            isConnected = false;
-            Log.d(TAG, "Disconnected.");
-        } catch (IOException e) {
-            Log.e(TAG, "Error disconnecting", e);
+    /**
+     * Disconnect from the device at {@code address}, if connected.
+     */
+    public void disconnectDevice(String address) {
+        reconnectSupervisor.cancel(address);
+        DeviceSession session = sessions.get(address);
+        if (session != null) {
+            session.close();
         }
     }
 
     /**
-     * Check if the device is connected.
+     * Fail {@code operation} after {@code timeoutMillis} and hand its outcome to {@code executor}.
+     * The deadline is a background-handler message, dropped as soon as the operation settles.
+     */
+    private <T> CompletableFuture<T> complete(CompletableFuture<T> operation, String description,
+                                              long timeoutMillis, Executor executor) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (timeoutMillis > 0) {
+            backgroundHandler.postDelayed(() -> result.completeExceptionally(
+                    new TimeoutException(description + " timed out after " + timeoutMillis + " ms")), result, timeoutMillis);
+        }
+        operation.whenComplete((value, error) -> {
+            backgroundHandler.removeCallbacksAndMessages(result);
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+        return deliverOn(result, executor);
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error, Executor executor) {
+        Log.e(TAG, error.getMessage());
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return deliverOn(result, executor);
+    }
+
+    /** Same outcome as {@code future}, with dependent stages run on {@code executor}. */
+    private static <T> CompletableFuture<T> deliverOn(CompletableFuture<T> future, Executor executor) {
+        return (executor == DIRECT) ? future : future.whenCompleteAsync((value, error) -> { }, executor);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    /**
+     * Check if any device is connected.
      */
     public boolean isConnected() {
-        return isConnected;
+        return !sessions.isEmpty();
+    }
+
+    public boolean isConnected(String address) {
+        DeviceSession session = sessions.get(address);
+        return session != null && session.isOpen();
+    }
+
+    /**
+     * Live session for {@code address} (for per-device stats), or {@code null}.
+     */
+    public DeviceSession getSession(String address) {
+        return sessions.get(address);
+    }
+
+    public List<DeviceSession> getSessions() {
+        return new ArrayList<>(sessions.values());
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        closeConnection();
+        reconnectSupervisor.shutdown();
+        connectionEngine.shutdown();
+        disconnectDevice();
+        destroyed = true;
+        // Queued behind a pending openJournal, so a journal it opens is still closed
+        backgroundHandler.post(this::closeStorage);
         handlerThread.quitSafely();
     }
 
+    /** Background thread, after {@link #openJournal}. */
+    private void closeStorage() {
+        SampleJournal journal = sampleJournal;
+        if (journal != null) {
+            sampleDispatcher.removeSink(journal);
+        }
+        sampleDispatcher.removeSink(timeSeriesStore);
+        sampleDispatcher.stop();
+        rollupStage.close();
+        if (journal != null) {
+            journal.close();
+        }
+        timeSeriesStore.close();
+    }
+
     /**
      * Callback interface for Bluetooth connection status.
      */
@@ -0,0 +1,202 @@
+package com.example.healthmonitoringapp.services;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.protocol.Command;
+import com.example.healthmonitoringapp.utils.Histogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Write side of one {@link DeviceSession}: a bounded command queue drained by a writer thread.
+ *
+ * <p>While a write is on the socket, later commands wait in the queue; the writer then drains
+ * everything queued and gathers it into one reusable buffer, so a burst of small commands
+ * (e.g. configuring every channel) costs a single socket write. A full queue fails new commands
+ * right away instead of letting callers pile up behind a slow link.
+ */
+class CommandWriter {
+    private static final String TAG = "CommandWriter";
+    private static final int WRITE_BUFFER_SIZE = 4096;
+    static final int QUEUE_CAPACITY = 64;
+
+    /** One {@link #submit} or {@link #submitAll} call; occupies one queue slot. */
+    private static final class Request {
+        final Command[] commands;
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        final long queuedAtNanos = System.nanoTime();
+
+        Request(Command[] commands) {
+            this.commands = commands;
+        }
+    }
+
+    private final String address;
+    private final OutputStream outputStream;
+    private final Consumer<IOException> failureHandler;
+    private final ArrayBlockingQueue<Request> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final List<Request> batch = new ArrayList<>(QUEUE_CAPACITY);
+    private final Histogram ackLatency = new Histogram("us");
+    private final Thread writerThread;
+
+    private volatile boolean open = true;
+    private volatile long commandCount;
+    private volatile long writeCount;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param failureHandler told on the writer thread when a write fails, e.g. to close the session
+     */
+    CommandWriter(String address, OutputStream outputStream, Consumer<IOException> failureHandler) {
+        this.address = address;
+        this.outputStream = outputStream;
+        this.failureHandler = failureHandler;
+        this.writerThread = new Thread(this::writeLoop, "BluetoothWriter-" + address);
+    }
+
+    void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Queue {@code command}. Completes once it is on the socket, or fails with an
+     * {@link IOException} if the queue is full, the session closes or the write fails.
+     */
+    CompletableFuture<Void> submit(Command command) {
+        return enqueue(new Request(new Command[]{command}));
+    }
+
+    /**
+     * Queue {@code commands} as one unit; they go out together, in order, in as few writes as fit.
+     */
+    CompletableFuture<Void> submitAll(List<Command> commands) {
+        return enqueue(new Request(commands.toArray(new Command[0])));
+    }
+
+    private CompletableFuture<Void> enqueue(Request request) {
+        if (!open) {
+            request.written.completeExceptionally(closedException());
+        } else if (!queue.offer(request)) {
+            rejectedCount.incrementAndGet();
+            request.written.completeExceptionally(new IOException("Write queue for " + address + " is full"));
+        } else if (!open) {
+            failQueued(closedException()); // Raced with close()
+        }
+        return request.written;
+    }
+
+    /**
+     * Stop the writer and fail every queued command.
+     */
+    void close() {
+        open = false;
+        writerThread.interrupt();
+        failQueued(closedException());
+    }
+
+    /**
+     * Writer thread: block for the first request, then take whatever else queued up meanwhile.
+     */
+    private void writeLoop() {
+        IOException failure = null;
+        try {
+            while (open) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                writeBatch();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // close()
+        } catch (IOException e) {
+            if (open) {
+                Log.e(TAG, "Error writing to " + address, e);
+                failure = e;
+            }
+        }
+
+        IOException cause = (failure != null) ? failure : closedException();
+        for (Request request : batch) {
+            request.written.completeExceptionally(cause);
+        }
+        batch.clear();
+        failQueued(cause);
+        Log.d(TAG, "Writer for " + address + " stopped: " + commandCount + " commands in " + writeCount
+                + " writes, " + rejectedCount + " rejected, ack " + ackLatency);
+        if (failure != null) {
+            failureHandler.accept(failure);
+        }
+    }
+
+    /** Gather the batch into as few socket writes as the buffer allows, completing requests as they go out. */
+    private void writeBatch() throws IOException {
+        int done = 0; // Requests before this index are fully written
+        for (int i = 0; i < batch.size(); i++) {
+            for (Command command : batch.get(i).commands) {
+                if (command.size() > writeBuffer.remaining()) {
+                    flush();
+                    done = complete(done, i);
+                }
+                if (command.size() > writeBuffer.capacity()) {
+                    command.writeTo(outputStream);
+                    writeCount++;
+                } else {
+                    command.copyTo(writeBuffer);
+                }
+                commandCount++;
+            }
+        }
+        flush();
+        complete(done, batch.size());
+    }
+
+    private void flush() throws IOException {
+        if (writeBuffer.position() == 0) return;
+        outputStream.write(writeBuffer.array(), 0, writeBuffer.position());
+        writeBuffer.clear();
+        writeCount++;
+    }
+
+    /** Complete requests {@code [from, to)}; returns {@code to}. */
+    private int complete(int from, int to) {
+        long now = System.nanoTime();
+        for (int i = from; i < to; i++) {
+            Request request = batch.get(i);
+            long latencyMicros = (now - request.queuedAtNanos) / 1000;
+            for (int c = 0; c < request.commands.length; c++) {
+                ackLatency.record(latencyMicros);
+            }
+            request.written.complete(null);
+        }
+        return to;
+    }
+
+    private void failQueued(IOException cause) {
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.written.completeExceptionally(cause);
+        }
+    }
+
+    private IOException closedException() {
+        return new IOException("Session for " + address + " is closed");
+    }
+
+    /** Commands written since the session opened. */
+    long getCommandCount() { return commandCount; }
+    /** Socket writes those commands took; lower than the command count when writes were coalesced. */
+    long getWriteCount() { return writeCount; }
+    /** Commands refused because the queue was full. */
+    long getRejectedCount() { return rejectedCount.get(); }
+    /** Time from submit until the command was on the socket, in microseconds. */
+    Histogram getAckLatency() { return ackLatency; }
+}
@@ -0,0 +1,143 @@
+package com.example.healthmonitoringapp.services;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The one place RFCOMM sockets get opened. Connect attempts run on a small bounded pool,
+ * an already-open session is reused instead of opening a second socket, and concurrent
+ * requests for the same address share a single attempt.
+ */
+public class ConnectionEngine {
+    private static final String TAG = "ConnectionEngine";
+    private static final UUID SPP_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB"); // Standard UUID for SPP
+    private static final int MAX_CONCURRENT_CONNECTS = 2;
+    private static final int MAX_QUEUED_CONNECTS = 16;
+
+    /**
+     * Session bookkeeping owned by {@link BluetoothService}.
+     */
+    interface Host {
+        /** The live session for {@code address}, or {@code null}. */
+        DeviceSession getOpenSession(String address);
+
+        /** Wrap a freshly connected socket in a started session. */
+        DeviceSession openSession(BluetoothDevice device, BluetoothSocket socket) throws IOException;
+    }
+
+    private final BluetoothAdapter bluetoothAdapter;
+    private final Host host;
+    private final Map<String, CompletableFuture<DeviceSession>> inFlight = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+
+    ConnectionEngine(BluetoothAdapter bluetoothAdapter, Host host) {
+        this.bluetoothAdapter = bluetoothAdapter;
+        this.host = host;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(MAX_CONCURRENT_CONNECTS, MAX_CONCURRENT_CONNECTS,
+                30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_CONNECTS),
+                r -> new Thread(r, "BluetoothConnect-" + threadCount.incrementAndGet()));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Connect to {@code device}, or join the attempt already running for its address.
+     * Completes immediately when a session is already open.
+     */
+    public CompletableFuture<DeviceSession> connect(BluetoothDevice device) {
+        String address = device.getAddress();
+
+        DeviceSession existing = host.getOpenSession(address);
+        if (existing != null) {
+            return CompletableFuture.completedFuture(existing);
+        }
+
+        CompletableFuture<DeviceSession> created = new CompletableFuture<>();
+        CompletableFuture<DeviceSession> pending = inFlight.putIfAbsent(address, created);
+        if (pending != null) {
+            Log.d(TAG, "Joining connect already in progress for " + address);
+            return pending;
+        }
+
+        created.whenComplete((session, error) -> inFlight.remove(address, created));
+        try {
+            executor.execute(() -> openSocket(device, created));
+        } catch (RejectedExecutionException e) {
+            created.completeExceptionally(new IOException("Too many pending connections", e));
+        }
+        return created;
+    }
+
+    /**
+     * Pool thread. Always settles {@code result}, whatever is thrown, so the address never stays
+     * stuck in {@link #inFlight}.
+     */
+    private void openSocket(BluetoothDevice device, CompletableFuture<DeviceSession> result) {
+        String address = device.getAddress();
+        BluetoothSocket socket = null;
+        try {
+            // Another path may have opened it while this attempt was queued
+            DeviceSession existing = host.getOpenSession(address);
+            if (existing != null) {
+                result.complete(existing);
+                return;
+            }
+
+            cancelDiscovery();
+            socket = device.createRfcommSocketToServiceRecord(SPP_UUID);
+            socket.connect();
+            result.complete(host.openSession(device, socket));
+        } catch (IOException | RuntimeException e) {
+            // RuntimeException covers SecurityException and a host that is already torn down
+            Log.e(TAG, "Connection to " + address + " failed: " + e);
+            closeQuietly(socket);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void cancelDiscovery() {
+        try {
+            if (bluetoothAdapter.isDiscovering()) {
+                bluetoothAdapter.cancelDiscovery();
+            }
+        } catch (SecurityException e) {
+            Log.w(TAG, "Cannot cancel discovery without BLUETOOTH_SCAN permission");
+        }
+    }
+
+    private static void closeQuietly(BluetoothSocket socket) {
+        if (socket == null) return;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing socket", e);
+        }
+    }
+
+    public boolean isConnecting(String address) {
+        return inFlight.containsKey(address);
+    }
+
+    /** Stop the pool; attempts that never got to run fail instead of staying pending. */
+    void shutdown() {
+        executor.shutdownNow();
+        IOException cause = new IOException("Connection engine shut down");
+        for (CompletableFuture<DeviceSession> pending : inFlight.values()) {
+            pending.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.healthmonitoringapp.services;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.os.Handler;
+import android.util.Log;
+
+import com.example.healthmonitoringapp.protocol.Command;
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.protocol.FrameEncoder;
+import com.example.healthmonitoringapp.stream.SampleDispatcher;
+import com.example.healthmonitoringapp.stream.SampleRingBuffer;
+import com.example.healthmonitoringapp.stream.StreamContinuity;
+import com.example.healthmonitoringapp.utils.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One open RFCOMM connection. Owns its socket, reader thread, decoder, read buffer and
+ * sample ring, so nothing on the receive path is shared between devices, a
+ * {@link CommandWriter} that batches everything sent to the device and a
+ * {@link RequestMultiplexer} that pairs commands with their responses.
+ */
+public class DeviceSession {
+    private static final String TAG = "DeviceSession";
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int SAMPLE_BUFFER_CAPACITY = 8192; // ~16 s at 500 Hz
+
+    /**
+     * Told once when the session ends, either by {@link #close()} or a read failure.
+     */
+    interface CloseListener {
+        void onSessionClosed(DeviceSession session, IOException cause);
+    }
+
+    private final BluetoothDevice device;
+    private final String address;
+    private final String name;
+    private final StreamContinuity continuity;
+    private final BluetoothSocket socket;
+    private final InputStream inputStream;
+    private final CommandWriter commandWriter;
+    private final RequestMultiplexer requestMultiplexer;
+    private final FrameDecoder decoder;
+    private final SampleRingBuffer ringBuffer;
+    private final SampleDispatcher dispatcher;
+    private final CloseListener closeListener;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Thread readerThread;
+    private final long connectedAt = System.currentTimeMillis();
+
+    private volatile boolean open = true;
+    private volatile long bytesRead;
+
+    private final FrameDecoder.Callback frameCallback = new FrameDecoder.Callback() {
+        @Override
+        public void onSample(int sequence, long timestamp, int[] values, int valueCount) {
+            long streamSequence = continuity.unwrap(sequence, timestamp);
+            ringBuffer.offer(streamSequence, continuity.sampleTime(streamSequence, timestamp), values, valueCount);
+            dispatcher.signal();
+        }
+
+        @Override
+        public void onControlFrame(int type, int sequence, ByteBuffer body) {
+            requestMultiplexer.onControlFrame(type, sequence, body);
+        }
+    };
+
+    /**
+     * @param timeoutHandler runs request deadlines for the {@link RequestMultiplexer}
+     */
+    DeviceSession(BluetoothDevice device, String name, BluetoothSocket socket, FrameDecoder decoder, FrameEncoder encoder,
+                  StreamContinuity continuity, SampleDispatcher dispatcher, Handler timeoutHandler,
+                  CloseListener closeListener) throws IOException {
+        this.device = device;
+        this.address = device.getAddress();
+        this.name = name;
+        this.continuity = continuity;
+        this.socket = socket;
+        this.inputStream = socket.getInputStream();
+        this.commandWriter = new CommandWriter(address, socket.getOutputStream(), this::shutdown);
+        this.requestMultiplexer = new RequestMultiplexer(address, encoder, commandWriter::submit, timeoutHandler);
+        this.decoder = decoder;
+        this.dispatcher = dispatcher;
+        this.closeListener = closeListener;
+        this.ringBuffer = new SampleRingBuffer(SAMPLE_BUFFER_CAPACITY, SampleRingBuffer.OverflowPolicy.DROP_OLDEST);
+        this.readerThread = new Thread(this::readLoop, "BluetoothReader-" + address);
+        continuity.beginSession();
+    }
+
+    void start() {
+        dispatcher.addSource(address, ringBuffer);
+        readerThread.start();
+        commandWriter.start();
+    }
+
+    /**
+     * Reader thread: bytes land in a single reusable buffer and are decoded in place.
+     */
+    private void readLoop() {
+        IOException failure = null;
+        try {
+            while (open) {
+                int read = inputStream.read(readBuffer.array(), readBuffer.position(), readBuffer.remaining());
+                if (read < 0) {
+                    throw new IOException("Stream closed by remote device");
+                }
+                bytesRead += read;
+                readBuffer.position(readBuffer.position() + read);
+                readBuffer.flip();
+                decoder.decode(readBuffer, System.currentTimeMillis(), frameCallback);
+                if (readBuffer.position() == 0 && readBuffer.limit() == readBuffer.capacity()) {
+                    // A full buffer without a single complete frame can only be garbage
+                    readBuffer.clear();
+                } else {
+                    readBuffer.compact();
+                }
+            }
+        } catch (IOException e) {
+            if (open) {
+                Log.e(TAG, "Error reading from " + address, e);
+                failure = e;
+            }
+        }
+        Log.d(TAG, "Reader for " + address + " stopped: " + decoder.getFrameCount() + " frames, "
+                + decoder.getErrorCount() + " errors, " + ringBuffer.getOverflowCount() + " dropped");
+        shutdown(failure);
+    }
+
+    /**
+     * Queue {@code command} for the writer thread; completes once it is on the socket.
+     */
+    CompletableFuture<Void> send(Command command) {
+        return commandWriter.submit(command);
+    }
+
+    /**
+     * Queue {@code commands} to go out together, in as few socket writes as possible.
+     */
+    CompletableFuture<Void> sendAll(List<Command> commands) {
+        return commandWriter.submitAll(commands);
+    }
+
+    /**
+     * Close the socket; the blocked reader wakes up and the session unregisters itself.
+     */
+    public void close() {
+        shutdown(null);
+    }
+
+    private void shutdown(IOException cause) {
+        synchronized (this) {
+            if (!open) return;
+            open = false;
+        }
+        commandWriter.close();
+        requestMultiplexer.close((cause != null) ? cause : new IOException("Session for " + address + " is closed"));
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing socket for " + address, e);
+        }
+        dispatcher.removeSource(ringBuffer);
+        closeListener.onSessionClosed(this, cause);
+    }
+
+    public BluetoothDevice getDevice() { return device; }
+    public String getAddress() { return address; }
+    public StreamContinuity getContinuity() { return continuity; }
+    public String getName() { return name; }
+    public boolean isOpen() { return open; }
+    public long getConnectedAt() { return connectedAt; }
+    public long getBytesRead() { return bytesRead; }
+    public long getFrameCount() { return decoder.getFrameCount(); }
+    public long getFrameErrorCount() { return decoder.getErrorCount(); }
+    public long getDroppedSampleCount() { return ringBuffer.getOverflowCount(); }
+    /** Correlates commands with responses; see {@link RequestMultiplexer#request}. */
+    public RequestMultiplexer getRequestMultiplexer() { return requestMultiplexer; }
+    public long getCommandCount() { return commandWriter.getCommandCount(); }
+    public long getCommandWriteCount() { return commandWriter.getWriteCount(); }
+    public long getRejectedCommandCount() { return commandWriter.getRejectedCount(); }
+    /** Submit-to-socket latency of sent commands, in microseconds. */
+    public Histogram getCommandLatency() { return commandWriter.getAckLatency(); }
+}
@@ -0,0 +1,138 @@
+package com.example.healthmonitoringapp.services;
+
+import android.bluetooth.BluetoothDevice;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brings a session back after the link drops unexpectedly. Attempts go through the
+ * {@link ConnectionEngine} with jittered exponential backoff and stop after a fixed number of tries
+ * or when the address is explicitly disconnected.
+ */
+public class ReconnectSupervisor {
+    private static final String TAG = "ReconnectSupervisor";
+
+    static final long INITIAL_DELAY_MS = 500;
+    static final long MAX_DELAY_MS = 30_000;
+    static final int MAX_ATTEMPTS = 10;
+
+    /**
+     * Progress callbacks, invoked on the supervisor or connect threads.
+     */
+    interface Listener {
+        void onReconnecting(String address, int attempt, long delayMillis);
+        void onReconnected(DeviceSession session, long latencyMillis, int attempts);
+        void onReconnectFailed(String address, int attempts);
+    }
+
+    private static final class Recovery {
+        final BluetoothDevice device;
+        final long lostAt;
+        int attempt;
+        ScheduledFuture<?> pending;
+
+        Recovery(BluetoothDevice device, long lostAt) {
+            this.device = device;
+            this.lostAt = lostAt;
+        }
+    }
+
+    private final ConnectionEngine connectionEngine;
+    private final Listener listener;
+    private final Map<String, Recovery> recoveries = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "BluetoothReconnect"));
+
+    ReconnectSupervisor(ConnectionEngine connectionEngine, Listener listener) {
+        this.connectionEngine = connectionEngine;
+        this.listener = listener;
+    }
+
+    /**
+     * Start recovering {@code device}; a no-op if a recovery is already running for it.
+     */
+    void onConnectionLost(BluetoothDevice device) {
+        Recovery recovery = new Recovery(device, System.currentTimeMillis());
+        if (recoveries.putIfAbsent(device.getAddress(), recovery) == null) {
+            scheduleNext(recovery);
+        }
+    }
+
+    /**
+     * Stop recovering {@code address}, e.g. because the user disconnected it.
+     */
+    void cancel(String address) {
+        Recovery recovery = recoveries.remove(address);
+        if (recovery != null) {
+            synchronized (recovery) {
+                if (recovery.pending != null) recovery.pending.cancel(false);
+            }
+        }
+    }
+
+    boolean isRecovering(String address) {
+        return recoveries.containsKey(address);
+    }
+
+    private void scheduleNext(Recovery recovery) {
+        String address = recovery.device.getAddress();
+        synchronized (recovery) {
+            if (recoveries.get(address) != recovery) return;
+            if (recovery.attempt >= MAX_ATTEMPTS) {
+                recoveries.remove(address, recovery);
+                Log.w(TAG, "Giving up on " + address + " after " + recovery.attempt + " attempts");
+                listener.onReconnectFailed(address, recovery.attempt);
+                return;
+            }
+            long delay = backoffDelay(recovery.attempt++);
+            listener.onReconnecting(address, recovery.attempt, delay);
+            try {
+                recovery.pending = scheduler.schedule(() -> attempt(recovery), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Service is shutting down
+                recoveries.remove(address, recovery);
+            }
+        }
+    }
+
+    private void attempt(Recovery recovery) {
+        String address = recovery.device.getAddress();
+        if (recoveries.get(address) != recovery) return;
+
+        connectionEngine.connect(recovery.device).whenComplete((session, error) -> {
+            if (error != null) {
+                Log.d(TAG, "Reconnect attempt " + recovery.attempt + " for " + address + " failed: " + error.getMessage());
+                scheduleNext(recovery);
+                return;
+            }
+            if (recoveries.remove(address, recovery)) {
+                long latency = System.currentTimeMillis() - recovery.lostAt;
+                Log.d(TAG, "Reconnected to " + address + " after " + latency + " ms, " + recovery.attempt + " attempts");
+                listener.onReconnected(session, latency, recovery.attempt);
+            }
+        });
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half the delay is fixed, half is random,
+     * so devices that dropped together do not retry in lockstep.
+     */
+    static long backoffDelay(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_MS, INITIAL_DELAY_MS << Math.min(attempt, 16));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    void shutdown() {
+        recoveries.clear();
+        scheduler.shutdownNow();
+    }
+}
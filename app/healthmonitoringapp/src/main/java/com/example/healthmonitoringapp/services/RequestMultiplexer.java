@@ -0,0 +1,296 @@
+package com.example.healthmonitoringapp.services;
+
+import android.os.Handler;
+import android.util.Log;
+
+import com.example.healthmonitoringapp.protocol.Command;
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.protocol.FrameEncoder;
+import com.example.healthmonitoringapp.utils.Histogram;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Matches command frames sent to one device with the frames that answer them.
+ *
+ * <p>Every request gets a sequence number that is not in flight, is framed with it and handed to
+ * the session's writer; the device echoes the sequence in a frame of type
+ * {@code type | }{@link FrameDecoder#RESPONSE_FLAG}. Pending requests sit in a small table keyed
+ * by the {@code int} sequence, so many commands can be outstanding at once and each reply finds
+ * its request without boxing. Every request has a deadline on the timeout handler.
+ */
+public class RequestMultiplexer {
+    private static final String TAG = "RequestMultiplexer";
+    public static final long DEFAULT_TIMEOUT_MS = 2000;
+    static final int MAX_IN_FLIGHT = 64;
+    private static final int SEQUENCE_MASK = 0xFFFF;
+
+    /** Where framed requests go, e.g. {@link CommandWriter#submit}. */
+    interface Transport {
+        CompletableFuture<Void> send(Command frame);
+    }
+
+    /**
+     * A device's answer to one request.
+     */
+    public static final class Response {
+        private final int type;
+        private final int sequence;
+        private final byte[] body;
+        private final long latencyMicros;
+
+        Response(int type, int sequence, byte[] body, long latencyMicros) {
+            this.type = type;
+            this.sequence = sequence;
+            this.body = body;
+            this.latencyMicros = latencyMicros;
+        }
+
+        /** Type of the request this answers, without {@link FrameDecoder#RESPONSE_FLAG}. */
+        public int getType() { return type; }
+        public int getSequence() { return sequence; }
+        /** Read-only view over the response body. */
+        public ByteBuffer getBody() { return ByteBuffer.wrap(body).asReadOnlyBuffer(); }
+        /** Time from submitting the request until its response was decoded. */
+        public long getLatencyMicros() { return latencyMicros; }
+
+        @Override
+        public String toString() {
+            return "Response[type=" + type + ", seq=" + sequence + ", " + body.length + " bytes, " + latencyMicros + "us]";
+        }
+    }
+
+    private static final class Pending {
+        final int type;
+        final int sequence;
+        final long sentAtNanos = System.nanoTime();
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        Pending(int type, int sequence) {
+            this.type = type;
+            this.sequence = sequence;
+        }
+    }
+
+    private final String address;
+    private final FrameEncoder encoder;
+    private final Transport transport;
+    private final Handler timeoutHandler;
+    private final Histogram responseLatency = new Histogram("us");
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong unmatchedCount = new AtomicLong();
+
+    // Guarded by this
+    private final PendingTable pending = new PendingTable(MAX_IN_FLIGHT * 2);
+    private int nextSequence;
+    private IOException closedCause;
+
+    RequestMultiplexer(String address, FrameEncoder encoder, Transport transport, Handler timeoutHandler) {
+        this.address = address;
+        this.encoder = encoder;
+        this.transport = transport;
+        this.timeoutHandler = timeoutHandler;
+    }
+
+    /**
+     * Send a command and wait for its response. Completes on the reader thread with the reply,
+     * or fails with a {@link TimeoutException} after {@code timeoutMillis}, or an
+     * {@link IOException} if the send fails, too many requests are in flight or the session closes.
+     *
+     * @param body remaining bytes are the command body; not consumed
+     * @param timeoutMillis deadline for the response, {@link #DEFAULT_TIMEOUT_MS} if not positive
+     */
+    public CompletableFuture<Response> request(int type, ByteBuffer body, long timeoutMillis) {
+        if (type == FrameDecoder.TYPE_SAMPLE || type < 0 || type >= FrameDecoder.RESPONSE_FLAG) {
+            return failed(new IllegalArgumentException("Not a command type: " + type));
+        }
+
+        Pending request;
+        synchronized (this) {
+            if (closedCause != null) return failed(closedCause);
+            if (pending.size() >= MAX_IN_FLIGHT) {
+                return failed(new IOException("Too many requests in flight to " + address));
+            }
+            int sequence = nextSequence;
+            while (pending.get(sequence) != null) {
+                sequence = (sequence + 1) & SEQUENCE_MASK;
+            }
+            nextSequence = (sequence + 1) & SEQUENCE_MASK;
+            request = new Pending(type, sequence);
+            pending.put(sequence, request);
+        }
+
+        Command frame;
+        try {
+            frame = encoder.encode(type, request.sequence, body);
+        } catch (IllegalArgumentException e) {
+            settle(request, null, e);
+            return request.result;
+        }
+
+        long timeout = (timeoutMillis > 0) ? timeoutMillis : DEFAULT_TIMEOUT_MS;
+        timeoutHandler.postDelayed(() -> {
+            if (settle(request, null, new TimeoutException("No response from " + address + " to type "
+                    + type + " seq " + request.sequence + " within " + timeout + " ms"))) {
+                timeoutCount.incrementAndGet();
+            }
+        }, request, timeout);
+        transport.send(frame).whenComplete((ignored, error) -> {
+            if (error != null) settle(request, null, error);
+        });
+        return request.result;
+    }
+
+    /**
+     * Reader thread: complete the request {@code type}/{@code sequence} answers, if it is still pending.
+     *
+     * @return whether the frame was a response to a pending request
+     */
+    boolean onControlFrame(int type, int sequence, ByteBuffer body) {
+        if ((type & FrameDecoder.RESPONSE_FLAG) == 0) return false;
+        int requestType = type & ~FrameDecoder.RESPONSE_FLAG;
+
+        Pending request;
+        synchronized (this) {
+            request = pending.get(sequence);
+            if (request == null || request.type != requestType) {
+                unmatchedCount.incrementAndGet();
+                return false;
+            }
+        }
+
+        long latencyMicros = (System.nanoTime() - request.sentAtNanos) / 1000;
+        byte[] copy = new byte[body.remaining()];
+        body.duplicate().get(copy);
+        if (!settle(request, new Response(requestType, sequence, copy, latencyMicros), null)) return false;
+        responseLatency.record(latencyMicros);
+        return true;
+    }
+
+    /**
+     * Fail every pending request and refuse new ones.
+     */
+    void close(IOException cause) {
+        Pending[] outstanding;
+        synchronized (this) {
+            if (closedCause != null) return;
+            closedCause = cause;
+            outstanding = pending.values();
+        }
+        for (Pending request : outstanding) {
+            settle(request, null, cause);
+        }
+        if (outstanding.length > 0) {
+            Log.d(TAG, "Failed " + outstanding.length + " pending requests to " + address + ": " + cause.getMessage());
+        }
+    }
+
+    /** Remove {@code request} if still pending and complete it; false if something else got there first. */
+    private boolean settle(Pending request, Response response, Throwable error) {
+        synchronized (this) {
+            if (pending.get(request.sequence) != request) return false;
+            pending.remove(request.sequence);
+        }
+        timeoutHandler.removeCallbacksAndMessages(request);
+        if (error == null) {
+            request.result.complete(response);
+        } else {
+            request.result.completeExceptionally(error);
+        }
+        return true;
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(error);
+        return result;
+    }
+
+    public synchronized int getInFlightCount() { return pending.size(); }
+    /** Request-to-response latency of answered requests, in microseconds. */
+    public Histogram getResponseLatency() { return responseLatency; }
+    public long getTimeoutCount() { return timeoutCount.get(); }
+    /** Response frames that matched no pending request, e.g. replies arriving after their timeout. */
+    public long getUnmatchedCount() { return unmatchedCount.get(); }
+
+    /**
+     * Fixed-capacity open-addressing map from sequence number to request, with linear probing and
+     * backward-shift deletion. Capacity is at least twice {@link #MAX_IN_FLIGHT}, so it never fills.
+     */
+    private static final class PendingTable {
+        private static final int EMPTY = -1;
+
+        private final int[] keys;
+        private final Pending[] values;
+        private final int mask;
+        private int size;
+
+        PendingTable(int capacity) {
+            keys = new int[capacity];
+            values = new Pending[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+
+        int size() {
+            return size;
+        }
+
+        Pending get(int key) {
+            int slot = slotOf(key);
+            return (keys[slot] == key) ? values[slot] : null;
+        }
+
+        void put(int key, Pending value) {
+            int slot = slotOf(key);
+            if (keys[slot] != key) size++;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        void remove(int key) {
+            int slot = slotOf(key);
+            if (keys[slot] != key) return;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            values[hole] = null;
+            size--;
+        }
+
+        Pending[] values() {
+            Pending[] result = new Pending[size];
+            int count = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) result[count++] = values[slot];
+            }
+            return result;
+        }
+
+        private int slotOf(int key) {
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static int hash(int key) {
+            return key * 0x9E3779B9 >>> 16;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.healthmonitoringapp.services;
+
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.os.ParcelUuid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a BLE scan looks for and how results are delivered.
+ *
+ * <p>Filters are handed to the controller, which drops non-matching advertisements itself when it
+ * supports filter offload, so the app CPU only wakes for devices it can use. With a report delay
+ * the controller also queues matches and delivers them through
+ * {@link android.bluetooth.le.ScanCallback#onBatchScanResults} instead of one callback each.
+ */
+public final class ScanConfig {
+    /** Bluetooth SIG base UUID; 16-bit assigned numbers go in bits 32..47. */
+    private static final String BASE_UUID_FORMAT = "0000%04X-0000-1000-8000-00805F9B34FB";
+
+    public static final int SERVICE_HEART_RATE = 0x180D;
+    public static final int SERVICE_PULSE_OXIMETER = 0x1822;
+    public static final int SERVICE_BLOOD_PRESSURE = 0x1810;
+    public static final int SERVICE_HEALTH_THERMOMETER = 0x1809;
+
+    /** Batching interval used by {@link #healthDevices()}. */
+    public static final long DEFAULT_REPORT_DELAY_MS = 1000;
+
+    /** Manufacturer-specific data match: company identifier plus optional prefix and mask. */
+    private static final class ManufacturerFilter {
+        final int companyId;
+        final byte[] data;
+        final byte[] mask;
+
+        ManufacturerFilter(int companyId, byte[] data, byte[] mask) {
+            this.companyId = companyId;
+            this.data = data;
+            this.mask = mask;
+        }
+    }
+
+    private final List<ParcelUuid> serviceUuids;
+    private final List<ManufacturerFilter> manufacturerFilters;
+    private final int scanMode;
+    private final long reportDelayMillis;
+
+    private ScanConfig(Builder builder) {
+        this.serviceUuids = Collections.unmodifiableList(new ArrayList<>(builder.serviceUuids));
+        this.manufacturerFilters = Collections.unmodifiableList(new ArrayList<>(builder.manufacturerFilters));
+        this.scanMode = builder.scanMode;
+        this.reportDelayMillis = builder.reportDelayMillis;
+    }
+
+    /**
+     * Devices advertising one of the supported health services, balanced duty cycle, batched once a second.
+     */
+    public static ScanConfig healthDevices() {
+        return new Builder()
+                .addService(SERVICE_HEART_RATE)
+                .addService(SERVICE_PULSE_OXIMETER)
+                .addService(SERVICE_BLOOD_PRESSURE)
+                .addService(SERVICE_HEALTH_THERMOMETER)
+                .setScanMode(ScanSettings.SCAN_MODE_BALANCED)
+                .setReportDelay(DEFAULT_REPORT_DELAY_MS)
+                .build();
+    }
+
+    /** Full UUID of a 16-bit SIG-assigned service. */
+    public static ParcelUuid serviceUuid(int assignedNumber) {
+        return ParcelUuid.fromString(String.format(BASE_UUID_FORMAT, assignedNumber & 0xFFFF));
+    }
+
+    /**
+     * One {@link ScanFilter} per service and manufacturer entry; the controller reports a device
+     * if any of them matches. Empty means every advertisement is reported.
+     */
+    public List<ScanFilter> buildFilters() {
+        List<ScanFilter> filters = new ArrayList<>(serviceUuids.size() + manufacturerFilters.size());
+        for (ParcelUuid uuid : serviceUuids) {
+            filters.add(new ScanFilter.Builder().setServiceUuid(uuid).build());
+        }
+        for (ManufacturerFilter filter : manufacturerFilters) {
+            ScanFilter.Builder builder = new ScanFilter.Builder();
+            if (filter.mask != null) {
+                builder.setManufacturerData(filter.companyId, filter.data, filter.mask);
+            } else {
+                builder.setManufacturerData(filter.companyId, filter.data);
+            }
+            filters.add(builder.build());
+        }
+        return filters;
+    }
+
+    /**
+     * @param batchingSupported whether the controller can queue results, see
+     *                          {@link android.bluetooth.BluetoothAdapter#isOffloadedScanBatchingSupported()}
+     */
+    public ScanSettings buildSettings(boolean batchingSupported) {
+        return new ScanSettings.Builder()
+                .setScanMode(scanMode)
+                .setReportDelay(batchingSupported ? reportDelayMillis : 0)
+                .build();
+    }
+
+    public List<ParcelUuid> getServiceUuids() { return serviceUuids; }
+    public boolean isFiltered() { return !serviceUuids.isEmpty() || !manufacturerFilters.isEmpty(); }
+    public int getScanMode() { return scanMode; }
+    public long getReportDelayMillis() { return reportDelayMillis; }
+
+    public static final class Builder {
+        private final List<ParcelUuid> serviceUuids = new ArrayList<>();
+        private final List<ManufacturerFilter> manufacturerFilters = new ArrayList<>();
+        private int scanMode = ScanSettings.SCAN_MODE_BALANCED;
+        private long reportDelayMillis;
+
+        /** Match devices advertising a 16-bit SIG-assigned service, e.g. {@link #SERVICE_HEART_RATE}. */
+        public Builder addService(int assignedNumber) {
+            return addService(serviceUuid(assignedNumber));
+        }
+
+        public Builder addService(ParcelUuid uuid) {
+            serviceUuids.add(uuid);
+            return this;
+        }
+
+        /** Match any manufacturer-specific data from {@code companyId}. */
+        public Builder addManufacturer(int companyId) {
+            return addManufacturer(companyId, new byte[0], null);
+        }
+
+        /**
+         * Match manufacturer-specific data from {@code companyId} that starts with {@code data};
+         * bits cleared in {@code mask} are ignored. {@code mask} may be null.
+         */
+        public Builder addManufacturer(int companyId, byte[] data, byte[] mask) {
+            if (mask != null && mask.length != data.length) {
+                throw new IllegalArgumentException("Mask length " + mask.length + " != data length " + data.length);
+            }
+            manufacturerFilters.add(new ManufacturerFilter(companyId, data.clone(), (mask != null) ? mask.clone() : null));
+            return this;
+        }
+
+        /**
+         * One of {@link ScanSettings#SCAN_MODE_LOW_POWER}, {@link ScanSettings#SCAN_MODE_BALANCED},
+         * {@link ScanSettings#SCAN_MODE_LOW_LATENCY} or {@link ScanSettings#SCAN_MODE_OPPORTUNISTIC}.
+         */
+        public Builder setScanMode(int scanMode) {
+            this.scanMode = scanMode;
+            return this;
+        }
+
+        /**
+         * Let the controller queue results for up to {@code millis}; 0 reports each result immediately.
+         * Ignored where the controller cannot batch.
+         */
+        public Builder setReportDelay(long millis) {
+            if (millis < 0) throw new IllegalArgumentException("Report delay must be >= 0: " + millis);
+            this.reportDelayMillis = millis;
+            return this;
+        }
+
+        public ScanConfig build() {
+            return new ScanConfig(this);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.healthmonitoringapp.services;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.example.healthmonitoringapp.model.Device;
+import com.example.healthmonitoringapp.utils.DeviceRegistry;
+import com.example.healthmonitoringapp.utils.RssiTracker;
+import com.example.healthmonitoringapp.utils.SignalOrder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a flood of scan results into at most one list delta per frame.
+ *
+ * <p>{@link #ingest} only records the latest advertisement per address in a pending map, so the
+ * scan callback returns immediately. A background thread folds pending advertisements into an
+ * address-keyed index, holds back repeats of an address that was published less than
+ * {@code coalesceWindowMillis} ago, and posts what changed to the main thread, no more often than
+ * every {@link #FRAME_INTERVAL_MS}. {@link Device} objects are only ever modified on the main thread.
+ *
+ * <p>Every reading goes through a per-device {@link RssiTracker} filter before it is coalesced, so
+ * the published RSSI is stable enough that most repeats compare equal and are dropped. The device
+ * list is kept strongest-first by repositioning only the devices that changed.
+ *
+ * <p>Devices come from the shared {@link DeviceRegistry}, so a device that is already known, e.g.
+ * as bonded, is reused rather than duplicated, and every change is marked there.
+ */
+public class ScanIngestor {
+    static final long FRAME_INTERVAL_MS = 16;
+    public static final long DEFAULT_COALESCE_WINDOW_MS = 250;
+    /** RSSI to pass for devices that were not seen over the air, e.g. bonded classic devices. */
+    public static final int RSSI_UNKNOWN = Integer.MIN_VALUE;
+    private static final int RSSI_FLOOR = -100;
+
+    /**
+     * Receives batched changes on the main thread, after they were applied to the device list.
+     */
+    public interface Listener {
+        void onDevicesChanged(List<Device> added, List<Device> updated);
+
+        /**
+         * Called for each device whose RSSI changed, before the next one is changed, so a list kept
+         * in {@link SignalOrder} can be repositioned with {@link SignalOrder#reposition}.
+         */
+        default void onSignalChanged(Device device, int previousRssi) {
+        }
+    }
+
+    /** Latest advertisement of one address, waiting for the next flush. */
+    private static final class Advertisement {
+        final String address;
+        String name;
+        int rssi;
+        String type;
+
+        Advertisement(String address) {
+            this.address = address;
+        }
+    }
+
+    /** What was last published for an address. Ingest thread only. */
+    private static final class Entry {
+        final Device device;
+        String name;
+        int rssi;
+        long publishedAt;
+
+        Entry(Device device, String name, int rssi, long publishedAt) {
+            this.device = device;
+            this.name = name;
+            this.rssi = rssi;
+            this.publishedAt = publishedAt;
+        }
+    }
+
+    /** Field values to apply to an existing device on the main thread. */
+    private static final class Update {
+        final Device device;
+        final String name;
+        final int rssi;
+
+        Update(Device device, String name, int rssi) {
+            this.device = device;
+            this.name = name;
+            this.rssi = rssi;
+        }
+    }
+
+    private final List<Device> deviceList;
+    private final Listener listener;
+    private final DeviceRegistry registry = DeviceRegistry.getInstance();
+    private final long coalesceWindowMillis;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HandlerThread thread = new HandlerThread("ScanIngestor");
+    private final Handler handler;
+    private final Runnable flushTask = this::flush;
+
+    private final Object lock = new Object();
+    private Map<String, Advertisement> pending = new HashMap<>();
+    private Map<String, Advertisement> flushing = new HashMap<>();
+    private boolean flushScheduled;
+    private volatile long lastFlushAt;
+    private final RssiTracker rssiTracker = new RssiTracker();
+
+    // Ingest thread only
+    private final Map<String, Entry> index = new HashMap<>();
+
+    // Main thread only; batches already posted when released are dropped
+    private boolean released;
+
+    private volatile long receivedCount;
+    private volatile long publishedCount;
+
+    /**
+     * @param deviceList main-thread list that new devices are inserted into, kept in {@link SignalOrder}
+     */
+    public ScanIngestor(List<Device> deviceList, Listener listener, long coalesceWindowMillis) {
+        this.deviceList = deviceList;
+        this.listener = listener;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Record one advertisement. Cheap and callable from any thread.
+     *
+     * @param rssi raw reading in dBm, or {@link #RSSI_UNKNOWN}
+     */
+    public void ingest(String address, String name, int rssi, String type) {
+        synchronized (lock) {
+            receivedCount++;
+            int smoothed = (rssi == RSSI_UNKNOWN)
+                    ? RSSI_FLOOR
+                    : Math.round(rssiTracker.update(address, rssi, SystemClock.uptimeMillis()));
+            Advertisement advertisement = pending.get(address);
+            if (advertisement == null) {
+                advertisement = new Advertisement(address);
+                pending.put(address, advertisement);
+            }
+            advertisement.name = name;
+            advertisement.rssi = smoothed;
+            advertisement.type = type;
+            scheduleFlushLocked(lastFlushAt + FRAME_INTERVAL_MS);
+        }
+    }
+
+    private void scheduleFlushLocked(long atUptime) {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        handler.postAtTime(flushTask, Math.max(atUptime, SystemClock.uptimeMillis()));
+    }
+
+    /** Ingest thread. */
+    private void flush() {
+        Map<String, Advertisement> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = flushing;
+            flushing = batch;
+            flushScheduled = false;
+        }
+        long now = SystemClock.uptimeMillis();
+        lastFlushAt = now;
+
+        List<Device> added = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+        long heldUntil = Long.MAX_VALUE;
+        List<Advertisement> held = null;
+
+        for (Advertisement ad : batch.values()) {
+            Entry entry = index.get(ad.address);
+            if (entry == null) {
+                Device device = registry.get(ad.address);
+                if (device == null) {
+                    Device created = new Device(ad.name, ad.address, false, ad.rssi, false, ad.type, "Unknown", System.currentTimeMillis());
+                    device = registry.putIfAbsent(created);
+                    if (device != created) updates.add(new Update(device, ad.name, ad.rssi));
+                } else {
+                    // Known from elsewhere: bring it up to date before it is listed. Its fields belong
+                    // to the main thread, so apply() decides whether anything actually changed.
+                    updates.add(new Update(device, ad.name, ad.rssi));
+                }
+                index.put(ad.address, new Entry(device, ad.name, ad.rssi, now));
+                added.add(device);
+                continue;
+            }
+            boolean renamed = !ad.name.equals(entry.name);
+            if (!renamed && ad.rssi == entry.rssi) continue;
+
+            long due = entry.publishedAt + coalesceWindowMillis;
+            if (!renamed && now < due) {
+                // Published recently: keep only the newest reading until the window ends
+                if (held == null) held = new ArrayList<>();
+                held.add(ad);
+                heldUntil = Math.min(heldUntil, due);
+                continue;
+            }
+            entry.name = ad.name;
+            entry.rssi = ad.rssi;
+            entry.publishedAt = now;
+            updates.add(new Update(entry.device, ad.name, ad.rssi));
+        }
+        batch.clear();
+
+        if (held != null) {
+            synchronized (lock) {
+                for (Advertisement ad : held) {
+                    // A newer advertisement may have arrived meanwhile; it wins
+                    if (!pending.containsKey(ad.address)) pending.put(ad.address, ad);
+                }
+                scheduleFlushLocked(heldUntil);
+            }
+        }
+
+        if (!added.isEmpty() || !updates.isEmpty()) {
+            publishedCount += added.size() + updates.size();
+            mainHandler.post(() -> apply(added, updates));
+        }
+    }
+
+    /** Main thread. */
+    private void apply(List<Device> added, List<Update> updates) {
+        if (released) return;
+        List<Device> updated = new ArrayList<>(updates.size());
+        for (Update update : updates) {
+            Device device = update.device;
+            int previous = device.getRssi();
+            if (previous == update.rssi && update.name.equals(device.getName())) continue;
+            device.setName(update.name);
+            device.setRssi(update.rssi);
+            if (device.getRssi() != previous) {
+                SignalOrder.reposition(deviceList, device, previous);
+                if (listener != null) {
+                    listener.onSignalChanged(device, previous);
+                }
+            }
+            registry.markChanged(device);
+            updated.add(device);
+        }
+        for (Device device : added) {
+            SignalOrder.insert(deviceList, device);
+        }
+        if (listener != null) {
+            listener.onDevicesChanged(added, updated);
+        }
+    }
+
+    /** Advertisements passed to {@link #ingest}. */
+    public long getReceivedCount() { return receivedCount; }
+    /** Additions and updates actually delivered to the main thread. */
+    public long getPublishedCount() { return publishedCount; }
+
+    /** Main thread. Stops flushing and drops batches that were posted but not yet applied. */
+    public void release() {
+        released = true;
+        handler.removeCallbacks(flushTask);
+        thread.quitSafely();
+    }
+}
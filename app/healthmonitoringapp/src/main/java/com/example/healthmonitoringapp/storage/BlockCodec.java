@@ -0,0 +1,258 @@
+package com.example.healthmonitoringapp.storage;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.stream.SampleSink;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed-size compressed sample block.
+ *
+ * <pre>
+ * header (56 bytes)
+ *   magic i32 | count i32 | channels u16 | reserved u16 | bodyLength i32
+ *   firstTimestamp i64 | lastTimestamp i64 | firstSequence i64 | crc32(body) i32 | lastSequence i64
+ * body
+ *   first sample: zigzag values
+ *   next samples: zigzag(delta-of-delta timestamp) | zigzag(sequence delta) | zigzag(value delta) per channel
+ * </pre>
+ * All numbers in the body are LEB128 varints, so a steady 100 Hz stream costs one byte per
+ * timestamp and sequence and one or two bytes per channel value.
+ */
+final class BlockCodec {
+    static final int BLOCK_SIZE = 4096;
+    static final int HEADER_SIZE = 56;
+    static final int MAGIC = 0x56544231; // "VTB1"
+    static final int MAX_CHANNELS = FrameDecoder.MAX_CHANNELS;
+
+    private static final int MAX_VARLONG = 10;
+    private static final int MAX_VARINT = 5;
+
+    private static final int OFFSET_COUNT = 4;
+    private static final int OFFSET_CHANNELS = 8;
+    private static final int OFFSET_BODY_LENGTH = 12;
+    private static final int OFFSET_FIRST_TIMESTAMP = 16;
+    private static final int OFFSET_LAST_TIMESTAMP = 24;
+    private static final int OFFSET_FIRST_SEQUENCE = 32;
+    private static final int OFFSET_CRC = 40;
+    private static final int OFFSET_LAST_SEQUENCE = 44;
+
+    private BlockCodec() {
+    }
+
+    /**
+     * Incrementally encodes samples into one reusable block buffer. Not thread-safe.
+     */
+    static final class Writer {
+        private ByteBuffer block;
+        private final int[] previousValues = new int[MAX_CHANNELS];
+        private final CRC32 crc = new CRC32();
+
+        private int count;
+        private int channels;
+        private long firstTimestamp;
+        private long firstSequence;
+        private long previousTimestamp;
+        private long previousDelta;
+        private long previousSequence;
+
+        Writer(ByteBuffer block) {
+            reset(block);
+        }
+
+        /**
+         * @return {@code false} if the sample does not fit (block full or channel count changed);
+         * the caller should seal this block and retry on a fresh one
+         */
+        boolean append(long sequence, long timestamp, int[] values, int valueCount) {
+            int n = Math.min(valueCount, MAX_CHANNELS);
+            if (count > 0 && n != channels) return false;
+            if (block.remaining() < MAX_VARLONG * 2 + MAX_VARINT * n) return false;
+
+            if (count == 0) {
+                channels = n;
+                firstTimestamp = timestamp;
+                firstSequence = sequence;
+                previousDelta = 0;
+                for (int i = 0; i < n; i++) {
+                    writeVarInt(block, zigzag(values[i]));
+                }
+            } else {
+                long delta = timestamp - previousTimestamp;
+                writeVarLong(block, zigzag(delta - previousDelta));
+                writeVarLong(block, zigzag(sequence - previousSequence));
+                for (int i = 0; i < n; i++) {
+                    writeVarInt(block, zigzag(values[i] - previousValues[i]));
+                }
+                previousDelta = delta;
+            }
+
+            System.arraycopy(values, 0, previousValues, 0, n);
+            previousTimestamp = timestamp;
+            previousSequence = sequence;
+            count++;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        long getFirstTimestamp() { return firstTimestamp; }
+        long getLastTimestamp() { return previousTimestamp; }
+
+        /**
+         * Copy of the samples appended so far, with enough of a header for {@link #decode}; the
+         * writer carries on filling its own block.
+         */
+        ByteBuffer snapshot() {
+            ByteBuffer copy = ByteBuffer.allocate(block.position());
+            copy.put(block.array(), block.arrayOffset(), block.position());
+            copy.putInt(OFFSET_COUNT, count);
+            copy.putShort(OFFSET_CHANNELS, (short) channels);
+            copy.putLong(OFFSET_FIRST_TIMESTAMP, firstTimestamp);
+            copy.putLong(OFFSET_FIRST_SEQUENCE, firstSequence);
+            return copy;
+        }
+
+        /**
+         * Fill in the header and return the finished block, positioned for a full {@link #BLOCK_SIZE} write.
+         * The writer must be {@link #reset} before it is used again.
+         */
+        ByteBuffer seal() {
+            int bodyLength = block.position() - HEADER_SIZE;
+            crc.reset();
+            crc.update(block.array(), block.arrayOffset() + HEADER_SIZE, bodyLength);
+
+            block.putInt(0, MAGIC);
+            block.putInt(OFFSET_COUNT, count);
+            block.putShort(OFFSET_CHANNELS, (short) channels);
+            block.putShort(OFFSET_CHANNELS + 2, (short) 0);
+            block.putInt(OFFSET_BODY_LENGTH, bodyLength);
+            block.putLong(OFFSET_FIRST_TIMESTAMP, firstTimestamp);
+            block.putLong(OFFSET_LAST_TIMESTAMP, previousTimestamp);
+            block.putLong(OFFSET_FIRST_SEQUENCE, firstSequence);
+            block.putInt(OFFSET_CRC, (int) crc.getValue());
+            block.putLong(OFFSET_LAST_SEQUENCE, previousSequence);
+
+            block.limit(BLOCK_SIZE).position(0);
+            return block;
+        }
+
+        void reset(ByteBuffer freshBlock) {
+            block = freshBlock;
+            block.clear();
+            block.position(HEADER_SIZE);
+            count = 0;
+        }
+    }
+
+    /** Magic and a plausible body length; a torn body can still pass, see {@link #isValid}. */
+    static boolean hasValidHeader(ByteBuffer header) {
+        return header.getInt(0) == MAGIC
+                && header.getInt(OFFSET_BODY_LENGTH) >= 0
+                && header.getInt(OFFSET_BODY_LENGTH) <= BLOCK_SIZE - HEADER_SIZE;
+    }
+
+    static long firstTimestamp(ByteBuffer header) { return header.getLong(OFFSET_FIRST_TIMESTAMP); }
+    static long lastTimestamp(ByteBuffer header) { return header.getLong(OFFSET_LAST_TIMESTAMP); }
+    static long lastSequence(ByteBuffer header) { return header.getLong(OFFSET_LAST_SEQUENCE); }
+
+    /** Full check of a block read back from disk, including the body CRC. */
+    static boolean isValid(ByteBuffer block) {
+        if (!hasValidHeader(block)) return false;
+        CRC32 crc = new CRC32();
+        crc.update(block.array(), block.arrayOffset() + HEADER_SIZE, block.getInt(OFFSET_BODY_LENGTH));
+        return (int) crc.getValue() == block.getInt(OFFSET_CRC);
+    }
+
+    /**
+     * Decode {@code block} and emit every sample with {@code from <= timestamp <= to}.
+     *
+     * @param scratch at least {@link #MAX_CHANNELS} long, reused for each emitted sample
+     * @return the number of samples emitted
+     */
+    static int decode(ByteBuffer block, String address, long from, long to, SampleSink sink, int[] scratch) {
+        int count = block.getInt(OFFSET_COUNT);
+        int channels = block.getShort(OFFSET_CHANNELS);
+        long timestamp = block.getLong(OFFSET_FIRST_TIMESTAMP);
+        long sequence = block.getLong(OFFSET_FIRST_SEQUENCE);
+        long delta = 0;
+        int emitted = 0;
+
+        block.position(HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                for (int c = 0; c < channels; c++) {
+                    scratch[c] = unzigzag(readVarInt(block));
+                }
+            } else {
+                delta += unzigzagLong(readVarLong(block));
+                timestamp += delta;
+                sequence += unzigzagLong(readVarLong(block));
+                for (int c = 0; c < channels; c++) {
+                    scratch[c] += unzigzag(readVarInt(block));
+                }
+            }
+            if (timestamp > to) break;
+            if (timestamp >= from) {
+                sink.onSample(address, sequence, timestamp, scratch, channels);
+                emitted++;
+            }
+        }
+        return emitted;
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long unzigzagLong(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+        return result;
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+        return result;
+    }
+}
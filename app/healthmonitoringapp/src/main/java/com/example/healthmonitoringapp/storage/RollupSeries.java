@@ -0,0 +1,58 @@
+package com.example.healthmonitoringapp.storage;
+
+import java.util.Arrays;
+
+/**
+ * Result of a {@link RollupStage} query: one channel of one device as consecutive time buckets,
+ * each with min, max, average and sample count. Empty buckets are left out.
+ */
+public class RollupSeries {
+    private final long bucketMillis;
+    private final RollupStage.Resolution resolution;
+
+    private long[] bucketStarts;
+    private int[] minimums;
+    private int[] maximums;
+    private float[] averages;
+    private int[] counts;
+    private int size;
+
+    RollupSeries(RollupStage.Resolution resolution, long bucketMillis, int expectedBuckets) {
+        this.resolution = resolution;
+        this.bucketMillis = bucketMillis;
+        int capacity = Math.max(expectedBuckets, 16);
+        bucketStarts = new long[capacity];
+        minimums = new int[capacity];
+        maximums = new int[capacity];
+        averages = new float[capacity];
+        counts = new int[capacity];
+    }
+
+    void add(long bucketStart, int min, int max, long sum, int count) {
+        if (count == 0) return;
+        if (size == bucketStarts.length) {
+            int capacity = size * 2;
+            bucketStarts = Arrays.copyOf(bucketStarts, capacity);
+            minimums = Arrays.copyOf(minimums, capacity);
+            maximums = Arrays.copyOf(maximums, capacity);
+            averages = Arrays.copyOf(averages, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        bucketStarts[size] = bucketStart;
+        minimums[size] = min;
+        maximums[size] = max;
+        averages[size] = (float) sum / count;
+        counts[size] = count;
+        size++;
+    }
+
+    /** Level the buckets line up with; {@link RollupStage.Resolution#RAW} if even seconds were too coarse. */
+    public RollupStage.Resolution getResolution() { return resolution; }
+    public long getBucketMillis() { return bucketMillis; }
+    public int size() { return size; }
+    public long getBucketStart(int index) { return bucketStarts[index]; }
+    public int getMin(int index) { return minimums[index]; }
+    public int getMax(int index) { return maximums[index]; }
+    public float getAverage(int index) { return averages[index]; }
+    public int getCount(int index) { return counts[index]; }
+}
@@ -0,0 +1,582 @@
+package com.example.healthmonitoringapp.storage;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.stream.SampleSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental downsampling of the live sample stream for long-range history views.
+ *
+ * <p>Every sample updates min/max/sum/count of its 1 s, 1 min and 1 h bucket, per device and
+ * channel. Buckets live in fixed-size rings of primitive arrays (6 hours of seconds, 7 days of
+ * minutes, a year of hours), so ingestion is a handful of array writes and never allocates.
+ *
+ * <p>Given a directory, each ring is mirrored slot for slot in a fixed-size file, so the rings
+ * survive a restart:
+ *
+ * <pre>
+ *   dir/AABBCCDDEEFF/second.rollup, minute.rollup, hour.rollup
+ * </pre>
+ *
+ * A writer thread copies the buckets touched since its last pass every
+ * {@link #CHECKPOINT_INTERVAL_MS}, and once more on {@link #close()}; a crash loses at most that
+ * much of the rollups, never the raw samples. A device's files are read back on the writer thread
+ * the first time it is seen, and merged with whatever it has ingested in the meantime.
+ *
+ * <p>{@link #query} picks the coarsest level whose buckets are still no wider than one pixel.
+ * Parts of the range the rings do not cover (older than their retention, or from before the
+ * device was first rolled up) are aggregated on the fly from the {@link TimeSeriesStore}, as is a
+ * range that needs sub-second buckets; the store also serves samples it has not written to disk
+ * yet, so a short range ending now is complete.
+ */
+public class RollupStage implements SampleSink {
+
+    /**
+     * Aggregate levels, finest first.
+     */
+    public enum Resolution {
+        RAW(0, 0),
+        SECOND(1000L, 6 * 60 * 60),
+        MINUTE(60_000L, 7 * 24 * 60),
+        HOUR(3_600_000L, 366 * 24);
+
+        final long bucketMillis;
+        final int capacity;
+
+        Resolution(long bucketMillis, int capacity) {
+            this.bucketMillis = bucketMillis;
+            this.capacity = capacity;
+        }
+
+        public long getBucketMillis() { return bucketMillis; }
+    }
+
+    private static final String TAG = "RollupStage";
+    private static final Resolution[] LEVELS = { Resolution.SECOND, Resolution.MINUTE, Resolution.HOUR };
+    static final long CHECKPOINT_INTERVAL_MS = 10_000;
+    private static final int FILE_MAGIC = 0x56525231; // "VRR1"
+    private static final int FILE_HEADER_SIZE = 8;    // Magic, channel count
+    private static final String FILE_SUFFIX = ".rollup";
+
+    private final TimeSeriesStore store;
+    private final File dir;
+    private final ScheduledExecutorService writer;
+    private final Map<String, DeviceRollup> devices = new ConcurrentHashMap<>();
+
+    /**
+     * Rings in memory only: after a restart, older ranges are aggregated from {@code store}.
+     *
+     * @param store raw history used where the rings have no data; may be {@code null}
+     */
+    public RollupStage(TimeSeriesStore store) {
+        this(store, null);
+    }
+
+    /**
+     * @param store raw history used where the rings have no data; may be {@code null}
+     * @param dir   where the rings are kept across restarts; {@code null} keeps them in memory only
+     */
+    public RollupStage(TimeSeriesStore store, File dir) {
+        this.store = store;
+        this.dir = dir;
+        if (dir == null) {
+            writer = null;
+            return;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "RollupWriter"));
+        writer.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_INTERVAL_MS, CHECKPOINT_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        DeviceRollup device = devices.get(address);
+        if (device == null) {
+            device = devices.computeIfAbsent(address, this::openDevice);
+        }
+        device.add(timestamp, values, valueCount);
+    }
+
+    /**
+     * Write every bucket touched since the last checkpoint and stop the writer. Samples that
+     * arrive afterwards are still rolled up, but only in memory.
+     */
+    public void close() {
+        if (writer == null) return;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                Log.e(TAG, "Writer did not drain");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+
+    /**
+     * Only allocates: the device's files are read on the writer thread, so the dispatch thread
+     * never waits for them.
+     */
+    private DeviceRollup openDevice(String address) {
+        if (writer == null) return new DeviceRollup(address, null);
+        DeviceRollup device = new DeviceRollup(address, new CountDownLatch(1));
+        try {
+            writer.execute(() -> load(device));
+        } catch (RejectedExecutionException e) {
+            device.loaded.countDown(); // Closed: nothing will be written, so nothing to merge either
+        }
+        return device;
+    }
+
+    /** The device's rings, read from disk first if it has not been seen yet; may block on the writer. */
+    private DeviceRollup loadedDevice(String address) throws IOException {
+        DeviceRollup device = devices.get(address);
+        if (device == null) {
+            if (dir == null || !deviceDir(address).isDirectory()) return null;
+            device = devices.computeIfAbsent(address, this::openDevice);
+        }
+        device.awaitLoaded();
+        return device;
+    }
+
+    private File deviceDir(String address) {
+        return new File(dir, address.replace(":", "").toUpperCase(Locale.ROOT));
+    }
+
+    private File levelFile(String address, Resolution resolution) {
+        return new File(deviceDir(address), resolution.name().toLowerCase(Locale.ROOT) + FILE_SUFFIX);
+    }
+
+    /** Writer thread. */
+    private void load(DeviceRollup device) {
+        try {
+            for (Resolution resolution : LEVELS) {
+                File file = levelFile(device.address, resolution);
+                if (!file.isFile()) continue;
+                try {
+                    Level stored = readLevel(resolution, file);
+                    if (stored != null) device.merge(stored);
+                } catch (IOException e) {
+                    // Queries fall back to the store for whatever this level is missing
+                    Log.e(TAG, "Cannot read " + file, e);
+                }
+            }
+        } finally {
+            device.loaded.countDown();
+        }
+    }
+
+    /** @return the ring stored in {@code file}, or {@code null} if it is not a rollup file */
+    private static Level readLevel(Resolution resolution, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer contents = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (contents.hasRemaining()) {
+                if (channel.read(contents, contents.position()) < 0) break;
+            }
+            contents.flip();
+            if (contents.remaining() < FILE_HEADER_SIZE || contents.getInt(0) != FILE_MAGIC) return null;
+            int channels = contents.getInt(4);
+            if (channels <= 0 || channels > 1024) return null;
+
+            Level level = new Level(resolution, channels);
+            int recordSize = Level.recordSize(channels);
+            int records = Math.min(resolution.capacity, (contents.remaining() - FILE_HEADER_SIZE) / recordSize);
+            for (int slot = 0; slot < records; slot++) {
+                level.readRecord(contents, FILE_HEADER_SIZE + slot * recordSize, slot);
+            }
+            return level;
+        }
+    }
+
+    /** Writer thread, and once more from {@link #close()} after it stopped. */
+    private void checkpoint() {
+        for (DeviceRollup device : devices.values()) {
+            if (device.loaded.getCount() > 0) continue; // Its load is queued ahead of the next pass
+            for (Resolution resolution : LEVELS) {
+                Checkpoint pending = device.takeCheckpoint(resolution);
+                if (pending == null) continue;
+                File file = levelFile(device.address, resolution);
+                try {
+                    writeCheckpoint(file, pending);
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot write " + file, e);
+                }
+            }
+        }
+    }
+
+    private static void writeCheckpoint(File file, Checkpoint pending) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) throw new IOException("Cannot create " + parent);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            if (pending.rewrite) {
+                // New channel layout: records of the old one no longer line up
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                header.putInt(0, FILE_MAGIC).putInt(4, pending.channels);
+                writeFully(channel, header, 0);
+            }
+            int recordSize = Level.recordSize(pending.channels);
+            ByteBuffer records = pending.records;
+            for (int i = 0; records.position() < records.limit(); i++) {
+                int slot = (pending.firstSlot + i) % pending.capacity;
+                ByteBuffer record = records.slice();
+                record.limit(recordSize);
+                writeFully(channel, record, FILE_HEADER_SIZE + (long) slot * recordSize);
+                records.position(records.position() + recordSize);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Aggregates of {@code channel} between {@code from} and {@code to} with about one bucket per
+     * pixel. May read the store, so call it off the main thread.
+     */
+    public RollupSeries query(String address, int channel, long from, long to, int pixels) throws IOException {
+        long targetMillis = Math.max(1, (to - from) / Math.max(pixels, 1));
+        Resolution resolution = Resolution.RAW;
+        for (Resolution level : LEVELS) {
+            if (level.bucketMillis <= targetMillis) resolution = level;
+        }
+        long bucketMillis = (resolution == Resolution.RAW) ? targetMillis : resolution.bucketMillis;
+        RollupSeries series = new RollupSeries(resolution, bucketMillis,
+                (int) Math.min(pixels + 1L, (to - from) / bucketMillis + 1));
+
+        DeviceRollup device = loadedDevice(address);
+        long ringFrom = (device != null && resolution != Resolution.RAW)
+                ? Math.max(from, device.coveredFrom(resolution))
+                : Long.MAX_VALUE;
+
+        // Raw fallback for what the ring cannot answer, then the ring for the rest
+        if (ringFrom > from && store != null) {
+            aggregateRaw(address, channel, from, Math.min(to, ringFrom - 1), bucketMillis, series);
+        }
+        if (ringFrom <= to) {
+            device.read(resolution, channel, ringFrom, to, series);
+        }
+        return series;
+    }
+
+    private void aggregateRaw(String address, int channel, long from, long to, long bucketMillis,
+                              RollupSeries series) throws IOException {
+        RawAggregator aggregator = new RawAggregator(channel, bucketMillis, series);
+        store.query(address, from, to, aggregator);
+        aggregator.finish();
+    }
+
+    /** Folds raw samples, which arrive in time order, into buckets of a fixed width. */
+    private static final class RawAggregator implements SampleSink {
+        final int channel;
+        final long bucketMillis;
+        final RollupSeries series;
+        long bucket = Long.MIN_VALUE;
+        int min;
+        int max;
+        long sum;
+        int count;
+
+        RawAggregator(int channel, long bucketMillis, RollupSeries series) {
+            this.channel = channel;
+            this.bucketMillis = bucketMillis;
+            this.series = series;
+        }
+
+        @Override
+        public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+            if (channel >= valueCount) return;
+            long b = Math.floorDiv(timestamp, bucketMillis);
+            if (b != bucket) {
+                finish();
+                bucket = b;
+                min = Integer.MAX_VALUE;
+                max = Integer.MIN_VALUE;
+                sum = 0;
+                count = 0;
+            }
+            int value = values[channel];
+            if (value < min) min = value;
+            if (value > max) max = value;
+            sum += value;
+            count++;
+        }
+
+        void finish() {
+            if (count > 0) series.add(bucket * bucketMillis, min, max, sum, count);
+            count = 0;
+        }
+    }
+
+    /** Buckets of one level touched since the last checkpoint, copied out for the writer. */
+    private static final class Checkpoint {
+        final int channels;
+        final int capacity;
+        final boolean rewrite;
+        final int firstSlot;
+        final ByteBuffer records;
+
+        Checkpoint(int channels, int capacity, boolean rewrite, int firstSlot, ByteBuffer records) {
+            this.channels = channels;
+            this.capacity = capacity;
+            this.rewrite = rewrite;
+            this.firstSlot = firstSlot;
+            this.records = records;
+        }
+    }
+
+    /**
+     * All levels of one device. Written by the dispatch thread and, while loading, by the writer;
+     * read by queries and checkpoints.
+     */
+    private static final class DeviceRollup {
+        final String address;
+        /** Released once the stored rings are merged in; {@code null} without a directory. */
+        final CountDownLatch loaded;
+        private int channels = -1;
+        private final Level[] levels = new Level[LEVELS.length];
+
+        DeviceRollup(String address, CountDownLatch loaded) {
+            this.address = address;
+            this.loaded = (loaded != null) ? loaded : new CountDownLatch(0);
+        }
+
+        /** Never call it on the writer thread. */
+        void awaitLoaded() throws IOException {
+            try {
+                loaded.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading rollups of " + address, e);
+            }
+        }
+
+        synchronized void add(long timestamp, int[] values, int valueCount) {
+            if (valueCount != channels) {
+                // Channel layout changed: earlier aggregates no longer line up
+                channels = valueCount;
+                for (int i = 0; i < LEVELS.length; i++) {
+                    levels[i] = new Level(LEVELS[i], valueCount);
+                }
+            }
+            for (Level level : levels) {
+                level.add(timestamp, values);
+            }
+        }
+
+        /**
+         * Fold a stored ring into the live one. Live buckets only hold what arrived since the
+         * restart, so a bucket present in both is combined.
+         */
+        synchronized void merge(Level stored) {
+            if (channels == -1) {
+                channels = stored.channels;
+                for (int i = 0; i < LEVELS.length; i++) {
+                    levels[i] = new Level(LEVELS[i], channels);
+                }
+            }
+            Level level = level(stored.resolution);
+            // A different layout means the live ring was reset, and its file is rewritten
+            if (level != null && stored.channels == channels) level.merge(stored);
+        }
+
+        synchronized Checkpoint takeCheckpoint(Resolution resolution) {
+            Level level = level(resolution);
+            return (level == null) ? null : level.takeCheckpoint();
+        }
+
+        /** Oldest timestamp the ring of {@code resolution} still holds complete buckets for. */
+        synchronized long coveredFrom(Resolution resolution) {
+            Level level = level(resolution);
+            return (level == null) ? Long.MAX_VALUE : level.coveredFrom();
+        }
+
+        synchronized void read(Resolution resolution, int channel, long from, long to, RollupSeries series) {
+            Level level = level(resolution);
+            if (level != null && channel < channels) {
+                level.read(channel, from, to, series);
+            }
+        }
+
+        private Level level(Resolution resolution) {
+            for (Level level : levels) {
+                if (level != null && level.resolution == resolution) return level;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Ring of buckets; slot {@code bucket % capacity}, per-channel values at {@code slot * channels + channel}.
+     */
+    private static final class Level {
+        final Resolution resolution;
+        final int channels;
+        final long[] bucketIds;
+        final int[] counts;
+        final int[] minimums;
+        final int[] maximums;
+        final long[] sums;
+        long firstBucket = Long.MIN_VALUE;
+        long newestBucket = Long.MIN_VALUE;
+        /** Oldest bucket touched since the last checkpoint; {@code Long.MAX_VALUE} if none. */
+        long dirtyFrom = Long.MAX_VALUE;
+        /** Whether the file holds this ring's layout, so a checkpoint only needs the dirty records. */
+        boolean fileMatches;
+
+        /** On disk: bucket id, count, then min, max and sum per channel. */
+        static int recordSize(int channels) {
+            return 12 + 16 * channels;
+        }
+
+        Level(Resolution resolution, int channels) {
+            this.resolution = resolution;
+            this.channels = channels;
+            int capacity = resolution.capacity;
+            bucketIds = new long[capacity];
+            counts = new int[capacity];
+            minimums = new int[capacity * channels];
+            maximums = new int[capacity * channels];
+            sums = new long[capacity * channels];
+        }
+
+        void add(long timestamp, int[] values) {
+            long bucket = Math.floorDiv(timestamp, resolution.bucketMillis);
+            if (firstBucket != Long.MIN_VALUE && bucket <= newestBucket - resolution.capacity) {
+                return; // older than the ring
+            }
+            int slot = (int) Math.floorMod(bucket, (long) resolution.capacity);
+            int base = slot * channels;
+
+            if (counts[slot] == 0 || bucketIds[slot] != bucket) {
+                bucketIds[slot] = bucket;
+                counts[slot] = 0;
+                for (int c = 0; c < channels; c++) {
+                    minimums[base + c] = Integer.MAX_VALUE;
+                    maximums[base + c] = Integer.MIN_VALUE;
+                    sums[base + c] = 0;
+                }
+            }
+            counts[slot]++;
+            for (int c = 0; c < channels; c++) {
+                int value = values[c];
+                if (value < minimums[base + c]) minimums[base + c] = value;
+                if (value > maximums[base + c]) maximums[base + c] = value;
+                sums[base + c] += value;
+            }
+
+            if (firstBucket == Long.MIN_VALUE) firstBucket = bucket;
+            if (bucket > newestBucket) newestBucket = bucket;
+            if (bucket < dirtyFrom) dirtyFrom = bucket;
+        }
+
+        void readRecord(ByteBuffer file, int offset, int slot) {
+            long bucket = file.getLong(offset);
+            int count = file.getInt(offset + 8);
+            if (count <= 0 || Math.floorMod(bucket, (long) resolution.capacity) != slot) return;
+            bucketIds[slot] = bucket;
+            counts[slot] = count;
+            int at = offset + 12;
+            for (int c = 0, base = slot * channels; c < channels; c++, at += 16) {
+                minimums[base + c] = file.getInt(at);
+                maximums[base + c] = file.getInt(at + 4);
+                sums[base + c] = file.getLong(at + 8);
+            }
+            if (firstBucket == Long.MIN_VALUE || bucket < firstBucket) firstBucket = bucket;
+            if (bucket > newestBucket) newestBucket = bucket;
+        }
+
+        void merge(Level stored) {
+            long newest = Math.max(newestBucket, stored.newestBucket);
+            for (int slot = 0; slot < resolution.capacity; slot++) {
+                if (stored.counts[slot] == 0) continue;
+                long bucket = stored.bucketIds[slot];
+                if (bucket <= newest - resolution.capacity) continue; // Pushed out by newer buckets
+                int base = slot * channels;
+                if (counts[slot] == 0 || bucketIds[slot] < bucket) {
+                    bucketIds[slot] = bucket;
+                    counts[slot] = stored.counts[slot];
+                    System.arraycopy(stored.minimums, base, minimums, base, channels);
+                    System.arraycopy(stored.maximums, base, maximums, base, channels);
+                    System.arraycopy(stored.sums, base, sums, base, channels);
+                } else if (bucketIds[slot] == bucket) {
+                    counts[slot] += stored.counts[slot];
+                    for (int c = base; c < base + channels; c++) {
+                        minimums[c] = Math.min(minimums[c], stored.minimums[c]);
+                        maximums[c] = Math.max(maximums[c], stored.maximums[c]);
+                        sums[c] += stored.sums[c];
+                    }
+                } else {
+                    continue; // The live ring already moved past it
+                }
+                if (firstBucket == Long.MIN_VALUE || bucket < firstBucket) firstBucket = bucket;
+            }
+            newestBucket = newest;
+            fileMatches = true;
+        }
+
+        /** @return the records touched since the last call, or {@code null} if none */
+        Checkpoint takeCheckpoint() {
+            if (dirtyFrom == Long.MAX_VALUE) return null;
+            // A ring the file does not match was started after its last checkpoint, so it is all dirty
+            boolean rewrite = !fileMatches;
+            long first = Math.max(dirtyFrom, newestBucket - resolution.capacity + 1);
+            int buckets = (int) (newestBucket - first + 1);
+            int recordSize = recordSize(channels);
+            ByteBuffer records = ByteBuffer.allocate(buckets * recordSize);
+            for (long bucket = first; bucket <= newestBucket; bucket++) {
+                int slot = (int) Math.floorMod(bucket, (long) resolution.capacity);
+                records.putLong(bucketIds[slot]).putInt(counts[slot]);
+                for (int c = 0, base = slot * channels; c < channels; c++) {
+                    records.putInt(minimums[base + c]).putInt(maximums[base + c]).putLong(sums[base + c]);
+                }
+            }
+            records.flip();
+            dirtyFrom = Long.MAX_VALUE;
+            fileMatches = true;
+            return new Checkpoint(channels, resolution.capacity, rewrite,
+                    (int) Math.floorMod(first, (long) resolution.capacity), records);
+        }
+
+        long coveredFrom() {
+            if (firstBucket == Long.MIN_VALUE) return Long.MAX_VALUE;
+            // The first bucket may have started before this process did, so it is only partial
+            long oldest = Math.max(firstBucket + 1, newestBucket - resolution.capacity + 1);
+            return oldest * resolution.bucketMillis;
+        }
+
+        void read(int channel, long from, long to, RollupSeries series) {
+            long first = Math.max(Math.floorDiv(from, resolution.bucketMillis), newestBucket - resolution.capacity + 1);
+            long last = Math.min(Math.floorDiv(to, resolution.bucketMillis), newestBucket);
+            for (long bucket = first; bucket <= last; bucket++) {
+                int slot = (int) Math.floorMod(bucket, (long) resolution.capacity);
+                if (counts[slot] == 0 || bucketIds[slot] != bucket) continue;
+                int at = slot * channels + channel;
+                series.add(bucket * resolution.bucketMillis, minimums[at], maximums[at], sums[at], counts[slot]);
+            }
+        }
+    }
+}
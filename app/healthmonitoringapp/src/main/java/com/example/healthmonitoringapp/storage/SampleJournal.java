@@ -0,0 +1,365 @@
+package com.example.healthmonitoringapp.storage;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.stream.SampleSink;
+import com.example.healthmonitoringapp.utils.Histogram;
+import com.example.healthmonitoringapp.utils.MacAddress;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal in front of a {@link TimeSeriesStore}.
+ *
+ * <p>The store only writes a block once it is full, so without the journal a crash loses the
+ * open block of every device. Each sample is appended here and handed to the store; a committer
+ * thread writes the accumulated records and calls {@code force()} once per group, when
+ * {@code groupCommitBytes} have built up or the oldest record has waited {@code groupCommitMillis}.
+ * All devices share one journal, so several streams still cost one fsync per group.
+ *
+ * <pre>
+ * record: length u16 | crc32(body) i32 | body
+ * body:   packed MAC i64 | sequence i64 | timestamp i64 | valueCount u8 | values i32 * valueCount
+ * </pre>
+ *
+ * <p>On open, journal files are replayed into the store up to the first torn or corrupt record,
+ * which is truncated away. Once a file grows past {@link #CHECKPOINT_BYTES} the journal rolls to a
+ * new file, flushes the store and deletes the old one.
+ */
+public class SampleJournal implements SampleSink {
+    private static final String TAG = "SampleJournal";
+
+    public static final int DEFAULT_GROUP_COMMIT_BYTES = 64 * 1024;
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 100;
+    static final long CHECKPOINT_BYTES = 8L * 1024 * 1024;
+
+    private static final String FILE_PREFIX = "journal-";
+    private static final String FILE_SUFFIX = ".wal";
+    private static final int RECORD_HEADER_SIZE = 6;
+    private static final int BODY_FIXED_SIZE = 25;
+    private static final int MAX_RECORD_SIZE =
+            RECORD_HEADER_SIZE + BODY_FIXED_SIZE + 4 * FrameDecoder.MAX_CHANNELS;
+
+    private final File dir;
+    private final TimeSeriesStore store;
+    private final int groupCommitBytes;
+    private final long groupCommitNanos;
+
+    private final Object lock = new Object();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer active;
+    private ByteBuffer standby;
+    private int activeRecords;
+    private long activeSince;
+    private boolean running = true;
+
+    // Committer thread only, apart from checkpoint swaps under the lock
+    private FileChannel channel;
+    private File currentFile;
+    private long generation;
+    private long journalBytes;
+    private final Thread committer;
+
+    private final Histogram commitLatency = new Histogram("us");
+    private final Histogram batchSize = new Histogram(" records");
+    private volatile long committedRecords;
+    private volatile long failedRecords;
+    private volatile long recoveredRecords;
+    private volatile long discardedBytes;
+
+    /**
+     * Replay any journal left by a previous run into {@code store}, then start journaling.
+     * Does file I/O; call it off the main thread.
+     */
+    public SampleJournal(File dir, TimeSeriesStore store, int groupCommitBytes, long groupCommitMillis) throws IOException {
+        this.dir = dir;
+        this.store = store;
+        this.groupCommitBytes = groupCommitBytes;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        int capacity = Math.max(groupCommitBytes, MAX_RECORD_SIZE) * 2;
+        this.active = ByteBuffer.allocate(capacity);
+        this.standby = ByteBuffer.allocate(capacity);
+
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        recover();
+        openGeneration();
+
+        committer = new Thread(this::commitLoop, "SampleJournal");
+        committer.start();
+    }
+
+    public SampleJournal(File dir, TimeSeriesStore store) throws IOException {
+        this(dir, store, DEFAULT_GROUP_COMMIT_BYTES, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+
+    /**
+     * Dispatch thread: append one record and pass the sample on to the store. Only blocks when
+     * the committer has fallen a whole group behind.
+     */
+    @Override
+    public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        int n = Math.min(valueCount, FrameDecoder.MAX_CHANNELS);
+        synchronized (lock) {
+            if (!running) return;
+            try {
+                while (active.remaining() < MAX_RECORD_SIZE && running) {
+                    lock.notifyAll();
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            int start = active.position();
+            active.position(start + RECORD_HEADER_SIZE);
+            active.putLong(MacAddress.pack(address));
+            active.putLong(sequence);
+            active.putLong(timestamp);
+            active.put((byte) n);
+            for (int i = 0; i < n; i++) {
+                active.putInt(values[i]);
+            }
+            int bodyLength = active.position() - start - RECORD_HEADER_SIZE;
+            crc.reset();
+            crc.update(active.array(), active.arrayOffset() + start + RECORD_HEADER_SIZE, bodyLength);
+            active.putShort(start, (short) bodyLength);
+            active.putInt(start + 2, (int) crc.getValue());
+
+            // Inside the lock, so a checkpoint never flushes the store ahead of its journal
+            store.onSample(address, sequence, timestamp, values, n);
+
+            if (activeRecords++ == 0) {
+                activeSince = System.nanoTime();
+                lock.notifyAll();
+            } else if (active.position() >= groupCommitBytes) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer batch;
+            int records;
+            long since;
+            synchronized (lock) {
+                try {
+                    while (running && !isCommitDue()) {
+                        if (activeRecords == 0) {
+                            lock.wait();
+                        } else {
+                            long remaining = groupCommitNanos - (System.nanoTime() - activeSince);
+                            TimeUnit.NANOSECONDS.timedWait(lock, Math.max(remaining, 1));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+                if (activeRecords == 0) {
+                    if (running) continue;
+                    break;
+                }
+                batch = active;
+                active = standby;
+                standby = batch;
+                records = activeRecords;
+                since = activeSince;
+                activeRecords = 0;
+                lock.notifyAll();
+            }
+
+            commit(batch, records, since);
+            if (journalBytes >= CHECKPOINT_BYTES) {
+                checkpoint();
+            }
+        }
+    }
+
+    private boolean isCommitDue() {
+        return activeRecords > 0
+                && (active.position() >= groupCommitBytes || System.nanoTime() - activeSince >= groupCommitNanos);
+    }
+
+    /**
+     * Committer thread: one write and one fsync for the whole group. A failed group is cut off
+     * again, so the next one starts on a record boundary instead of behind a partial record that
+     * would make recovery discard everything after it.
+     */
+    private void commit(ByteBuffer batch, int records, long since) {
+        batch.flip();
+        long start = journalBytes;
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch, start + batch.position());
+            }
+            channel.force(false);
+            journalBytes = start + batch.position();
+            committedRecords += records;
+            commitLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - since));
+            batchSize.record(records);
+        } catch (IOException e) {
+            failedRecords += records;
+            Log.e(TAG, "Journal commit of " + records + " records failed, " + failedRecords + " lost so far", e);
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateError) {
+                // The next group is written at 'start' anyway and overwrites the partial record
+                Log.e(TAG, "Cannot cut failed commit off " + currentFile, truncateError);
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * Committer thread: start a new file, make the store durable up to the switch and drop the old file.
+     */
+    private void checkpoint() {
+        FileChannel oldChannel;
+        File oldFile;
+        synchronized (lock) {
+            oldChannel = channel;
+            oldFile = currentFile;
+            try {
+                openGeneration();
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot roll journal, keeping " + oldFile, e);
+                return;
+            }
+        }
+        // Every record in the old file reached the store before the switch
+        store.flush();
+        closeQuietly(oldChannel);
+        if (!oldFile.delete()) {
+            Log.w(TAG, "Cannot delete " + oldFile);
+        }
+    }
+
+    private void openGeneration() throws IOException {
+        File file = new File(dir, String.format("%s%08d%s", FILE_PREFIX, ++generation, FILE_SUFFIX));
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        currentFile = file;
+        journalBytes = 0;
+    }
+
+    private void recover() throws IOException {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length == 0) return;
+        Arrays.sort(files);
+
+        for (File file : files) {
+            generation = Math.max(generation, parseGeneration(file));
+            try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) in.size());
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer) < 0) break;
+                }
+                buffer.flip();
+                int valid = replay(buffer);
+                if (valid < in.size()) {
+                    Log.w(TAG, "Discarding " + (in.size() - valid) + " torn bytes at the end of " + file);
+                    discardedBytes += in.size() - valid;
+                    in.truncate(valid);
+                }
+            }
+        }
+        store.flush();
+        for (File file : files) {
+            if (!file.delete()) Log.w(TAG, "Cannot delete " + file);
+        }
+        Log.d(TAG, "Recovered " + recoveredRecords + " samples from " + files.length + " journal files");
+    }
+
+    /** @return the offset just past the last intact record */
+    private int replay(ByteBuffer buffer) throws IOException {
+        int[] values = new int[FrameDecoder.MAX_CHANNELS];
+        CRC32 check = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int bodyLength = buffer.getShort(start) & 0xFFFF;
+            int expectedCrc = buffer.getInt(start + 2);
+            int bodyStart = start + RECORD_HEADER_SIZE;
+            if (bodyLength < BODY_FIXED_SIZE || bodyLength > buffer.limit() - bodyStart) break;
+
+            check.reset();
+            check.update(buffer.array(), buffer.arrayOffset() + bodyStart, bodyLength);
+            if ((int) check.getValue() != expectedCrc) break;
+
+            buffer.position(bodyStart);
+            String address = MacAddress.unpack(buffer.getLong());
+            long sequence = buffer.getLong();
+            long timestamp = buffer.getLong();
+            int n = buffer.get() & 0xFF;
+            if (n > FrameDecoder.MAX_CHANNELS || bodyLength != BODY_FIXED_SIZE + 4 * n) {
+                buffer.position(start);
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                values[i] = buffer.getInt();
+            }
+
+            // Samples the store already wrote before the crash are skipped, so replay is idempotent
+            if (store.isNewer(address, sequence, timestamp)) {
+                store.onSample(address, sequence, timestamp, values, n);
+                recoveredRecords++;
+            }
+        }
+        return buffer.position();
+    }
+
+    private static long parseGeneration(File file) {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Commit whatever is pending, make the store durable and remove the journal.
+     */
+    public void close() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        store.flush();
+        closeQuietly(channel);
+        if (!currentFile.delete()) {
+            Log.w(TAG, "Cannot delete " + currentFile);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing journal", e);
+        }
+    }
+
+    /** Time from a group's first append until its fsync returned, in microseconds. */
+    public Histogram getCommitLatencyHistogram() { return commitLatency; }
+    /** Records per fsync. */
+    public Histogram getBatchSizeHistogram() { return batchSize; }
+    public long getCommittedRecordCount() { return committedRecords; }
+    /** Records whose group failed to reach the journal; they are not crash-safe. */
+    public long getFailedRecordCount() { return failedRecords; }
+    public long getRecoveredRecordCount() { return recoveredRecords; }
+    public long getDiscardedBytes() { return discardedBytes; }
+}
@@ -0,0 +1,452 @@
+package com.example.healthmonitoringapp.storage;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.stream.SampleSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only, per-device store for raw vitals samples.
+ *
+ * <p>Samples are compressed into fixed-size blocks (see {@link BlockCodec}) which are appended to
+ * segment files through a {@link FileChannel} on a dedicated writer thread. Each device keeps an
+ * in-memory index of block time ranges, so a range query only reads the blocks it needs.
+ *
+ * <pre>
+ *   root/AABBCCDDEEFF/00000.seg, 00001.seg, ...   (64 MiB each, 16384 blocks)
+ * </pre>
+ *
+ * <p>Register it as a {@link SampleSink}: appends come from the dispatch thread and only touch
+ * memory; disk I/O, including indexing a device's existing segments the first time it is seen,
+ * happens on the writer thread. Queries also see blocks that are sealed but not yet written and the
+ * block that is still being filled, so the newest samples are readable before they reach disk.
+ */
+public class TimeSeriesStore implements SampleSink {
+    private static final String TAG = "TimeSeriesStore";
+    static final int BLOCKS_PER_SEGMENT = 16384;
+    private static final int BUFFER_POOL_SIZE = 16;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File rootDir;
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final ArrayBlockingQueue<ByteBuffer> bufferPool = new ArrayBlockingQueue<>(BUFFER_POOL_SIZE);
+    private final ExecutorService writer =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "TimeSeriesWriter"));
+
+    public TimeSeriesStore(File rootDir) {
+        this.rootDir = rootDir;
+        if (!rootDir.isDirectory() && !rootDir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + rootDir);
+        }
+    }
+
+    @Override
+    public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        Series target = series.get(address);
+        if (target == null) {
+            target = series.computeIfAbsent(address, this::openSeries);
+        }
+        target.append(sequence, timestamp, values, valueCount);
+    }
+
+    /**
+     * Emit every stored sample of {@code address} with {@code from <= timestamp <= to}, in order.
+     * Runs on the calling thread; call it off the main thread.
+     *
+     * @return the number of samples emitted
+     */
+    public int query(String address, long from, long to, SampleSink sink) throws IOException {
+        Series target = series.get(address);
+        if (target == null) {
+            if (!seriesDir(address).isDirectory()) return 0;
+            target = series.computeIfAbsent(address, this::openSeries);
+        }
+        return target.query(from, to, sink);
+    }
+
+    /**
+     * Whether a sample sorts after the newest one accepted for {@code address}, by timestamp and
+     * then sequence, so replaying data that is already stored is a no-op. Waits for the series to be
+     * indexed the first time; call it off the main thread.
+     */
+    public boolean isNewer(String address, long sequence, long timestamp) throws IOException {
+        Series target = series.get(address);
+        if (target == null) {
+            if (!seriesDir(address).isDirectory()) return true;
+            target = series.computeIfAbsent(address, this::openSeries);
+        }
+        return target.isNewer(sequence, timestamp);
+    }
+
+    /**
+     * Seal every partially filled block and force it to disk.
+     */
+    public void flush() {
+        for (Series s : series.values()) {
+            s.sealCurrent();
+        }
+        awaitWriter();
+        for (Series s : series.values()) {
+            s.force();
+        }
+    }
+
+    public void close() {
+        flush();
+        writer.shutdown();
+        for (Series s : series.values()) {
+            s.close();
+        }
+    }
+
+    /** Addresses that have data on disk. */
+    public List<String> getStoredAddresses() {
+        List<String> addresses = new ArrayList<>();
+        File[] dirs = rootDir.listFiles(File::isDirectory);
+        if (dirs == null) return addresses;
+        for (File dir : dirs) {
+            String hex = dir.getName();
+            if (hex.length() != 12) continue;
+            StringBuilder address = new StringBuilder(17);
+            for (int i = 0; i < 12; i += 2) {
+                if (i > 0) address.append(':');
+                address.append(hex, i, i + 2);
+            }
+            addresses.add(address.toString());
+        }
+        return addresses;
+    }
+
+    private File seriesDir(String address) {
+        return new File(rootDir, address.replace(":", "").toUpperCase());
+    }
+
+    /**
+     * Only allocates: the index is rebuilt on the writer thread, ahead of any block the new
+     * series hands it, so the dispatch thread never waits for a segment scan.
+     */
+    private Series openSeries(String address) {
+        Series s = new Series(address, seriesDir(address));
+        writer.execute(s::loadOnWriter);
+        return s;
+    }
+
+    private ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = bufferPool.poll();
+        return (buffer != null) ? buffer : ByteBuffer.allocate(BlockCodec.BLOCK_SIZE);
+    }
+
+    private void awaitWriter() {
+        try {
+            writer.submit(() -> { }).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            Log.e(TAG, "Writer did not drain", e);
+        }
+    }
+
+    /**
+     * One device: the open block, the segment files and the block index.
+     */
+    private final class Series {
+        final String address;
+        final File dir;
+        final BlockCodec.Writer blockWriter;
+        final List<FileChannel> segments = new ArrayList<>();
+
+        /** Released once the existing segments are indexed. */
+        final CountDownLatch loaded = new CountDownLatch(1);
+
+        /** Sealed blocks the writer has not indexed yet, oldest first; guarded by this. */
+        final ArrayDeque<ByteBuffer> unwritten = new ArrayDeque<>();
+
+        // Block index, appended by the writer thread once a block is on disk; guarded by this
+        long[] firstTimestamps = new long[256];
+        long[] lastTimestamps = new long[256];
+        int indexedBlocks;
+
+        /** Writer thread: next block slot to write (segment * BLOCKS_PER_SEGMENT + block). */
+        long nextBlock;
+        // Guarded by this
+        long lastTimestamp = Long.MIN_VALUE;
+        long lastSequence = Long.MIN_VALUE;
+
+        Series(String address, File dir) {
+            this.address = address;
+            this.dir = dir;
+            this.blockWriter = new BlockCodec.Writer(acquireBuffer());
+        }
+
+        /** Writer thread. */
+        void loadOnWriter() {
+            try {
+                load();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to index " + address + ", starting a new segment", e);
+            } finally {
+                loaded.countDown();
+            }
+        }
+
+        /** Block until {@link #loadOnWriter()} ran; never call it on the writer thread. */
+        void awaitLoaded() throws IOException {
+            try {
+                loaded.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while indexing " + address, e);
+            }
+        }
+
+        /**
+         * Rebuild the index from the stored blocks, checking each one's CRC. Everything from the first
+         * torn block on is cut off, including later segment files, so index entry i stays block slot i
+         * and the newest sample is one that actually survived, which journal replay relies on.
+         */
+        private void load() throws IOException {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+            if (files == null) files = new File[0];
+            Arrays.sort(files);
+
+            ByteBuffer block = ByteBuffer.allocate(BlockCodec.BLOCK_SIZE);
+            int next = 0;
+            for (; next < files.length; next++) {
+                File file = files[next];
+                if (!file.equals(segmentFile(next))) break; // A gap in the numbering
+                FileChannel channel = openSegment(file);
+                long blocks = channel.size() / BlockCodec.BLOCK_SIZE;
+                long valid = 0;
+                while (valid < blocks) {
+                    block.clear();
+                    long position = valid * BlockCodec.BLOCK_SIZE;
+                    while (block.hasRemaining()) {
+                        if (channel.read(block, position + block.position()) < 0) break;
+                    }
+                    if (!BlockCodec.isValid(block)) break;
+                    synchronized (this) {
+                        addToIndex(BlockCodec.firstTimestamp(block), BlockCodec.lastTimestamp(block));
+                        advanceLast(BlockCodec.lastSequence(block), BlockCodec.lastTimestamp(block));
+                    }
+                    valid++;
+                }
+                if (valid * BlockCodec.BLOCK_SIZE != channel.size()) {
+                    Log.w(TAG, "Truncating torn tail of " + file);
+                    channel.truncate(valid * BlockCodec.BLOCK_SIZE);
+                }
+                synchronized (segments) {
+                    segments.add(channel);
+                    nextBlock = (long) (segments.size() - 1) * BLOCKS_PER_SEGMENT + valid;
+                }
+                if (valid < BLOCKS_PER_SEGMENT) {
+                    next++;
+                    break;
+                }
+            }
+            for (; next < files.length; next++) {
+                Log.w(TAG, "Deleting " + files[next] + ", it follows a torn segment");
+                if (!files[next].delete()) throw new IOException("Cannot delete " + files[next]);
+            }
+        }
+
+        synchronized void append(long sequence, long timestamp, int[] values, int valueCount) {
+            if (!blockWriter.append(sequence, timestamp, values, valueCount)) {
+                sealCurrentLocked();
+                blockWriter.append(sequence, timestamp, values, valueCount);
+            }
+            advanceLast(sequence, timestamp);
+        }
+
+        /** Samples may be appended before the stored ones are indexed, so only ever move forward. */
+        private void advanceLast(long sequence, long timestamp) {
+            if (isNewerLocked(sequence, timestamp)) {
+                lastTimestamp = timestamp;
+                lastSequence = sequence;
+            }
+        }
+
+        boolean isNewer(long sequence, long timestamp) throws IOException {
+            awaitLoaded();
+            synchronized (this) {
+                return isNewerLocked(sequence, timestamp);
+            }
+        }
+
+        private boolean isNewerLocked(long sequence, long timestamp) {
+            return timestamp > lastTimestamp || (timestamp == lastTimestamp && sequence > lastSequence);
+        }
+
+        synchronized void sealCurrent() {
+            sealCurrentLocked();
+        }
+
+        private void sealCurrentLocked() {
+            if (blockWriter.isEmpty()) return;
+            ByteBuffer sealed = blockWriter.seal();
+            long first = blockWriter.getFirstTimestamp();
+            long last = blockWriter.getLastTimestamp();
+            blockWriter.reset(acquireBuffer());
+            unwritten.add(sealed);
+            writer.execute(() -> writeBlock(sealed, first, last));
+        }
+
+        /** Writer thread; slots are assigned here because loading decides where the series continues. */
+        private void writeBlock(ByteBuffer block, long first, long last) {
+            long slot = nextBlock++;
+            try {
+                FileChannel channel = segment((int) (slot / BLOCKS_PER_SEGMENT));
+                long position = (slot % BLOCKS_PER_SEGMENT) * BlockCodec.BLOCK_SIZE;
+                while (block.hasRemaining()) {
+                    position += channel.write(block, position);
+                }
+            } catch (IOException e) {
+                // Still indexed so entry i stays block slot i; the CRC check skips it on read
+                Log.e(TAG, "Failed to write block for " + address, e);
+            } finally {
+                synchronized (this) {
+                    addToIndex(first, last);
+                    // Blocks are written in seal order, so this one is the head. ByteBuffer.equals
+                    // compares content, so never look it up with remove(Object).
+                    ByteBuffer head = unwritten.pollFirst();
+                    if (head != block) {
+                        Log.e(TAG, "Block written out of order for " + address);
+                        if (head != null) unwritten.addFirst(head);
+                        unwritten.removeIf(pending -> pending == block);
+                    }
+                }
+                bufferPool.offer(block);
+            }
+        }
+
+        private FileChannel segment(int index) throws IOException {
+            synchronized (segments) {
+                while (segments.size() <= index) {
+                    segments.add(openSegment(segmentFile(segments.size())));
+                }
+                return segments.get(index);
+            }
+        }
+
+        private File segmentFile(int index) {
+            return new File(dir, String.format("%05d%s", index, SEGMENT_SUFFIX));
+        }
+
+        private FileChannel openSegment(File file) throws IOException {
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        private void addToIndex(long first, long last) {
+            if (indexedBlocks == firstTimestamps.length) {
+                firstTimestamps = Arrays.copyOf(firstTimestamps, indexedBlocks * 2);
+                lastTimestamps = Arrays.copyOf(lastTimestamps, indexedBlocks * 2);
+            }
+            firstTimestamps[indexedBlocks] = first;
+            lastTimestamps[indexedBlocks] = last;
+            indexedBlocks++;
+        }
+
+        int query(long from, long to, SampleSink sink) throws IOException {
+            awaitLoaded();
+            int start;
+            int end;
+            List<ByteBuffer> tail = new ArrayList<>();
+            synchronized (this) {
+                // First block whose range can still reach 'from'
+                start = lowerBound(lastTimestamps, indexedBlocks, from);
+                end = indexedBlocks;
+                // Copied now: the writer recycles sealed buffers once they are indexed
+                for (ByteBuffer sealed : unwritten) {
+                    if (BlockCodec.lastTimestamp(sealed) < from) continue;
+                    ByteBuffer copy = ByteBuffer.allocate(BlockCodec.BLOCK_SIZE);
+                    copy.put(sealed.array(), sealed.arrayOffset(), BlockCodec.BLOCK_SIZE);
+                    tail.add(copy);
+                }
+                if (!blockWriter.isEmpty() && blockWriter.getLastTimestamp() >= from) {
+                    tail.add(blockWriter.snapshot());
+                }
+            }
+
+            ByteBuffer block = ByteBuffer.allocate(BlockCodec.BLOCK_SIZE);
+            int[] scratch = new int[BlockCodec.MAX_CHANNELS];
+            int emitted = 0;
+            for (int i = start; i < end; i++) {
+                long first;
+                synchronized (this) {
+                    first = firstTimestamps[i];
+                }
+                if (first > to) break;
+
+                block.clear();
+                FileChannel channel = segment(i / BLOCKS_PER_SEGMENT);
+                long position = (long) (i % BLOCKS_PER_SEGMENT) * BlockCodec.BLOCK_SIZE;
+                while (block.hasRemaining()) {
+                    if (channel.read(block, position + block.position()) < 0) break;
+                }
+                if (!BlockCodec.isValid(block)) {
+                    Log.w(TAG, "Skipping corrupt block " + i + " of " + address);
+                    continue;
+                }
+                emitted += BlockCodec.decode(block, address, from, to, sink, scratch);
+            }
+            for (ByteBuffer recent : tail) {
+                emitted += BlockCodec.decode(recent, address, from, to, sink, scratch);
+            }
+            return emitted;
+        }
+
+        void force() {
+            synchronized (segments) {
+                for (FileChannel channel : segments) {
+                    try {
+                        channel.force(false);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Failed to sync " + address, e);
+                    }
+                }
+            }
+        }
+
+        void close() {
+            synchronized (segments) {
+                for (FileChannel channel : segments) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Failed to close " + address, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Index of the first entry in {@code sorted[0..length)} that is {@code >= key}. */
+    private static int lowerBound(long[] sorted, int length, long key) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.healthmonitoringapp.stream;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+
+/**
+ * Array-backed chunk of samples handed to the UI in one go.
+ * Channel values are stored row-major with a fixed stride of {@link FrameDecoder#MAX_CHANNELS}.
+ *
+ * <p>Batches are pooled: a listener must not keep a reference after its callback returns.
+ */
+public final class SampleBatch {
+    public static final int STRIDE = FrameDecoder.MAX_CHANNELS;
+
+    private final String[] addresses;
+    private final long[] timestamps;
+    private final long[] sequences;
+    private final int[] valueCounts;
+    private final int[] values;
+    private int size;
+
+    /** Set by {@link SampleBatcher} so a pooled batch can be delivered without allocating a Runnable. */
+    Runnable deliveryTask;
+
+    public SampleBatch(int capacity) {
+        addresses = new String[capacity];
+        timestamps = new long[capacity];
+        sequences = new long[capacity];
+        valueCounts = new int[capacity];
+        values = new int[capacity * STRIDE];
+    }
+
+    boolean add(String address, long sequence, long timestamp, int[] sampleValues, int valueCount) {
+        if (size == timestamps.length) return false;
+        int count = Math.min(valueCount, STRIDE);
+        addresses[size] = address;
+        timestamps[size] = timestamp;
+        sequences[size] = sequence;
+        valueCounts[size] = count;
+        System.arraycopy(sampleValues, 0, values, size * STRIDE, count);
+        size++;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public int capacity() { return timestamps.length; }
+    public boolean isFull() { return size == timestamps.length; }
+
+    public String getAddress(int index) { return addresses[index]; }
+    public long getTimestamp(int index) { return timestamps[index]; }
+    public long getSequence(int index) { return sequences[index]; }
+    public int getValueCount(int index) { return valueCounts[index]; }
+    public int getValue(int index, int channel) { return values[index * STRIDE + channel]; }
+
+    /** Raw row-major backing array, {@code size() * STRIDE} entries are meaningful. */
+    public int[] getValues() { return values; }
+}
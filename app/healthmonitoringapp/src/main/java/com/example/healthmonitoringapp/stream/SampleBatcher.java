@@ -0,0 +1,104 @@
+package com.example.healthmonitoringapp.stream;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Collects samples from the dispatch thread and hands them to a listener on {@code deliveryHandler}
+ * as one {@link SampleBatch} when either {@code maxBatchSize} samples are queued or the oldest queued
+ * sample is {@code maxLatencyMillis} old, whichever comes first.
+ *
+ * <p>Batches come from a small preallocated pool, so steady-state delivery allocates nothing.
+ * If the listener falls behind and the pool runs dry, new samples are dropped and counted.
+ */
+public class SampleBatcher {
+    private static final int POOL_SIZE = 8;
+
+    /**
+     * Receives batches on the delivery handler's thread.
+     */
+    public interface BatchListener {
+        void onBatch(SampleBatch batch);
+    }
+
+    private final Handler deliveryHandler;
+    private final BatchListener listener;
+    private final int maxBatchSize;
+    private final long maxLatencyMillis;
+    private final ArrayBlockingQueue<SampleBatch> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final Runnable latencyFlush = this::flush;
+
+    private SampleBatch current;
+    private long droppedSamples;
+    private long deliveredBatches;
+
+    public SampleBatcher(Handler deliveryHandler, BatchListener listener, int maxBatchSize, long maxLatencyMillis) {
+        if (maxBatchSize <= 0) throw new IllegalArgumentException("maxBatchSize must be positive");
+        if (maxLatencyMillis <= 0) throw new IllegalArgumentException("maxLatencyMillis must be positive");
+
+        this.deliveryHandler = deliveryHandler;
+        this.listener = listener;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyMillis = maxLatencyMillis;
+
+        for (int i = 0; i < POOL_SIZE; i++) {
+            SampleBatch batch = new SampleBatch(maxBatchSize);
+            batch.deliveryTask = () -> deliver(batch);
+            pool.offer(batch);
+        }
+    }
+
+    /**
+     * Queue one sample. Called from the sample dispatch thread.
+     */
+    public synchronized void add(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        if (current == null) {
+            current = pool.poll();
+            if (current == null) {
+                droppedSamples++;
+                return;
+            }
+            deliveryHandler.postAtTime(latencyFlush, this, SystemClock.uptimeMillis() + maxLatencyMillis);
+        }
+
+        current.add(address, sequence, timestamp, values, valueCount);
+        if (current.isFull()) {
+            flush();
+        }
+    }
+
+    /**
+     * Hand over whatever is queued right now, even if the batch is not full.
+     */
+    public synchronized void flush() {
+        deliveryHandler.removeCallbacksAndMessages(this);
+        if (current == null) return;
+
+        SampleBatch batch = current;
+        current = null;
+        if (batch.size() == 0) {
+            pool.offer(batch);
+            return;
+        }
+        deliveryHandler.post(batch.deliveryTask);
+    }
+
+    private void deliver(SampleBatch batch) {
+        try {
+            listener.onBatch(batch);
+        } finally {
+            batch.clear();
+            synchronized (this) {
+                deliveredBatches++;
+            }
+            pool.offer(batch);
+        }
+    }
+
+    public int getMaxBatchSize() { return maxBatchSize; }
+    public long getMaxLatencyMillis() { return maxLatencyMillis; }
+    public synchronized long getDroppedSamples() { return droppedSamples; }
+    public synchronized long getDeliveredBatches() { return deliveredBatches; }
+}
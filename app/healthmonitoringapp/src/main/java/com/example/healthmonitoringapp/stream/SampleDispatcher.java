@@ -0,0 +1,117 @@
+package com.example.healthmonitoringapp.stream;
+
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single consumer thread for any number of per-device {@link SampleRingBuffer}s: drains them
+ * round-robin and fans the merged stream out to every registered {@link SampleSink}.
+ * A slow sink only delays this thread, never a socket reader.
+ */
+public class SampleDispatcher implements SampleSink {
+    private static final String TAG = "SampleDispatcher";
+    private static final int DRAIN_CHUNK = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final class Source {
+        final String address;
+        final SampleRingBuffer ringBuffer;
+
+        Source(String address, SampleRingBuffer ringBuffer) {
+            this.address = address;
+            this.ringBuffer = ringBuffer;
+        }
+    }
+
+    private final CopyOnWriteArrayList<Source> sources = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<SampleSink> sinks = new CopyOnWriteArrayList<>();
+    private final Thread thread;
+
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    public SampleDispatcher(String name) {
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Start draining {@code ringBuffer}; its samples are tagged with {@code address}.
+     * Each ring must have exactly one producer.
+     */
+    public void addSource(String address, SampleRingBuffer ringBuffer) {
+        sources.add(new Source(address, ringBuffer));
+    }
+
+    public void removeSource(SampleRingBuffer ringBuffer) {
+        for (Source source : sources) {
+            if (source.ringBuffer == ringBuffer) {
+                sources.remove(source);
+            }
+        }
+    }
+
+    public void addSink(SampleSink sink) {
+        sinks.addIfAbsent(sink);
+    }
+
+    public void removeSink(SampleSink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * Wake the dispatcher after a producer published new samples. Cheap when it is already awake.
+     */
+    public void signal() {
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            int drained = 0;
+            for (Source source : sources) {
+                drained += source.ringBuffer.drain(source.address, this, DRAIN_CHUNK);
+            }
+            if (drained > 0) continue;
+
+            parked = true;
+            if (allEmpty() && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            parked = false;
+        }
+    }
+
+    private boolean allEmpty() {
+        for (Source source : sources) {
+            if (!source.ringBuffer.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void onSample(String address, long sequence, long timestamp, int[] values, int valueCount) {
+        for (SampleSink sink : sinks) {
+            try {
+                sink.onSample(address, sequence, timestamp, values, valueCount);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Sample sink failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.healthmonitoringapp.stream;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preallocated single-producer / single-consumer ring of primitive samples
+ * (timestamp, sequence and up to {@link FrameDecoder#MAX_CHANNELS} channel values).
+ *
+ * <p>The socket reader is the only producer and never blocks: when the ring is full the
+ * {@link OverflowPolicy} decides whether the incoming or the oldest queued sample is discarded.
+ * With {@link OverflowPolicy#DROP_OLDEST} the producer advances the read index with a CAS,
+ * so the consumer only accepts a slot after winning the same CAS.
+ */
+public class SampleRingBuffer {
+    public static final int STRIDE = FrameDecoder.MAX_CHANNELS;
+
+    public enum OverflowPolicy {
+        /** Keep the queued samples and discard the one being offered. */
+        DROP_NEWEST,
+        /** Overwrite the oldest queued sample; consumers always see the freshest data. */
+        DROP_OLDEST
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    private final long[] timestamps;
+    private final long[] sequences;
+    private final int[] valueCounts;
+    private final int[] values;
+
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong offeredCount = new AtomicLong();
+
+    /** Consumer-owned scratch row handed to sinks. */
+    private final int[] scratch = new int[STRIDE];
+
+    /**
+     * @param capacity rounded up to the next power of two
+     */
+    public SampleRingBuffer(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = (Integer.bitCount(capacity) == 1) ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.mask = this.capacity - 1;
+        this.policy = policy;
+
+        timestamps = new long[this.capacity];
+        sequences = new long[this.capacity];
+        valueCounts = new int[this.capacity];
+        values = new int[this.capacity * STRIDE];
+    }
+
+    /**
+     * Producer side. Never blocks.
+     *
+     * @return {@code false} if the sample was discarded under {@link OverflowPolicy#DROP_NEWEST}
+     */
+    public boolean offer(long sequence, long timestamp, int[] sampleValues, int valueCount) {
+        offeredCount.lazySet(offeredCount.get() + 1);
+        long write = writeIndex.get();
+
+        while (write - readIndex.get() >= capacity) {
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                overflowCount.incrementAndGet();
+                return false;
+            }
+            long read = readIndex.get();
+            if (write - read >= capacity && readIndex.compareAndSet(read, read + 1)) {
+                overflowCount.incrementAndGet();
+            }
+        }
+
+        int slot = (int) (write & mask);
+        int count = Math.min(valueCount, STRIDE);
+        timestamps[slot] = timestamp;
+        sequences[slot] = sequence;
+        valueCounts[slot] = count;
+        System.arraycopy(sampleValues, 0, values, slot * STRIDE, count);
+        writeIndex.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side: hand up to {@code maxSamples} queued samples to {@code sink}, tagged with {@code address}.
+     *
+     * @return the number of samples delivered
+     */
+    public int drain(String address, SampleSink sink, int maxSamples) {
+        int delivered = 0;
+        while (delivered < maxSamples) {
+            long read = readIndex.get();
+            if (read >= writeIndex.get()) break;
+
+            int slot = (int) (read & mask);
+            long timestamp = timestamps[slot];
+            long sequence = sequences[slot];
+            int count = valueCounts[slot];
+            System.arraycopy(values, slot * STRIDE, scratch, 0, count);
+
+            // Lost the slot to the producer overwriting it, re-read from the new head
+            if (!readIndex.compareAndSet(read, read + 1)) continue;
+
+            sink.onSample(address, sequence, timestamp, scratch, count);
+            delivered++;
+        }
+        return delivered;
+    }
+
+    public boolean isEmpty() {
+        return readIndex.get() >= writeIndex.get();
+    }
+
+    public int size() {
+        return (int) Math.max(0, writeIndex.get() - readIndex.get());
+    }
+
+    public int capacity() { return capacity; }
+    public OverflowPolicy getOverflowPolicy() { return policy; }
+
+    /** Samples discarded because the ring was full, under either policy. */
+    public long getOverflowCount() { return overflowCount.get(); }
+
+    /** Samples handed to {@link #offer}, including those that were later dropped. */
+    public long getOfferedCount() { return offeredCount.get(); }
+}
@@ -0,0 +1,15 @@
+package com.example.healthmonitoringapp.stream;
+
+/**
+ * Downstream consumer of decoded samples (charts, storage, signal processing).
+ * Called on the sample dispatch thread; implementations must not block.
+ */
+public interface SampleSink {
+    /**
+     * @param address  MAC address of the device the sample came from
+     * @param sequence continuous per-device stream sequence, see {@link StreamContinuity}
+     * @param values   reused between calls; only the first {@code valueCount} entries are valid
+     *                 and only for the duration of the call
+     */
+    void onSample(String address, long sequence, long timestamp, int[] values, int valueCount);
+}
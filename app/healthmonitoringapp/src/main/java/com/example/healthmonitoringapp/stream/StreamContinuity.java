@@ -0,0 +1,201 @@
+package com.example.healthmonitoringapp.stream;
+
+/**
+ * Per-device sequence bookkeeping that outlives a single connection.
+ *
+ * <p>Sensors number frames with a wrapping 16-bit counter. This turns that into a monotonic
+ * 64-bit stream sequence which continues across reconnects, so samples from a resumed session
+ * line up after the ones received before the link dropped. Gaps inside a session and across
+ * a reconnect are measured along the way.
+ *
+ * <p>{@link #unwrap} is called from the reader thread of whichever session currently owns the
+ * device; the getters may be read from any thread.
+ */
+public class StreamContinuity {
+    private static final int SEQUENCE_MODULO = 1 << 16;
+    /** Samples needed before the sample period estimate is trusted for gap checks. */
+    private static final int MIN_SAMPLES_FOR_PERIOD = 64;
+    /** How far a derived sample time may trail its receive time before the clock re-anchors. */
+    private static final long MAX_CLOCK_LAG_MILLIS = 1000;
+
+    private final String address;
+
+    // Reader-thread state
+    private boolean started;
+    private boolean resuming;
+    private int lastRawSequence;
+    private long streamSequence;
+    private long sessionFirstSequence;
+    private long sessionFirstTimestamp;
+    private double samplePeriodMillis;
+    private boolean clockAnchored;
+    private long anchorSequence;
+    private long anchorTimestamp;
+    private double anchorPeriodMillis;
+    private long lastSampleSequence;
+    private long lastSampleTime;
+
+    private volatile long lastTimestamp;
+    private volatile long sessionCount;
+    private volatile long lostSamples;
+    private volatile long lastGapSamples;
+    private volatile long lastGapMillis;
+    private volatile long totalGapSamples;
+
+    private volatile long reconnectCount;
+    private volatile long lastReconnectLatencyMillis;
+    private volatile long maxReconnectLatencyMillis;
+    private volatile long totalReconnectLatencyMillis;
+
+    public StreamContinuity(String address) {
+        this.address = address;
+    }
+
+    /**
+     * Mark the start of a new connection; the next sample is stitched onto the previous session.
+     */
+    public void beginSession() {
+        resuming = started;
+        sessionCount++;
+    }
+
+    /**
+     * Map a raw 16-bit device sequence to the continuous stream sequence.
+     */
+    public long unwrap(int rawSequence, long timestamp) {
+        if (!started) {
+            started = true;
+            streamSequence = rawSequence;
+            markSessionStart(timestamp);
+        } else if (resuming) {
+            resuming = false;
+            long gapMillis = Math.max(0, timestamp - lastTimestamp);
+            long delta = resumeDelta(rawSequence, gapMillis);
+            streamSequence += delta;
+            lastGapSamples = delta - 1;
+            lastGapMillis = gapMillis;
+            totalGapSamples += delta - 1;
+            markSessionStart(timestamp);
+        } else {
+            int delta = (rawSequence - lastRawSequence) & (SEQUENCE_MODULO - 1);
+            if (delta > 1) {
+                lostSamples += delta - 1;
+            }
+            streamSequence += delta;
+            if (timestamp != lastTimestamp) {
+                updateSamplePeriod(timestamp);
+            }
+        }
+
+        lastRawSequence = rawSequence;
+        lastTimestamp = timestamp;
+        return streamSequence;
+    }
+
+    /**
+     * Time of the sample at {@code streamSequence}, which arrived in a read chunk received at
+     * {@code chunkTimestamp}. Every sample of a chunk shares the receive time, so times are
+     * derived from the sequence and the estimated sample period instead, counted from an anchor.
+     * The clock re-anchors to the receive time whenever the derived time would be later than
+     * it (a sample cannot arrive before it was taken) or trails it by more than
+     * {@link #MAX_CLOCK_LAG_MILLIS}, so times never go backwards and cannot drift. Until the
+     * period is known the receive time is used as is.
+     *
+     * <p>Reader thread; call after {@link #unwrap} for the same sample.
+     */
+    public long sampleTime(long streamSequence, long chunkTimestamp) {
+        if (samplePeriodMillis <= 0) return chunkTimestamp;
+        if (clockAnchored && anchorPeriodMillis != samplePeriodMillis) {
+            // Continue from the last sample at the new period instead of jumping
+            anchor(lastSampleSequence, lastSampleTime);
+        }
+        long time = chunkTimestamp;
+        if (clockAnchored) {
+            long derived = anchorTimestamp + Math.round((streamSequence - anchorSequence) * samplePeriodMillis);
+            if (derived <= chunkTimestamp && chunkTimestamp - derived <= MAX_CLOCK_LAG_MILLIS) {
+                time = derived;
+            } else {
+                anchor(streamSequence, chunkTimestamp);
+            }
+        } else {
+            anchor(streamSequence, chunkTimestamp);
+        }
+        lastSampleSequence = streamSequence;
+        lastSampleTime = time;
+        return time;
+    }
+
+    private void anchor(long sequence, long timestamp) {
+        clockAnchored = true;
+        anchorSequence = sequence;
+        anchorTimestamp = timestamp;
+        anchorPeriodMillis = samplePeriodMillis;
+    }
+
+    /**
+     * Trust the device counter when it agrees with the elapsed time; a sensor that restarted
+     * its counter while the link was down is placed by elapsed time instead.
+     */
+    private long resumeDelta(int rawSequence, long gapMillis) {
+        long counterDelta = (rawSequence - lastRawSequence) & (SEQUENCE_MODULO - 1);
+        if (samplePeriodMillis <= 0) {
+            return Math.max(1, counterDelta);
+        }
+
+        long timeDelta = Math.max(1, Math.round(gapMillis / samplePeriodMillis));
+        if (timeDelta >= SEQUENCE_MODULO) {
+            // Counter wrapped at least once while disconnected; only time can tell how far
+            return timeDelta;
+        }
+        long tolerance = Math.max(2, timeDelta / 4);
+        return (counterDelta > 0 && Math.abs(counterDelta - timeDelta) <= tolerance) ? counterDelta : timeDelta;
+    }
+
+    private void markSessionStart(long timestamp) {
+        sessionFirstSequence = streamSequence;
+        sessionFirstTimestamp = timestamp;
+        clockAnchored = false;
+    }
+
+    /**
+     * Called on the first sample of each read chunk: every sample in a chunk shares its receive
+     * time, so measuring within one would make the period shrink across it.
+     */
+    private void updateSamplePeriod(long timestamp) {
+        long samples = streamSequence - sessionFirstSequence;
+        if (samples >= MIN_SAMPLES_FOR_PERIOD && timestamp > sessionFirstTimestamp) {
+            samplePeriodMillis = (double) (timestamp - sessionFirstTimestamp) / samples;
+        }
+    }
+
+    /**
+     * Record how long the device was unreachable before a reconnect succeeded.
+     */
+    public synchronized void recordReconnect(long latencyMillis) {
+        reconnectCount++;
+        lastReconnectLatencyMillis = latencyMillis;
+        maxReconnectLatencyMillis = Math.max(maxReconnectLatencyMillis, latencyMillis);
+        totalReconnectLatencyMillis += latencyMillis;
+    }
+
+    public String getAddress() { return address; }
+    /** Receive time of the last chunk that carried a sample. */
+    public long getLastTimestamp() { return lastTimestamp; }
+    public long getSessionCount() { return sessionCount; }
+
+    /** Samples missing inside a session, judged by the device counter. */
+    public long getLostSamples() { return lostSamples; }
+
+    /** Samples missed across the most recent reconnect. */
+    public long getLastGapSamples() { return lastGapSamples; }
+    public long getLastGapMillis() { return lastGapMillis; }
+    public long getTotalGapSamples() { return totalGapSamples; }
+
+    public long getReconnectCount() { return reconnectCount; }
+    public long getLastReconnectLatencyMillis() { return lastReconnectLatencyMillis; }
+    public long getMaxReconnectLatencyMillis() { return maxReconnectLatencyMillis; }
+
+    public synchronized long getAverageReconnectLatencyMillis() {
+        return (reconnectCount == 0) ? 0 : totalReconnectLatencyMillis / reconnectCount;
+    }
+}
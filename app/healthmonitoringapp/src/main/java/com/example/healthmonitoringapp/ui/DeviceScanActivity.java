@@ -28,11 +28,15 @@ import com.example.healthmonitoringapp.R;
 import com.example.healthmonitoringapp.adapter.DevicesAdapter;
 import com.example.healthmonitoringapp.model.Device;
 import com.example.healthmonitoringapp.services.BluetoothScanService;
+import com.example.healthmonitoringapp.services.ScanIngestor;
+import com.example.healthmonitoringapp.utils.DeviceSearch;
+import com.example.healthmonitoringapp.utils.SignalOrder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
-public class DeviceScanActivity extends AppCompatActivity implements DevicesAdapter.OnDeviceClickListener {
+public class DeviceScanActivity extends AppCompatActivity implements DevicesAdapter.OnDeviceClickListener, ScanIngestor.Listener {
     private static final String TAG = "DeviceScanActivity";
     private static final int REQUEST_ENABLE_BT = 1;
     private static final int REQUEST_BLUETOOTH_PERMISSIONS = 100;
@@ -40,6 +44,7 @@ public class DeviceScanActivity extends AppCompatActivity implements DevicesAdap
     private BluetoothAdapter bluetoothAdapter;
     private BluetoothScanService bluetoothScanService;
     private DevicesAdapter devicesAdapter;
+    private DeviceSearch deviceSearch;
 
     private List<Device> deviceList = new ArrayList<>();
     private List<Device> filteredDevicesList = new ArrayList<>();
@@ -67,7 +72,8 @@ public class DeviceScanActivity extends AppCompatActivity implements DevicesAdap
         recyclerViewDevices.setLayoutManager(new LinearLayoutManager(this));
         recyclerViewDevices.setAdapter(devicesAdapter);
 
-        bluetoothScanService = new BluetoothScanService(this, this, deviceList);
+        bluetoothScanService = new BluetoothScanService(this, this, deviceList, this);
+        deviceSearch = new DeviceSearch(this::onSearchResults);
 
         checkBluetoothSupport();
         checkAndRequestBluetoothPermissions();
@@ -141,6 +147,7 @@ public class DeviceScanActivity extends AppCompatActivity implements DevicesAdap
         }
 
         progressBar.setVisibility(View.VISIBLE);
+        devicesAdapter.resetBindCount();
         bluetoothScanService.startBluetoothScan();
         showToast("Scanning for devices...");
     }
@@ -151,13 +158,42 @@ public class DeviceScanActivity extends AppCompatActivity implements DevicesAdap
     private void stopScan() {
         progressBar.setVisibility(View.GONE);
         bluetoothScanService.stopBluetoothScan();
+        Log.d(TAG, "Scan burst: " + bluetoothScanService.getAcceptedCount() + " results, "
+                + devicesAdapter.getBindCount() + " full and " + devicesAdapter.getPartialBindCount() + " partial row binds");
         showToast("Scan stopped.");
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        bluetoothScanService.stopBluetoothScan();
+        bluetoothScanService.release();
+        deviceSearch.release();
+    }
+
+    /**
+     * ✅ Keep the visible list strongest-first by moving only the device whose signal changed
+     */
+    @Override
+    public void onSignalChanged(Device device, int previousRssi) {
+        SignalOrder.reposition(filteredDevicesList, device, previousRssi);
+    }
+
+    /**
+     * ✅ Batched scan delta (at most once per frame): add new devices that match the current search
+     * and let the adapter diff the result
+     */
+    @Override
+    public void onDevicesChanged(List<Device> added, List<Device> updated) {
+        for (Device device : updated) {
+            deviceSearch.add(device); // Re-indexes renamed devices
+        }
+        for (Device device : added) {
+            deviceSearch.add(device);
+            if (deviceSearch.matches(device)) {
+                SignalOrder.insert(filteredDevicesList, device);
+            }
+        }
+        devicesAdapter.submitList(filteredDevicesList);
     }
 
     /**
@@ -181,7 +217,7 @@ public class DeviceScanActivity extends AppCompatActivity implements DevicesAdap
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterDevices(s.toString());
+                deviceSearch.search(s.toString());
             }
 
             @Override
@@ -192,16 +228,14 @@ public class DeviceScanActivity extends AppCompatActivity implements DevicesAdap
     }
 
     /**
-     * ✅ Filter device list based on search query
+     * ✅ Show the search result in signal order; the adapter animates only the rows that appear or disappear
      */
-    private void filterDevices(String query) {
+    private void onSearchResults(String query, Set<Device> matches) {
         filteredDevicesList.clear();
         for (Device device : deviceList) {
-            if (device.getName().toLowerCase().contains(query.toLowerCase())) {
-                filteredDevicesList.add(device);
-            }
+            if (matches.contains(device)) filteredDevicesList.add(device);
         }
-        devicesAdapter.notifyDataSetChanged();
+        devicesAdapter.submitList(filteredDevicesList);
     }
 
     /**
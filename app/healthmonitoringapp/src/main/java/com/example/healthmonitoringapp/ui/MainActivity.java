@@ -1,18 +1,18 @@
 package com.example.healthmonitoringapp.ui;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
-import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.EditText;
 import android.widget.ProgressBar;
@@ -28,31 +28,60 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.healthmonitoringapp.R;
 import com.example.healthmonitoringapp.adapter.DevicesAdapter;
 import com.example.healthmonitoringapp.model.Device;
+import com.example.healthmonitoringapp.services.BluetoothEvent;
+import com.example.healthmonitoringapp.services.BluetoothEventDispatcher;
+import com.example.healthmonitoringapp.services.BluetoothService;
+import com.example.healthmonitoringapp.stream.SampleBatch;
+import com.example.healthmonitoringapp.utils.BondManager;
+import com.example.healthmonitoringapp.utils.BondedDeviceCache;
+import com.example.healthmonitoringapp.utils.DeviceRegistry;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.UUID;
 
 public class MainActivity extends AppCompatActivity {
     private static final int BLUETOOTH_PERMISSION_REQUEST_CODE = 1;
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+    private static final int SAMPLE_BATCH_SIZE = 64;
+    private static final long SAMPLE_BATCH_LATENCY_MS = 16;
 
     private EditText searchDevice;
     private RecyclerView pairedDevicesRecyclerView, newDevicesRecyclerView;
     private ProgressBar scanningProgressBar;
     private BluetoothAdapter bluetoothAdapter;
     private DevicesAdapter pairedDevicesAdapter, newDevicesAdapter;
-    private List<Device> pairedDevicesList, newDevicesList, filteredDevicesList;
-    private boolean isReceiverRegistered = false;
-    private BluetoothSocket bluetoothSocket;
-    private InputStream inputStream;
-    private OutputStream outputStream;
-    private Handler handler;
-    private Device currentPairingDevice;
+    private List<Device> pairedDevicesList, filteredDevicesList;
+    private final DeviceRegistry deviceRegistry = DeviceRegistry.getInstance();
+    private final DeviceRegistry.Listener registryListener = version -> refreshDeviceLists();
+    private boolean isRegistryListenerAdded = false;
+    private boolean isEventListenerSubscribed = false;
+    private BluetoothService bluetoothService;
+    private boolean isServiceBound = false;
+
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            bluetoothService = ((BluetoothService.LocalBinder) service).getService();
+            bluetoothService.setBluetoothDataListener(new BluetoothService.BluetoothDataListener() {
+                @Override
+                public void onSamplesReceived(SampleBatch batch) {
+                    Log.d("Bluetooth", "Received " + batch.size() + " samples");
+                }
+            }, SAMPLE_BATCH_SIZE, SAMPLE_BATCH_LATENCY_MS);
+            bluetoothService.setVitalsListener(vitals -> Log.d("Bluetooth", "Vitals: " + vitals));
+            bluetoothService.setAlertListener(alert -> {
+                Log.w("Bluetooth", "Alert: " + alert);
+                if (alert.isRaised()) {
+                    Toast.makeText(MainActivity.this, alert.getRule().getName() + " detected", Toast.LENGTH_LONG).show();
+                }
+            });
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            bluetoothService = null;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,6 +103,7 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        isServiceBound = bindService(new Intent(this, BluetoothService.class), serviceConnection, Context.BIND_AUTO_CREATE);
         checkPermissionsAndInitialize();
     }
 
@@ -94,11 +124,11 @@ public class MainActivity extends AppCompatActivity {
 
     private void initializeBluetooth() {
         pairedDevicesList = new ArrayList<>();
-        newDevicesList = new ArrayList<>();
         filteredDevicesList = new ArrayList<>();
 
         pairedDevicesAdapter = new DevicesAdapter(this, pairedDevicesList, this::connectToDevice, true);
         newDevicesAdapter = new DevicesAdapter(this, filteredDevicesList, this::pairAndConnectDevice, false);
+        pairedDevicesAdapter.setOnDeviceUnpairedListener(this::onDeviceUnpaired);
 
         pairedDevicesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         newDevicesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
@@ -106,11 +136,20 @@ public class MainActivity extends AppCompatActivity {
         pairedDevicesRecyclerView.setAdapter(pairedDevicesAdapter);
         newDevicesRecyclerView.setAdapter(newDevicesAdapter);
 
+        // ✅ Both lists are views of the shared registry, refreshed whenever it changes
+        deviceRegistry.addListener(registryListener, new Handler(Looper.getMainLooper()));
+        isRegistryListenerAdded = true;
+        // ✅ Discovery and pairing broadcasts arrive already decoded from the shared dispatcher
+        BluetoothEventDispatcher.getInstance(this).subscribe(bluetoothEventListener, new Handler(Looper.getMainLooper()));
+        isEventListenerSubscribed = true;
+
         showPairedDevices();
         discoverNewDevices();
     }
 
-    @SuppressLint("MissingPermission")
+    /**
+     * ✅ Connect through the shared BluetoothService engine; repeated taps join the running attempt
+     */
     private void connectToDevice(Device device, boolean showToast) {
         if (device == null || bluetoothAdapter == null) {
             if (showToast) {
@@ -119,39 +158,68 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(device.getAddress());
-
-        new Thread(() -> {
-            try {
-                if (bluetoothAdapter.isDiscovering()) {
-                    bluetoothAdapter.cancelDiscovery();
-                }
-
-                if (bluetoothSocket != null && bluetoothSocket.isConnected()) {
-                    bluetoothSocket.close();
-                }
+        if (bluetoothService == null) {
+            if (showToast) {
+                Toast.makeText(this, "Bluetooth service is not ready yet", Toast.LENGTH_SHORT).show();
+            }
+            return;
+        }
 
-                bluetoothSocket = bluetoothDevice.createRfcommSocketToServiceRecord(MY_UUID);
-                bluetoothSocket.connect();
+        if (!bluetoothAdapter.isEnabled()) {
+            if (showToast) {
+                Toast.makeText(this, "Bluetooth is turned off!", Toast.LENGTH_SHORT).show();
+            }
+            return;
+        }
 
-                inputStream = bluetoothSocket.getInputStream();
-                outputStream = bluetoothSocket.getOutputStream();
+        String address = device.getAddress();
+        BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(address);
+        setConnecting(address, true);
 
+        bluetoothService.connectToDevice(this, bluetoothDevice, new BluetoothService.ConnectionCallback() {
+            @Override
+            public void onSuccess() {
+                setConnectionState(address, true);
+                Log.d("Bluetooth", "Connected to: " + device.getName());
                 if (showToast) {
-                    runOnUiThread(() -> Toast.makeText(this, "Connected to " + device.getName(), Toast.LENGTH_SHORT).show());
+                    Toast.makeText(MainActivity.this, "Connected to " + device.getName(), Toast.LENGTH_SHORT).show();
                 }
+            }
 
-                readDataFromDevice();
-            } catch (IOException e) {
+            @Override
+            public void onFailure(String errorMessage) {
+                setConnectionState(address, false);
+                Log.e("Bluetooth", "Connection failed: " + errorMessage);
                 if (showToast) {
-                    runOnUiThread(() -> Toast.makeText(this, "Connection failed! Try again.", Toast.LENGTH_SHORT).show());
+                    Toast.makeText(MainActivity.this, "Connection failed! Try again.", Toast.LENGTH_SHORT).show();
                 }
             }
-        }).start();
+        });
     }
 
+    private void connectToDevice(Device device) {
+        connectToDevice(device, true);
+    }
 
-    @SuppressLint("MissingPermission")
+    private void setConnecting(String address, boolean connecting) {
+        pairedDevicesAdapter.setConnecting(address, connecting);
+        newDevicesAdapter.setConnecting(address, connecting);
+    }
+
+    private void setConnectionState(String address, boolean connected) {
+        Device device = deviceRegistry.get(address);
+        if (device != null && device.isConnected() != connected) {
+            device.setConnected(connected);
+            deviceRegistry.markChanged(device);
+        }
+        pairedDevicesAdapter.setConnectionState(address, connected);
+        newDevicesAdapter.setConnectionState(address, connected);
+    }
+
+
+    /**
+     * ✅ Pair through BondManager, off the main thread, and connect once the bond is in place
+     */
     private void pairAndConnectDevice(Device device, boolean showToast) {
         if (device == null || bluetoothAdapter == null) {
             if (showToast) {
@@ -160,42 +228,19 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(device.getAddress());
-
-        // If already paired, just connect
-        if (bluetoothDevice.getBondState() == BluetoothDevice.BOND_BONDED) {
-            if (showToast) {
-                runOnUiThread(() -> Toast.makeText(this, device.getName() + " is already paired. Connecting...", Toast.LENGTH_SHORT).show());
-            }
-            connectToDevice(device, showToast);
-            return;
+        if (showToast) {
+            Toast.makeText(this, "Pairing with " + device.getName(), Toast.LENGTH_SHORT).show();
         }
-
-        currentPairingDevice = device;
-
-        try {
-            boolean pairingStarted = bluetoothDevice.createBond();
-
-            if (pairingStarted) {
-                if (!isReceiverRegistered) {
-                    IntentFilter filter = new IntentFilter(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
-                    registerReceiver(pairingReceiver, filter);
-                    isReceiverRegistered = true;
-                }
+        BondManager.getInstance(this).pairAll(Collections.singletonList(device.getAddress()), (succeeded, failed) -> {
+            if (isDestroyed()) return;
+            if (succeeded.isEmpty()) {
                 if (showToast) {
-                    runOnUiThread(() -> Toast.makeText(this, "Pairing started with " + device.getName(), Toast.LENGTH_SHORT).show());
+                    Toast.makeText(this, "Pairing failed!", Toast.LENGTH_SHORT).show();
                 }
-            } else {
-                if (showToast) {
-                    runOnUiThread(() -> Toast.makeText(this, "Pairing failed!", Toast.LENGTH_SHORT).show());
-                }
-            }
-        } catch (Exception e) {
-            Log.e("Bluetooth", "Pairing error: " + e.getMessage());
-            if (showToast) {
-                runOnUiThread(() -> Toast.makeText(this, "Pairing error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+                return;
             }
-        }
+            connectToDevice(device, showToast);
+        });
     }
 
 
@@ -213,18 +258,39 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
-        pairedDevicesList.clear(); // ✅ Clear previous list
+        // ✅ Served from memory; registers bonded devices in the registry as paired
+        BondedDeviceCache.getInstance(this).getPairedDevices();
+        refreshDeviceLists();
+    }
 
-        if (!pairedDevices.isEmpty()) {
-            for (BluetoothDevice device : pairedDevices) {
-                // ✅ Convert BluetoothDevice to your custom Device model
-                Device customDevice = new Device(device.getName(), device.getAddress());
-                pairedDevicesList.add(customDevice);
-            }
+    /**
+     * ✅ A row was unpaired: record it in the registry now instead of waiting for the bond broadcast,
+     * so the next refresh does not bring the row back
+     */
+    private void onDeviceUnpaired(String address) {
+        Device device = deviceRegistry.get(address);
+        if (device != null && device.isPaired()) {
+            device.setPaired(false);
+            deviceRegistry.markChanged(device);
+        }
+        if (!isDestroyed()) {
+            refreshDeviceLists();
         }
+    }
 
-        pairedDevicesAdapter.notifyDataSetChanged(); // ✅ Refresh RecyclerView
+    /**
+     * ✅ Split the registry into paired and new devices, strongest signal first; rows are diffed off the main thread
+     */
+    private void refreshDeviceLists() {
+        pairedDevicesList.clear();
+        filteredDevicesList.clear();
+        for (Device device : deviceRegistry.getDevices()) {
+            (device.isPaired() ? pairedDevicesList : filteredDevicesList).add(device);
+        }
+        Collections.sort(pairedDevicesList);
+        Collections.sort(filteredDevicesList);
+        pairedDevicesAdapter.submitList(pairedDevicesList);
+        newDevicesAdapter.submitList(filteredDevicesList);
     }
 
 
@@ -249,149 +315,29 @@ public class MainActivity extends AppCompatActivity {
         bluetoothAdapter.startDiscovery(); // ✅ Start device discovery
     }
 
-    @SuppressLint("MissingPermission")
-    private void connectToDevice(Device device) {
-        if (device == null || bluetoothAdapter == null) {
-            runOnUiThread(() -> Toast.makeText(this, "Invalid device or Bluetooth not available", Toast.LENGTH_SHORT).show());
-            return;
-        }
-
-        BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(device.getAddress());
-
-        new Thread(() -> {
-            try {
-                // Ensure Bluetooth is enabled
-                if (!bluetoothAdapter.isEnabled()) {
-                    runOnUiThread(() -> Toast.makeText(this, "Bluetooth is turned off!", Toast.LENGTH_SHORT).show());
-                    return;
-                }
-
-                // Stop discovery to prevent interference
-                if (bluetoothAdapter.isDiscovering()) {
-                    bluetoothAdapter.cancelDiscovery();
-                }
-
-                // Close existing socket if connected
-                if (bluetoothSocket != null) {
-                    try {
-                        bluetoothSocket.close();
-                    } catch (IOException ignored) {
-                    }
-                    bluetoothSocket = null;
-                }
-
-                // Create & connect Bluetooth socket
-                bluetoothSocket = bluetoothDevice.createRfcommSocketToServiceRecord(MY_UUID);
-                bluetoothSocket.connect();
-
-                // Setup input/output streams
-                inputStream = bluetoothSocket.getInputStream();
-                outputStream = bluetoothSocket.getOutputStream();
-
-                runOnUiThread(() -> {
-                    Toast.makeText(this, "Connected to " + device.getName(), Toast.LENGTH_SHORT).show();
-                    Log.d("Bluetooth", "Connected to: " + device.getName());
-                });
-
-                readDataFromDevice();
-
-            } catch (IOException e) {
-                Log.e("Bluetooth", "Connection failed: " + e.getMessage());
-
-                try {
-                    if (bluetoothSocket != null) {
-                        bluetoothSocket.close();
-                        bluetoothSocket = null;
-                    }
-                } catch (IOException ignored) {}
-
-                runOnUiThread(() -> Toast.makeText(this, "Connection failed! Try again.", Toast.LENGTH_SHORT).show());
-            }
-        }).start();
-    }
-
-
-    private void readDataFromDevice() {
-        handler = new Handler();
-        new Thread(() -> {
-            byte[] buffer = new byte[1024];
-            int bytes;
-            while (true) {
-                try {
-                    bytes = inputStream.read(buffer);
-                    String receivedText = new String(buffer, 0, bytes);
-                    runOnUiThread(() -> Toast.makeText(this, "Received: " + receivedText, Toast.LENGTH_SHORT).show());
-                } catch (IOException e) {
-                    break;
-                }
-            }
-        }).start();
-    }
-
-    @SuppressLint("MissingPermission")
     private void pairAndConnectDevice(Device device) {
-        if (device == null || bluetoothAdapter == null) {
-            runOnUiThread(() -> Toast.makeText(this, "Invalid device or Bluetooth not available", Toast.LENGTH_SHORT).show());
-            return;
-        }
-
-        BluetoothDevice bluetoothDevice = bluetoothAdapter.getRemoteDevice(device.getAddress());
-
-        // Check if already paired
-        if (bluetoothDevice.getBondState() == BluetoothDevice.BOND_BONDED) {
-            runOnUiThread(() -> Toast.makeText(this, device.getName() + " is already paired. Connecting...", Toast.LENGTH_SHORT).show());
-            connectToDevice(device);
-            return;
-        }
-
-        currentPairingDevice = device;
-
-        try {
-            boolean pairingStarted = bluetoothDevice.createBond();
-
-            if (pairingStarted) {
-                if (!isReceiverRegistered) {
-                    IntentFilter filter = new IntentFilter(BluetoothDevice.ACTION_BOND_STATE_CHANGED);
-                    registerReceiver(pairingReceiver, filter);
-                    isReceiverRegistered = true;
-                }
-                runOnUiThread(() -> Toast.makeText(this, "Pairing started with " + device.getName(), Toast.LENGTH_SHORT).show());
-            } else {
-                runOnUiThread(() -> Toast.makeText(this, "Pairing failed!", Toast.LENGTH_SHORT).show());
-            }
-        } catch (Exception e) {
-            Log.e("Bluetooth", "Pairing error: " + e.getMessage());
-            runOnUiThread(() -> Toast.makeText(this, "Pairing error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
-        }
+        pairAndConnectDevice(device, true);
     }
 
 
-    private final BroadcastReceiver pairingReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            if (BluetoothDevice.ACTION_BOND_STATE_CHANGED.equals(intent.getAction())) {
-                BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
-
-                if (device != null) {
-                    // ✅ Check for Bluetooth permission before accessing bond state
-                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S &&
-                            ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-                        Toast.makeText(context, "Bluetooth permission denied!", Toast.LENGTH_SHORT).show();
-                        return; // Exit to prevent a SecurityException
-                    }
-
-                    if (device.getBondState() == BluetoothDevice.BOND_BONDED) {
-                        Toast.makeText(context, "Paired successfully with " + device.getName(), Toast.LENGTH_SHORT).show();
-
-                        if (currentPairingDevice != null && currentPairingDevice.getAddress().equals(device.getAddress())) {
-                            connectToDevice(currentPairingDevice); // ✅ Connect only if it's the same device
-                        }
-                    }
-                }
-            }
+    /**
+     * ✅ Main thread: classic discovery results go into the registry
+     */
+    private final BluetoothEventDispatcher.Listener bluetoothEventListener = event -> {
+        if (event.getType() == BluetoothEvent.Type.DEVICE_FOUND) {
+            onDeviceFound(event);
         }
     };
 
+    private void onDeviceFound(BluetoothEvent event) {
+        String address = event.getAddress();
+        if (address == null) return;
+        Device device = deviceRegistry.getOrAdd(address, event.getName());
+        if (event.getRssi() != BluetoothEvent.RSSI_UNKNOWN) {
+            device.setRssi(event.getRssi());
+        }
+        deviceRegistry.markChanged(device);
+    }
 
     private boolean hasBluetoothPermissions() {
         return Build.VERSION.SDK_INT < Build.VERSION_CODES.S ||
@@ -411,8 +357,15 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (isReceiverRegistered) {
-            unregisterReceiver(pairingReceiver);
+        if (isEventListenerSubscribed) {
+            BluetoothEventDispatcher.getInstance(this).unsubscribe(bluetoothEventListener);
+        }
+        if (isRegistryListenerAdded) {
+            deviceRegistry.removeListener(registryListener);
+        }
+        if (isServiceBound) {
+            unbindService(serviceConnection);
+            isServiceBound = false;
         }
     }
 }
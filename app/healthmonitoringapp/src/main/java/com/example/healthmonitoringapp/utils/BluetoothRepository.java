@@ -13,19 +13,19 @@ import androidx.core.app.ActivityCompat;
 
 import com.example.healthmonitoringapp.model.Device;
 
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 public class BluetoothRepository {
     private static final String TAG = "BluetoothRepository";
     private final BluetoothAdapter bluetoothAdapter;
-    private final List<Device> discoveredDevices = new ArrayList<>();
+    private final DeviceRegistry registry = DeviceRegistry.getInstance();
+    private final BondedDeviceCache bondedDeviceCache;
 
     public BluetoothRepository(Context context) {
         BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
         this.bluetoothAdapter = (bluetoothManager != null) ? bluetoothManager.getAdapter() : null;
+        this.bondedDeviceCache = BondedDeviceCache.getInstance(context);
     }
 
     /** ✅ Get Paired Devices */
@@ -41,24 +41,21 @@ public class BluetoothRepository {
             return devices;
         }
 
-        try {
-            Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
-            for (BluetoothDevice device : pairedDevices) {
-                devices.add(new Device(getDeviceName(context, device), device.getAddress()));
-            }
-        } catch (SecurityException e) {
-            Log.e(TAG, "SecurityException: BLUETOOTH_CONNECT permission missing", e);
-        }
+        devices.addAll(bondedDeviceCache.getPairedDevices()); // ✅ Cached until the bonded set changes
         return devices;
     }
 
-    /** ✅ Get Available (Discovered) Devices */
+    /** ✅ Get Available (Discovered) Devices: every registered device that is not paired */
     public List<Device> getAvailableDevices(Context context) {
+        List<Device> available = new ArrayList<>();
         if (!hasPermission(context, Manifest.permission.BLUETOOTH_SCAN)) {
             Log.e(TAG, "BLUETOOTH_SCAN permission missing.");
-            return new ArrayList<>();
+            return available;
+        }
+        for (Device device : registry.getDevices()) {
+            if (!device.isPaired()) available.add(device);
         }
-        return new ArrayList<>(discoveredDevices);
+        return available;
     }
 
     /** ✅ Start Bluetooth Discovery */
@@ -79,7 +76,6 @@ public class BluetoothRepository {
                 bluetoothAdapter.cancelDiscovery();
             }
 
-            discoveredDevices.clear();
             boolean started = bluetoothAdapter.startDiscovery();
             Log.d(TAG, "Bluetooth discovery started: " + started);
             return started;
@@ -118,8 +114,8 @@ public class BluetoothRepository {
         String address = device.getAddress();
         String name = getDeviceName(context, device);
 
-        if (discoveredDevices.stream().noneMatch(d -> d.getAddress().equals(address))) {
-            discoveredDevices.add(new Device(name, address));
+        if (registry.get(address) == null) {
+            registry.putIfAbsent(new Device(name, address));
             Log.d(TAG, "Discovered device added: " + name + " [" + address + "]");
         }
     }
@@ -128,30 +124,18 @@ public class BluetoothRepository {
     public boolean pairDevice(Context context, BluetoothDevice device) {
         if (device == null) return false;
 
-        try {
-            Method method = device.getClass().getMethod("createBond");
-            boolean paired = (boolean) method.invoke(device);
-            Log.d(TAG, "Pairing " + (paired ? "successful" : "failed") + " for " + getDeviceName(context, device));
-            return paired;
-        } catch (Exception e) {
-            Log.e(TAG, "Error pairing device: " + e.getMessage(), e);
-            return false;
-        }
+        boolean paired = BondManager.createBond(device);
+        Log.d(TAG, "Pairing " + (paired ? "successful" : "failed") + " for " + getDeviceName(context, device));
+        return paired;
     }
 
     /** ✅ Unpair a Device */
     public boolean unpairDevice(Context context, BluetoothDevice device) {
         if (device == null) return false;
 
-        try {
-            Method method = device.getClass().getMethod("removeBond");
-            boolean unpaired = (boolean) method.invoke(device);
-            Log.d(TAG, "Unpairing " + (unpaired ? "successful" : "failed") + " for " + getDeviceName(context, device));
-            return unpaired;
-        } catch (Exception e) {
-            Log.e(TAG, "Error unpairing device: " + e.getMessage(), e);
-            return false;
-        }
+        boolean unpaired = BondManager.removeBond(device); // ✅ Cached reflection handle
+        Log.d(TAG, "Unpairing " + (unpaired ? "successful" : "failed") + " for " + getDeviceName(context, device));
+        return unpaired;
     }
 
     /** ✅ Get Device Name Safely */
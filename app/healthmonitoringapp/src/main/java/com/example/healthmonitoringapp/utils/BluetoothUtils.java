@@ -65,7 +65,7 @@ public class BluetoothUtils {
     }
 
     /**
-     * ✅ Returns a set of paired Bluetooth devices.
+     * ✅ Returns a set of paired Bluetooth devices, from {@link BondedDeviceCache} after the first call.
      */
     public static Set<BluetoothDevice> getPairedDevices(Context context) {
         BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
@@ -83,12 +83,7 @@ public class BluetoothUtils {
             }
         }
 
-        try {
-            return bluetoothAdapter.getBondedDevices(); // ✅ Safe to call after permission check
-        } catch (SecurityException e) {
-            Log.e(TAG, "SecurityException: Bluetooth permission denied!", e);
-            return null;
-        }
+        return BondedDeviceCache.getInstance(context).getBondedDevices(); // ✅ Safe to call after permission check
     }
 
 
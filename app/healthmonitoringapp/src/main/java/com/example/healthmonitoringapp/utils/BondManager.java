@@ -0,0 +1,308 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.healthmonitoringapp.services.BluetoothEvent;
+import com.example.healthmonitoringapp.services.BluetoothEventDispatcher;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ✅ Pairs and unpairs devices, alone or in bulk.
+ *
+ * <p>{@code createBond} is public API; {@code removeBond} is hidden and resolved once through
+ * reflection, then reused. Bulk requests run on a background thread: pairings one after another
+ * (the stack handles a single pairing at a time), unpairings back to back. One
+ * {@link BluetoothEventDispatcher} subscription to bond state changes resolves every pending operation and
+ * reports each batch once through {@link Listener#onBatchComplete} and the batch's own callback. Every
+ * started operation has a deadline. An address can only wait in one batch at a time; a later batch that
+ * asks for it again fails it straight away. Listeners and callbacks run on the main thread.
+ */
+public final class BondManager {
+    private static final String TAG = "BondManager";
+    static final long PAIR_TIMEOUT_MS = 30_000;
+    static final long UNPAIR_TIMEOUT_MS = 10_000;
+
+    private static volatile BondManager instance;
+
+    /** Hidden {@code BluetoothDevice.removeBond()}, or {@code null} where it is not available. */
+    private static final Method REMOVE_BOND = resolve("removeBond");
+
+    /**
+     * ✅ Bond progress, on the main thread.
+     */
+    public interface Listener {
+        void onBondStateChanged(String address, int bondState);
+
+        /** Every device of a {@link #pairAll} or {@link #unpairAll} request has settled. */
+        default void onBatchComplete(boolean pairing, List<String> succeeded, List<String> failed) {
+        }
+    }
+
+    /**
+     * ✅ Outcome of one {@link #pairAll} or {@link #unpairAll} call, on the main thread.
+     */
+    public interface BatchCallback {
+        void onBatchComplete(List<String> succeeded, List<String> failed);
+    }
+
+    /** One bulk request. Main thread only. */
+    private static final class Batch {
+        final boolean pairing;
+        final BatchCallback callback;
+        final ArrayDeque<String> queued;
+        int pending;
+        final List<String> succeeded = new ArrayList<>();
+        final List<String> failed = new ArrayList<>();
+
+        Batch(boolean pairing, Collection<String> addresses, BatchCallback callback) {
+            this.pairing = pairing;
+            this.callback = callback;
+            this.queued = new ArrayDeque<>(new LinkedHashSet<>(addresses));
+            this.pending = queued.size();
+        }
+    }
+
+    private final BluetoothAdapter bluetoothAdapter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "BondManager"));
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Main thread only: address -> batch waiting for its bond state broadcast
+    private final Map<String, Batch> awaiting = new HashMap<>();
+
+    private final BluetoothEventDispatcher.Listener bondListener = event -> {
+        if (event.getType() != BluetoothEvent.Type.BOND_STATE_CHANGED || event.getDevice() == null) return;
+        onBondState(event.getAddress(), event.getState());
+    };
+
+    public static BondManager getInstance(Context context) {
+        BondManager manager = instance;
+        if (manager == null) {
+            synchronized (BondManager.class) {
+                manager = instance;
+                if (manager == null) {
+                    manager = new BondManager(context.getApplicationContext());
+                    instance = manager;
+                }
+            }
+        }
+        return manager;
+    }
+
+    private BondManager(Context context) {
+        BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        this.bluetoothAdapter = (bluetoothManager != null) ? bluetoothManager.getAdapter() : null;
+        BluetoothEventDispatcher.getInstance(context).subscribe(bondListener, mainHandler);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * ✅ Start pairing; the outcome arrives as a bond state broadcast. Callable from any thread.
+     */
+    public static boolean createBond(BluetoothDevice device) {
+        try {
+            return device.createBond();
+        } catch (SecurityException e) {
+            Log.e(TAG, "SecurityException: BLUETOOTH_CONNECT permission missing", e);
+            return false;
+        }
+    }
+
+    /**
+     * ✅ Remove the bond through the cached hidden method. Callable from any thread.
+     *
+     * @return false if the method is unavailable, the call failed, or the stack refused
+     */
+    public static boolean removeBond(BluetoothDevice device) {
+        if (REMOVE_BOND == null) {
+            Log.w(TAG, "removeBond is not available on this platform");
+            return false;
+        }
+        try {
+            return (boolean) REMOVE_BOND.invoke(device);
+        } catch (Exception e) {
+            Log.e(TAG, "Error unpairing device: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * ✅ Pair every address, one at a time, off the main thread. Main thread.
+     */
+    public void pairAll(Collection<String> addresses) {
+        pairAll(addresses, null);
+    }
+
+    /**
+     * ✅ Pair every address, one at a time, off the main thread, and report to {@code callback}. Main thread.
+     */
+    public void pairAll(Collection<String> addresses, BatchCallback callback) {
+        Batch batch = new Batch(true, addresses, callback);
+        if (batch.pending == 0) {
+            complete(batch);
+            return;
+        }
+        startNextPairing(batch);
+    }
+
+    /**
+     * ✅ Unpair every address off the main thread. Main thread.
+     */
+    public void unpairAll(Collection<String> addresses) {
+        unpairAll(addresses, null);
+    }
+
+    /**
+     * ✅ Unpair every address off the main thread and report to {@code callback}. Main thread.
+     */
+    public void unpairAll(Collection<String> addresses, BatchCallback callback) {
+        Batch batch = new Batch(false, addresses, callback);
+        if (batch.pending == 0) {
+            complete(batch);
+            return;
+        }
+        List<String> all = new ArrayList<>(batch.queued.size());
+        for (String address : batch.queued) {
+            if (claim(address, batch)) all.add(address);
+        }
+        batch.queued.clear();
+        if (all.isEmpty()) return; // Every address was rejected, which completed the batch
+        executor.execute(() -> {
+            for (String address : all) {
+                BluetoothDevice device = remoteDevice(address);
+                boolean settled = device == null || bondState(device) == BluetoothDevice.BOND_NONE;
+                boolean started = !settled && removeBond(device);
+                mainHandler.post(() -> onStarted(address, batch, started, settled, UNPAIR_TIMEOUT_MS));
+            }
+        });
+    }
+
+    /** Main thread. */
+    private void startNextPairing(Batch batch) {
+        String address;
+        do {
+            address = batch.queued.poll();
+            if (address == null) return;
+        } while (!claim(address, batch));
+
+        String next = address;
+        executor.execute(() -> {
+            BluetoothDevice device = remoteDevice(next);
+            boolean bonded = device != null && bondState(device) == BluetoothDevice.BOND_BONDED;
+            boolean started = !bonded && device != null && createBond(device);
+            mainHandler.post(() -> onStarted(next, batch, started, bonded, PAIR_TIMEOUT_MS));
+        });
+    }
+
+    /**
+     * Make {@code batch} the one waiting for {@code address}, or fail the address in it if another
+     * batch already is. Main thread.
+     */
+    private boolean claim(String address, Batch batch) {
+        if (awaiting.containsKey(address)) {
+            Log.w(TAG, address + " is already in another bond batch");
+            record(batch, address, false);
+            return false;
+        }
+        awaiting.put(address, batch);
+        return true;
+    }
+
+    /**
+     * An operation was handed to the stack, or did not need to be; start its deadline unless it
+     * already settled. Main thread.
+     */
+    private void onStarted(String address, Batch batch, boolean started, boolean alreadyDone, long timeoutMillis) {
+        if (!started) {
+            settle(address, batch, alreadyDone);
+        } else if (awaiting.get(address) == batch) { // The broadcast may have beaten this post
+            mainHandler.postDelayed(() -> settle(address, batch, false), address, timeoutMillis);
+        }
+    }
+
+    /** Main thread. */
+    private void onBondState(String address, int state) {
+        for (Listener listener : listeners) {
+            listener.onBondStateChanged(address, state);
+        }
+        Batch batch = awaiting.get(address);
+        if (batch == null || state == BluetoothDevice.BOND_BONDING) return;
+        settle(address, batch, batch.pairing == (state == BluetoothDevice.BOND_BONDED));
+    }
+
+    /** Record the outcome for one address once, then move the batch on. Main thread. */
+    private void settle(String address, Batch batch, boolean success) {
+        if (awaiting.get(address) != batch) return; // Already settled, e.g. broadcast after timeout
+        awaiting.remove(address);
+        mainHandler.removeCallbacksAndMessages(address);
+        record(batch, address, success);
+        if (batch.pairing) startNextPairing(batch);
+    }
+
+    /** Count one address of {@code batch} as done and complete the batch after its last one. Main thread. */
+    private void record(Batch batch, String address, boolean success) {
+        (success ? batch.succeeded : batch.failed).add(address);
+        if (--batch.pending == 0) complete(batch);
+    }
+
+    private void complete(Batch batch) {
+        List<String> succeeded = Collections.unmodifiableList(batch.succeeded);
+        List<String> failed = Collections.unmodifiableList(batch.failed);
+        Log.d(TAG, (batch.pairing ? "Pairing" : "Unpairing") + " batch done: "
+                + succeeded.size() + " succeeded, " + failed.size() + " failed");
+        for (Listener listener : listeners) {
+            listener.onBatchComplete(batch.pairing, succeeded, failed);
+        }
+        if (batch.callback != null) {
+            batch.callback.onBatchComplete(succeeded, failed);
+        }
+    }
+
+    private static int bondState(BluetoothDevice device) {
+        try {
+            return device.getBondState();
+        } catch (SecurityException e) {
+            Log.e(TAG, "SecurityException: BLUETOOTH_CONNECT permission missing", e);
+            return BluetoothDevice.ERROR;
+        }
+    }
+
+    private BluetoothDevice remoteDevice(String address) {
+        if (bluetoothAdapter == null || !BluetoothAdapter.checkBluetoothAddress(address)) return null;
+        return bluetoothAdapter.getRemoteDevice(address);
+    }
+
+    private static Method resolve(String name) {
+        try {
+            return BluetoothDevice.class.getMethod(name);
+        } catch (NoSuchMethodException | SecurityException e) {
+            Log.w(TAG, "BluetoothDevice." + name + " unavailable: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import com.example.healthmonitoringapp.model.Device;
+import com.example.healthmonitoringapp.services.BluetoothEvent;
+import com.example.healthmonitoringapp.services.BluetoothEventDispatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ✅ In-memory copy of the adapter's bonded devices.
+ *
+ * <p>{@code getBondedDevices()} is an IPC into the Bluetooth stack, and the bonded set only changes
+ * through bonding or the adapter turning on or off. The first read loads it; after that it is only
+ * reloaded after a bond or adapter state event from the {@link BluetoothEventDispatcher}, so opening a screen or rescanning is
+ * served from memory. Bonded devices are registered in the {@link DeviceRegistry} as paired.
+ */
+public final class BondedDeviceCache {
+    private static final String TAG = "BondedDeviceCache";
+    private static volatile BondedDeviceCache instance;
+
+    private final Context context;
+    private final BluetoothAdapter bluetoothAdapter;
+    private final DeviceRegistry registry = DeviceRegistry.getInstance();
+
+    // Guarded by this
+    private Set<BluetoothDevice> bondedDevices;
+    private List<Device> pairedDevices;
+    private volatile long loadCount;
+
+    // Runs on the dispatcher thread: invalidating only needs the lock, not the main thread
+    private final BluetoothEventDispatcher.Listener invalidationListener = event -> {
+        switch (event.getType()) {
+            case BOND_STATE_CHANGED:
+                if (event.getState() == BluetoothDevice.BOND_BONDING) return; // Bonded set unchanged until it settles
+                invalidate();
+                break;
+            case ADAPTER_STATE_CHANGED:
+                invalidate();
+                break;
+            default:
+        }
+    };
+
+    // Registry devices are modified on the main thread
+    private final BluetoothEventDispatcher.Listener unpairListener = event -> {
+        if (event.getType() == BluetoothEvent.Type.BOND_STATE_CHANGED && event.getDevice() != null
+                && event.getState() == BluetoothDevice.BOND_NONE) {
+            markUnpaired(event.getAddress());
+        }
+    };
+
+    public static BondedDeviceCache getInstance(Context context) {
+        BondedDeviceCache cache = instance;
+        if (cache == null) {
+            synchronized (BondedDeviceCache.class) {
+                cache = instance;
+                if (cache == null) {
+                    cache = new BondedDeviceCache(context.getApplicationContext());
+                    instance = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    private BondedDeviceCache(Context context) {
+        this.context = context;
+        BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        this.bluetoothAdapter = (bluetoothManager != null) ? bluetoothManager.getAdapter() : null;
+
+        BluetoothEventDispatcher dispatcher = BluetoothEventDispatcher.getInstance(context);
+        dispatcher.subscribe(invalidationListener);
+        dispatcher.subscribe(unpairListener, new Handler(Looper.getMainLooper()));
+    }
+
+    /**
+     * ✅ Bonded devices as of the last bond or adapter state change; empty without permission or adapter.
+     */
+    public synchronized Set<BluetoothDevice> getBondedDevices() {
+        if (bondedDevices == null) load();
+        return (bondedDevices != null) ? bondedDevices : Collections.emptySet();
+    }
+
+    /**
+     * ✅ Registry devices for {@link #getBondedDevices()}, all flagged as paired.
+     */
+    public synchronized List<Device> getPairedDevices() {
+        if (bondedDevices == null) load();
+        return (pairedDevices != null) ? pairedDevices : Collections.emptyList();
+    }
+
+    /**
+     * ✅ Drop the cached set; the next read goes to the Bluetooth stack again.
+     */
+    public synchronized void invalidate() {
+        bondedDevices = null;
+        pairedDevices = null;
+    }
+
+    /** ✅ Times the bonded set was read from the Bluetooth stack */
+    public long getLoadCount() { return loadCount; }
+
+    private void load() {
+        if (bluetoothAdapter == null || !bluetoothAdapter.isEnabled()) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S &&
+                ContextCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
+            Log.w(TAG, "Missing BLUETOOTH_CONNECT permission, bonded devices unavailable.");
+            return; // Not cached, so a later read retries once permission is granted
+        }
+
+        try {
+            Set<BluetoothDevice> bonded = bluetoothAdapter.getBondedDevices();
+            List<Device> paired = new ArrayList<>(bonded.size());
+            for (BluetoothDevice device : bonded) {
+                Device registered = registry.getOrAdd(device.getAddress(), device.getName());
+                if (!registered.isPaired()) {
+                    registered.setPaired(true);
+                    registry.markChanged(registered);
+                }
+                paired.add(registered);
+            }
+            bondedDevices = Collections.unmodifiableSet(new LinkedHashSet<>(bonded));
+            pairedDevices = Collections.unmodifiableList(paired);
+            loadCount++;
+        } catch (SecurityException e) {
+            Log.e(TAG, "SecurityException: BLUETOOTH_CONNECT permission missing", e);
+        }
+    }
+
+    private void markUnpaired(String address) {
+        Device device = registry.get(address);
+        if (device != null && device.isPaired()) {
+            device.setPaired(false);
+            registry.markChanged(device);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.os.Handler;
+
+import com.example.healthmonitoringapp.model.Device;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * ✅ The app's single table of known devices, keyed by packed MAC address.
+ *
+ * <p>Scan results, discovery, bonded devices and the UI all look devices up here instead of
+ * searching their own lists. Storage is an open-addressing table of {@code long} keys with linear
+ * probing; lookups use an optimistic {@link StampedLock} read and only take the read lock if a
+ * writer got in the way. Every change bumps a global version and stamps the entry with it, so a
+ * listener woken up once for many changes can ask for just the devices changed since the version
+ * it last saw.
+ *
+ * <p>{@link Device} fields are still only modified on the main thread; call {@link #markChanged}
+ * afterwards so readers see a new version.
+ */
+public final class DeviceRegistry {
+    private static final long EMPTY = MacAddress.INVALID;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final DeviceRegistry INSTANCE = new DeviceRegistry();
+
+    /**
+     * ✅ Told on its handler's thread that the registry changed; many changes may be folded into one call.
+     */
+    public interface Listener {
+        void onRegistryChanged(long version);
+    }
+
+    private static final class Registration {
+        final Listener listener;
+        final Handler handler;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final Runnable deliver;
+
+        Registration(Listener listener, Handler handler, DeviceRegistry registry) {
+            this.listener = listener;
+            this.handler = handler;
+            this.deliver = () -> {
+                scheduled.set(false);
+                listener.onRegistryChanged(registry.getVersion());
+            };
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    // Guarded by lock
+    private long[] keys;
+    private Device[] devices;
+    private long[] versions;
+    private int size;
+    private volatile long version;
+
+    public static DeviceRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    DeviceRegistry() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * ✅ Device with {@code address}, or {@code null}.
+     */
+    public Device get(String address) {
+        return get(MacAddress.pack(address));
+    }
+
+    public Device get(long packedAddress) {
+        if (packedAddress == EMPTY) return null;
+        long stamp = lock.tryOptimisticRead();
+        Device found = probe(keys, devices, packedAddress);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = probe(keys, devices, packedAddress);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * ✅ Registered device with {@code address}, creating it with {@code name} if there is none yet.
+     */
+    public Device getOrAdd(String address, String name) {
+        Device device = get(address);
+        return (device != null) ? device : putIfAbsent(new Device(name, address));
+    }
+
+    /**
+     * ✅ Register {@code device} unless its address is known.
+     *
+     * @return the device now registered for the address, which is {@code device} if it was added
+     */
+    public Device putIfAbsent(Device device) {
+        long key = MacAddress.pack(device.getAddress());
+        if (key == EMPTY) return device;
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(key);
+            if (keys[slot] == key) return devices[slot];
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2);
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            devices[slot] = device;
+            versions[slot] = ++version;
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyListeners();
+        return device;
+    }
+
+    /**
+     * ✅ Record that fields of a registered device changed.
+     */
+    public void markChanged(Device device) {
+        long key = MacAddress.pack(device.getAddress());
+        if (key == EMPTY) return;
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(key);
+            if (keys[slot] != key) return;
+            versions[slot] = ++version;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyListeners();
+    }
+
+    /**
+     * ✅ Forget the device with {@code address}.
+     *
+     * @return the removed device, or {@code null}
+     */
+    public Device remove(String address) {
+        long key = MacAddress.pack(address);
+        if (key == EMPTY) return null;
+
+        Device removed;
+        long stamp = lock.writeLock();
+        try {
+            int slot = slotOf(key);
+            if (keys[slot] != key) return null;
+            removed = devices[slot];
+            deleteSlot(slot);
+            size--;
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyListeners();
+        return removed;
+    }
+
+    /** ✅ All registered devices, in no particular order */
+    public List<Device> getDevices() {
+        return getDevicesChangedSince(0);
+    }
+
+    /**
+     * ✅ Devices added or changed after {@code sinceVersion}. Removed devices are not reported;
+     * compare {@link #getDevices()} when {@link #getVersion()} moved without any changed device.
+     */
+    public List<Device> getDevicesChangedSince(long sinceVersion) {
+        long stamp = lock.readLock();
+        try {
+            List<Device> changed = new ArrayList<>();
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY && versions[slot] > sinceVersion) changed.add(devices[slot]);
+            }
+            return changed;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** ✅ Incremented by every add, change and removal */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * ✅ Call {@code listener} on {@code handler}'s thread after changes, at most one pending call at a time.
+     */
+    public void addListener(Listener listener, Handler handler) {
+        registrations.add(new Registration(listener, handler, this));
+    }
+
+    public void removeListener(Listener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registration.handler.removeCallbacks(registration.deliver);
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    private void notifyListeners() {
+        for (Registration registration : registrations) {
+            if (registration.scheduled.compareAndSet(false, true)) {
+                registration.handler.post(registration.deliver);
+            }
+        }
+    }
+
+    /**
+     * Lookup that tolerates racing a writer: the arrays may be from different generations or
+     * half-updated, so stay in bounds and let the caller validate the stamp.
+     */
+    private static Device probe(long[] keys, Device[] devices, long key) {
+        if (keys.length != devices.length) return null;
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for (int i = 0; i < keys.length; i++) {
+            long candidate = keys[slot];
+            if (candidate == key) return devices[slot];
+            if (candidate == EMPTY) return null;
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /** Slot holding {@code key}, or the empty slot where it would go. Write lock held. */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Backward-shift deletion, so probe chains stay unbroken without tombstones. Write lock held. */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry back if the hole lies on its probe path (cyclically between home and next)
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                devices[hole] = devices[next];
+                versions[hole] = versions[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        devices[hole] = null;
+        versions[hole] = 0;
+    }
+
+    private void allocate(int capacity) {
+        long[] newKeys = new long[capacity];
+        Arrays.fill(newKeys, EMPTY);
+        devices = new Device[capacity];
+        versions = new long[capacity];
+        keys = newKeys;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Device[] oldDevices = devices;
+        long[] oldVersions = versions;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slotOf(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            devices[slot] = oldDevices[i];
+            versions[slot] = oldVersions[i];
+        }
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
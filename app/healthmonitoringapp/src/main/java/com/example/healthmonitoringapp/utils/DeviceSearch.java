@@ -0,0 +1,143 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import com.example.healthmonitoringapp.model.Device;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ✅ Runs device searches on a background thread so typing never waits on the list.
+ *
+ * <p>All methods are called on the main thread. Devices are copied into a {@link DeviceSearchIndex}
+ * owned by the search thread; queries are debounced by {@link #DEBOUNCE_MS}, and a query that
+ * extends the previous one only re-checks the previous matches. Only the newest query's
+ * result is delivered, and devices added while it ran are matched directly before delivery.
+ */
+public class DeviceSearch {
+    public static final long DEBOUNCE_MS = 150;
+
+    /**
+     * ✅ Receives the matching devices on the main thread.
+     */
+    public interface Listener {
+        void onSearchResults(String query, Set<Device> matches);
+    }
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HandlerThread thread = new HandlerThread("DeviceSearch");
+    private final Handler handler;
+    private final Runnable queryTask = this::runQuery;
+
+    // Main thread
+    private final List<Device> devicesById = new ArrayList<>();
+    private final Map<Device, Integer> ids = new IdentityHashMap<>();
+    private final List<String> indexedNames = new ArrayList<>();
+    private String query = "";
+
+    // Search thread
+    private final DeviceSearchIndex index = new DeviceSearchIndex();
+    private String lastQuery;
+    private int[] lastResult;
+    private int lastCoverage;
+    private boolean renamedSinceLastQuery;
+
+    public DeviceSearch(Listener listener) {
+        this.listener = listener;
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * ✅ Make {@code device} searchable, or pick up its new name if it is already indexed.
+     */
+    public void add(Device device) {
+        Integer id = ids.get(device);
+        String name = device.getName();
+        if (id == null) {
+            ids.put(device, devicesById.size());
+            devicesById.add(device);
+            indexedNames.add(name);
+            String address = device.getAddress();
+            handler.post(() -> index.add(name, address));
+        } else if (!name.equals(indexedNames.get(id))) {
+            indexedNames.set(id, name);
+            handler.post(() -> {
+                index.rename(id, name);
+                renamedSinceLastQuery = true;
+            });
+        }
+    }
+
+    /**
+     * ✅ Search for {@code query} once typing pauses for {@link #DEBOUNCE_MS}.
+     */
+    public void search(String query) {
+        this.query = query;
+        handler.removeCallbacks(queryTask);
+        handler.postDelayed(queryTask, DEBOUNCE_MS);
+    }
+
+    /** Query whose results are shown or pending. */
+    public String getQuery() {
+        return query;
+    }
+
+    /** ✅ Whether {@code device} matches the current query, for devices that arrive between searches. */
+    public boolean matches(Device device) {
+        return DeviceSearchIndex.matches(device.getName(), device.getAddress(), query);
+    }
+
+    public void release() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    /** Search thread. */
+    private void runQuery() {
+        String needle = DeviceSearchIndex.normalize(query);
+        int[] result;
+        if (lastQuery != null && !renamedSinceLastQuery && needle.contains(lastQuery)) {
+            // Extended query: only previous matches and documents indexed since can still match
+            int added = index.size() - lastCoverage;
+            int[] candidates = new int[lastResult.length + added];
+            System.arraycopy(lastResult, 0, candidates, 0, lastResult.length);
+            for (int i = 0; i < added; i++) candidates[lastResult.length + i] = lastCoverage + i;
+            result = index.filter(needle, candidates, candidates.length);
+        } else {
+            result = index.search(needle);
+        }
+        lastQuery = needle;
+        lastResult = result;
+        lastCoverage = index.size();
+        renamedSinceLastQuery = false;
+
+        int coverage = lastCoverage;
+        mainHandler.post(() -> deliver(needle, result, coverage));
+    }
+
+    /** Main thread. */
+    private void deliver(String needle, int[] result, int coverage) {
+        if (!needle.equals(DeviceSearchIndex.normalize(query))) return; // Superseded
+
+        Set<Device> matches = new HashSet<>(result.length * 2);
+        for (int id : result) {
+            matches.add(devicesById.get(id));
+        }
+        for (int id = coverage; id < devicesById.size(); id++) {
+            Device device = devicesById.get(id);
+            if (matches(device)) matches.add(device);
+        }
+        if (listener != null) {
+            listener.onSearchResults(query, matches);
+        }
+    }
+}
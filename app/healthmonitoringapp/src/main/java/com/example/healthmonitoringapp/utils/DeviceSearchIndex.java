@@ -0,0 +1,167 @@
+package com.example.healthmonitoringapp.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ✅ Case-insensitive substring search over device names and addresses.
+ *
+ * <p>Every 1-, 2- and 3-character slice of a document is mapped to the sorted ids of the
+ * documents containing it. A query of up to three characters is a single lookup; a longer query
+ * intersects the lists of its trigrams, starting with the shortest. Candidates are always checked
+ * against the stored text, so renamed documents may safely keep stale entries. Not thread-safe.
+ */
+public class DeviceSearchIndex {
+    private static final int MAX_GRAM = 3;
+    private static final int[] NONE = new int[0];
+
+    /** Sorted, duplicate-free ids of the documents that contain one gram. */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) return;
+            int position = (size == 0 || ids[size - 1] < id) ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                position = -position - 1;
+            } else if (position < size) {
+                return; // Re-indexed document that already has this gram
+            }
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+    }
+
+    private final List<String> names = new ArrayList<>();
+    private final List<String> addresses = new ArrayList<>();
+    private final Map<Long, Postings> grams = new HashMap<>();
+
+    /**
+     * ✅ Index a new document; ids are assigned in call order, starting at 0.
+     */
+    public int add(String name, String address) {
+        int id = names.size();
+        names.add(normalize(name));
+        addresses.add(normalize(address));
+        indexGrams(id, names.get(id));
+        indexGrams(id, addresses.get(id));
+        return id;
+    }
+
+    /**
+     * ✅ Replace the name of document {@code id}. Lookups under the old name are filtered out by verification.
+     */
+    public void rename(int id, String name) {
+        names.set(id, normalize(name));
+        indexGrams(id, names.get(id));
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * ✅ Ids of all documents containing {@code query}, ascending.
+     */
+    public int[] search(String query) {
+        String needle = normalize(query);
+        if (needle.isEmpty()) {
+            int[] all = new int[size()];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return all;
+        }
+        if (needle.length() <= MAX_GRAM) {
+            Postings postings = grams.get(gram(needle, 0, needle.length()));
+            return (postings == null) ? NONE : verify(needle, postings.ids, postings.size);
+        }
+
+        // Intersect the shortest trigram lists first; stop as soon as nothing survives
+        int trigramCount = needle.length() - MAX_GRAM + 1;
+        Postings[] lists = new Postings[trigramCount];
+        for (int i = 0; i < trigramCount; i++) {
+            lists[i] = grams.get(gram(needle, i, MAX_GRAM));
+            if (lists[i] == null) return NONE;
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int[] candidates = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = intersect(candidates, count, lists[i]);
+        }
+        return verify(needle, candidates, count);
+    }
+
+    /**
+     * ✅ The subset of {@code candidates} containing {@code query}. Narrowing a previous result this
+     * way is cheaper than {@link #search} when the query was only extended.
+     */
+    public int[] filter(String query, int[] candidates, int count) {
+        return verify(normalize(query), candidates, count);
+    }
+
+    /**
+     * ✅ Whether {@code name} or {@code address} contains {@code query}, ignoring case.
+     */
+    public static boolean matches(String name, String address, String query) {
+        String needle = normalize(query);
+        return normalize(name).contains(needle) || normalize(address).contains(needle);
+    }
+
+    public static String normalize(String text) {
+        return (text == null) ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private int[] verify(String needle, int[] candidates, int count) {
+        int[] result = new int[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int id = candidates[i];
+            if (names.get(id).contains(needle) || addresses.get(id).contains(needle)) {
+                result[size++] = id;
+            }
+        }
+        return (size == count) ? result : Arrays.copyOf(result, size);
+    }
+
+    /** Keep the ids of {@code candidates} that are also in {@code postings}; returns the new count. */
+    private static int intersect(int[] candidates, int count, Postings postings) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < postings.size; i++) {
+            int id = candidates[i];
+            while (j < postings.size && postings.ids[j] < id) j++;
+            if (j < postings.size && postings.ids[j] == id) candidates[kept++] = id;
+        }
+        return kept;
+    }
+
+    private void indexGrams(int id, String text) {
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int start = 0; start + length <= text.length(); start++) {
+                long key = gram(text, start, length);
+                Postings postings = grams.get(key);
+                if (postings == null) {
+                    postings = new Postings();
+                    grams.put(key, postings);
+                }
+                postings.add(id);
+            }
+        }
+    }
+
+    /** Up to three UTF-16 units packed with their count, so slices never collide across lengths. */
+    private static long gram(String text, int start, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = (key << 16) | text.charAt(start + i);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.healthmonitoringapp.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ✅ Lock-free histogram with power-of-two buckets: bucket {@code b} counts values in
+ * {@code [2^(b-1), 2^b)}, bucket 0 counts zero. Cheap enough to record on hot paths;
+ * percentiles are accurate to within a factor of two.
+ */
+public class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray totals = new AtomicLongArray(3); // count, sum, max
+
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, value);
+        long current;
+        while (value > (current = totals.get(2)) && !totals.compareAndSet(2, current, value)) {
+            // retry
+        }
+    }
+
+    public long getCount() { return totals.get(0); }
+    public long getMax() { return totals.get(2); }
+
+    public double getMean() {
+        long count = totals.get(0);
+        return (count == 0) ? 0 : (double) totals.get(1) / count;
+    }
+
+    /**
+     * ✅ Upper bound of the bucket holding the {@code percentile}-th value (0..100).
+     */
+    public long getPercentile(double percentile) {
+        long count = totals.get(0);
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= Math.max(rank, 1)) {
+                return (b == 0) ? 0 : Math.min(getMax(), (1L << Math.min(b, 62)) - 1);
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) buckets.set(b, 0);
+        for (int i = 0; i < 3; i++) totals.set(i, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCount()
+                + " mean=" + String.format("%.1f", getMean()) + unit
+                + " p50=" + getPercentile(50) + unit
+                + " p99=" + getPercentile(99) + unit
+                + " max=" + getMax() + unit;
+    }
+}
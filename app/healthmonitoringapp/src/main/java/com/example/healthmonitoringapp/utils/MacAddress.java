@@ -0,0 +1,50 @@
+package com.example.healthmonitoringapp.utils;
+
+/**
+ * ✅ Converts Bluetooth MAC addresses ("AA:BB:CC:DD:EE:FF") to and from a packed 48-bit long,
+ * so they can be stored and compared without strings.
+ */
+public final class MacAddress {
+
+    /** Returned by {@link #pack} for input that is not a MAC address. */
+    public static final long INVALID = -1L;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private MacAddress() {
+    }
+
+    /**
+     * ✅ Packs a colon-separated address (either case) into the low 48 bits of a long.
+     */
+    public static long pack(String address) {
+        if (address == null || address.length() != 17) return INVALID;
+        long packed = 0;
+        for (int i = 0; i < 17; i++) {
+            char c = address.charAt(i);
+            if (i % 3 == 2) {
+                if (c != ':') return INVALID;
+                continue;
+            }
+            int nibble = Character.digit(c, 16);
+            if (nibble < 0) return INVALID;
+            packed = (packed << 4) | nibble;
+        }
+        return packed;
+    }
+
+    /**
+     * ✅ Formats a packed address back to the upper-case form used by {@code BluetoothDevice}.
+     */
+    public static String unpack(long packed) {
+        char[] out = new char[17];
+        for (int octet = 0; octet < 6; octet++) {
+            int value = (int) (packed >>> (40 - octet * 8)) & 0xFF;
+            int at = octet * 3;
+            out[at] = HEX[value >>> 4];
+            out[at + 1] = HEX[value & 0x0F];
+            if (octet < 5) out[at + 2] = ':';
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.healthmonitoringapp.utils;
+
+import java.util.Arrays;
+
+/**
+ * ✅ Per-device RSSI smoothing with a scalar Kalman filter.
+ *
+ * <p>Raw advertisement RSSI jumps by 10 dB or more between packets. Each device's filter treats
+ * the true signal as a random walk (variance grows with time since the last reading) and every
+ * reading as noisy, so a burst of packets converges quickly while a single outlier barely moves
+ * the estimate. State lives in an open-addressing table of primitive arrays keyed by the packed
+ * MAC address, so updates do not allocate. Not thread-safe.
+ */
+public class RssiTracker {
+    /** Measurement noise, dBm². */
+    private static final float MEASUREMENT_VARIANCE = 16f;
+    /** Growth of the estimate's variance per second without readings, dBm². */
+    private static final float PROCESS_VARIANCE_PER_SECOND = 2f;
+    private static final long EMPTY = MacAddress.INVALID;
+
+    private long[] keys;
+    private float[] estimates;
+    private float[] variances;
+    private long[] updatedAt;
+    private int size;
+    private int mask;
+
+    public RssiTracker() {
+        allocate(64);
+    }
+
+    /**
+     * ✅ Fold in one reading and return the smoothed RSSI.
+     *
+     * @param nowMillis monotonic time of the reading
+     */
+    public float update(String address, int rssi, long nowMillis) {
+        long key = MacAddress.pack(address);
+        if (key == EMPTY) return rssi;
+
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            estimates[slot] = rssi;
+            variances[slot] = MEASUREMENT_VARIANCE;
+            updatedAt[slot] = nowMillis;
+            size++;
+            return rssi;
+        }
+
+        float elapsedSeconds = Math.max(0, nowMillis - updatedAt[slot]) / 1000f;
+        float predicted = variances[slot] + PROCESS_VARIANCE_PER_SECOND * elapsedSeconds;
+        float gain = predicted / (predicted + MEASUREMENT_VARIANCE);
+        estimates[slot] += gain * (rssi - estimates[slot]);
+        variances[slot] = (1 - gain) * predicted;
+        updatedAt[slot] = nowMillis;
+        return estimates[slot];
+    }
+
+    /**
+     * ✅ Smoothed RSSI of {@code address}, or {@link Float#NaN} if it was never seen.
+     */
+    public float get(String address) {
+        long key = MacAddress.pack(address);
+        if (key == EMPTY) return Float.NaN;
+        int slot = find(key);
+        return (keys[slot] == EMPTY) ? Float.NaN : estimates[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /** Slot holding {@code key}, or the empty slot where it would go. */
+    private int find(long key) {
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        estimates = new float[capacity];
+        variances = new float[capacity];
+        updatedAt = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        float[] oldEstimates = estimates;
+        float[] oldVariances = variances;
+        long[] oldUpdatedAt = updatedAt;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            estimates[slot] = oldEstimates[i];
+            variances[slot] = oldVariances[i];
+            updatedAt[slot] = oldUpdatedAt[i];
+        }
+    }
+}
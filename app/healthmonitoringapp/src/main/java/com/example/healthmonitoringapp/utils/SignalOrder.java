@@ -0,0 +1,83 @@
+package com.example.healthmonitoringapp.utils;
+
+import com.example.healthmonitoringapp.model.Device;
+
+import java.util.List;
+
+/**
+ * ✅ Keeps a device list in {@link Device#compareTo} order (strongest signal first) as devices
+ * arrive or their RSSI changes, with binary searches instead of re-sorting the whole list.
+ */
+public final class SignalOrder {
+
+    private SignalOrder() {
+    }
+
+    /**
+     * ✅ Insert {@code device} after every device with an equal or stronger signal.
+     *
+     * @return the position it was inserted at
+     */
+    public static int insert(List<Device> sorted, Device device) {
+        int position = upperBound(sorted, device.getRssi());
+        sorted.add(position, device);
+        return position;
+    }
+
+    /**
+     * ✅ Position of {@code device}, searched under the RSSI it was sorted by; -1 if absent.
+     * {@code device} may already hold its new RSSI, every other device must be in order.
+     */
+    public static int indexOf(List<Device> sorted, Device device, int sortedRssi) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rssiAt(sorted, mid, device, sortedRssi) > sortedRssi) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < sorted.size(); i++) {
+            Device candidate = sorted.get(i);
+            if (candidate == device) return i;
+            if (candidate.getRssi() != sortedRssi) break;
+        }
+        return -1;
+    }
+
+    /**
+     * ✅ Move {@code device} after its RSSI changed from {@code previousRssi}.
+     *
+     * @return {@code {from, to}}, or {@code null} if the device is not in the list
+     */
+    public static int[] reposition(List<Device> sorted, Device device, int previousRssi) {
+        int from = indexOf(sorted, device, previousRssi);
+        if (from < 0) return null;
+        sorted.remove(from);
+        int to = insert(sorted, device);
+        return new int[]{from, to};
+    }
+
+    /** RSSI {@code sorted} is ordered by at {@code position}, which is stale for {@code moved}. */
+    private static int rssiAt(List<Device> sorted, int position, Device moved, int movedRssi) {
+        Device device = sorted.get(position);
+        return (device == moved) ? movedRssi : device.getRssi();
+    }
+
+    /** First position whose RSSI is weaker than {@code rssi}. */
+    private static int upperBound(List<Device> sorted, int rssi) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted.get(mid).getRssi() >= rssi) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.healthmonitoringapp.model;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceSnapshotTest {
+
+    private static Device device(int i) {
+        String address = String.format("00:11:22:%02X:%02X:%02X", (i >> 16) & 0xFF, (i >> 8) & 0xFF, i & 0xFF);
+        return new Device("Device " + i, address, false, -60, false, "BLE", "Sensor", 1_000);
+    }
+
+    @Test
+    public void unchangedDeviceKeepsItsSnapshot() {
+        DeviceSnapshot.Interner interner = new DeviceSnapshot.Interner();
+        Device device = device(1);
+        DeviceSnapshot first = interner.of(device);
+        assertSame(first, interner.of(device));
+
+        device.setRssi(-70);
+        DeviceSnapshot second = interner.of(device);
+        assertNotSame(first, second);
+        assertEquals(-70, second.getRssi());
+        assertSame(second, interner.of(device));
+    }
+
+    @Test
+    public void putReplacesTheInternedSnapshot() {
+        DeviceSnapshot.Interner interner = new DeviceSnapshot.Interner();
+        Device device = device(1);
+        DeviceSnapshot connected = interner.put(interner.of(device).withConnected(true));
+        device.setConnected(true);
+        // lastConnectedTime moved, so the device no longer matches
+        assertNotSame(connected, interner.of(device));
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void sweepKeepsOnlyWhatWasSeenSinceTheLastSweep() {
+        DeviceSnapshot.Interner interner = new DeviceSnapshot.Interner();
+        for (int i = 0; i < 100; i++) interner.of(device(i));
+        interner.sweep();
+        assertEquals(100, interner.size());
+
+        DeviceSnapshot kept = interner.of(device(7));
+        interner.of(device(8));
+        interner.sweep();
+        assertEquals(2, interner.size());
+        assertSame(kept, interner.of(device(7)));
+    }
+
+    /** Random passes checked against a plain map, across growth and backward-shift deletion. */
+    @Test
+    public void matchesAReferenceMapUnderChurn() {
+        DeviceSnapshot.Interner interner = new DeviceSnapshot.Interner();
+        Map<String, DeviceSnapshot> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int pass = 0; pass < 200; pass++) {
+            Map<String, DeviceSnapshot> seen = new HashMap<>();
+            int count = random.nextInt(300);
+            for (int i = 0; i < count; i++) {
+                Device device = device(random.nextInt(500));
+                DeviceSnapshot snapshot = interner.of(device);
+                DeviceSnapshot previous = reference.get(device.getAddress());
+                if (previous != null) assertSame(previous, snapshot);
+                seen.put(device.getAddress(), snapshot);
+            }
+            interner.sweep();
+            reference = seen;
+            assertEquals(reference.size(), interner.size());
+        }
+    }
+
+    @Test
+    public void equalityIgnoresIdentityButNotFields() {
+        Device device = device(3);
+        DeviceSnapshot a = DeviceSnapshot.of(device);
+        DeviceSnapshot b = DeviceSnapshot.of(device);
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertTrue(a.isSameDevice(b.withConnected(true)));
+        assertNotEquals(a, b.withConnected(true));
+    }
+
+    /**
+     * Stand-in for a JMH comparison, which the build has no harness for: bytes allocated per call
+     * on the scan path, for {@link Device} against {@link DeviceSnapshot}, and for the primitive
+     * interner against a boxed {@code ConcurrentHashMap<Long, ...>}. The snapshot and interner paths
+     * must not allocate, while the boxed lookup allocates a {@code Long} each time.
+     */
+    @Test
+    public void allocationComparison() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 256; i++) devices.add(device(i + 1_000)); // Outside the Long cache
+        DeviceSnapshot.Interner interner = new DeviceSnapshot.Interner();
+        ConcurrentHashMap<Long, DeviceSnapshot> boxed = new ConcurrentHashMap<>();
+        DeviceSnapshot[] snapshots = new DeviceSnapshot[devices.size()];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = interner.of(devices.get(i));
+            boxed.put(snapshots[i].getPackedAddress(), snapshots[i]);
+        }
+
+        int rounds = 2_000;
+        long sink = 0;
+        long[] bytes = new long[4];
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int r = 0; r < rounds; r++) {
+                for (Device device : devices) sink += device.hashCode() + (device.equals(devices.get(0)) ? 1 : 0);
+            }
+            long deviceEnd = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int r = 0; r < rounds; r++) {
+                for (DeviceSnapshot snapshot : snapshots) sink += snapshot.hashCode() + (snapshot.equals(snapshots[0]) ? 1 : 0);
+            }
+            long snapshotEnd = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int r = 0; r < rounds; r++) {
+                for (Device device : devices) sink += System.identityHashCode(interner.of(device));
+            }
+            long internerEnd = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            for (int r = 0; r < rounds; r++) {
+                for (DeviceSnapshot snapshot : snapshots) sink += System.identityHashCode(boxed.get(snapshot.getPackedAddress()));
+            }
+            long boxedEnd = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            bytes[0] = deviceEnd - start;
+            bytes[1] = snapshotEnd - deviceEnd;
+            bytes[2] = internerEnd - snapshotEnd;
+            bytes[3] = boxedEnd - internerEnd;
+        }
+
+        double calls = (double) rounds * devices.size();
+        String figures = String.format(Locale.ROOT, "bytes per call: Device %.1f, DeviceSnapshot %.1f, "
+                        + "Interner.of %.1f, boxed get %.1f (%d)",
+                bytes[0] / calls, bytes[1] / calls, bytes[2] / calls, bytes[3] / calls, sink & 1);
+        assertTrue(figures, bytes[0] / calls < 1);
+        assertTrue(figures, bytes[1] / calls < 1);
+        assertTrue(figures, bytes[2] / calls < 1);
+        // The boxed key costs a Long per lookup, which the primitive table avoids
+        assertTrue(figures, bytes[3] / calls >= 16);
+    }
+}
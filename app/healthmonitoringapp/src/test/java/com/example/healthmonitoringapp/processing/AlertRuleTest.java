@@ -0,0 +1,136 @@
+package com.example.healthmonitoringapp.processing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class AlertRuleTest {
+    private static final int HEART_RATE = AlertRule.metric(VitalsProcessor.METRIC_HEART_RATE);
+    private static final int SPO2 = AlertRule.metric(VitalsProcessor.METRIC_SPO2);
+
+    /** One device's state for a single rule, as {@link AlertEngine} lays it out. */
+    private static final class Probe {
+        final AlertRule rule;
+        final long[] times;
+        final double[] values;
+
+        Probe(AlertRule rule) {
+            this.rule = rule;
+            this.times = new long[rule.stateSlots() + 1];
+            this.values = new double[rule.stateSlots() + 1];
+            rule.initState(times, values, 1); // Not at slot 0, to catch slot mix-ups
+        }
+
+        boolean test(double value, long timestamp) {
+            return rule.test(value, timestamp, times, values, 1);
+        }
+    }
+
+    @Test
+    public void thresholdRaisesPastTheLimitAndClearsBelowIt() {
+        Probe probe = new Probe(AlertRule.threshold("High", HEART_RATE, true, 150, AlertRule.Severity.CRITICAL));
+        assertFalse(probe.test(150, 0));
+        assertTrue(probe.test(151, 1));
+        assertTrue(probe.test(160, 2));
+        assertFalse(probe.test(149, 3));
+    }
+
+    @Test
+    public void thresholdBelowWatchesFalls() {
+        Probe probe = new Probe(AlertRule.threshold("Low", SPO2, false, 88, AlertRule.Severity.CRITICAL));
+        assertFalse(probe.test(90, 0));
+        assertTrue(probe.test(87, 1));
+        assertFalse(probe.test(89, 2));
+    }
+
+    @Test
+    public void thresholdHysteresisKeepsAHoveringValueRaised() {
+        Probe probe = new Probe(AlertRule.threshold("Low", HEART_RATE, false, 40, 3, AlertRule.Severity.CRITICAL));
+        assertFalse(probe.test(41, 0));
+        assertTrue(probe.test(39, 1));
+        assertTrue(probe.test(41, 2));   // Back over the limit, still inside the band
+        assertTrue(probe.test(42.9, 3));
+        assertFalse(probe.test(43, 4));   // Cleared at limit + hysteresis
+        assertFalse(probe.test(42, 5));   // And has to cross the limit itself to raise again
+        assertTrue(probe.test(39.5, 6));
+    }
+
+    @Test
+    public void sustainedWaitsForTheDuration() {
+        Probe probe = new Probe(AlertRule.sustained("Brady", HEART_RATE, false, 50, 10_000, AlertRule.Severity.WARNING));
+        assertFalse(probe.test(45, 0));
+        assertFalse(probe.test(45, 9_999));
+        assertTrue(probe.test(45, 10_000));
+        assertTrue(probe.test(48, 12_000));
+        assertFalse(probe.test(51, 13_000));
+    }
+
+    @Test
+    public void sustainedRestartsWhenTheConditionBreaks() {
+        Probe probe = new Probe(AlertRule.sustained("Brady", HEART_RATE, false, 50, 10_000, AlertRule.Severity.WARNING));
+        assertFalse(probe.test(45, 0));
+        assertFalse(probe.test(55, 5_000));
+        assertFalse(probe.test(45, 6_000));
+        assertFalse(probe.test(45, 15_000));
+        assertTrue(probe.test(45, 16_000));
+    }
+
+    @Test
+    public void sustainedHysteresisOnlyAppliesOnceRaised() {
+        Probe probe = new Probe(AlertRule.sustained("Brady", HEART_RATE, false, 50, 3, 10_000,
+                AlertRule.Severity.WARNING));
+        assertFalse(probe.test(49, 0));
+        assertFalse(probe.test(52, 5_000)); // Not raised yet: back over the limit restarts the clock
+        assertFalse(probe.test(49, 6_000));
+        assertTrue(probe.test(49, 16_000));
+        assertTrue(probe.test(52, 17_000)); // Raised: inside the band stays raised
+        assertFalse(probe.test(53, 18_000));
+    }
+
+    @Test
+    public void rateOfChangeFiresOnASteepFallAndClearsWhenItLevels() {
+        Probe probe = new Probe(AlertRule.rateOfChange("Fall", SPO2, -0.3, 10_000, AlertRule.Severity.WARNING));
+        assertFalse(probe.test(98, 0));
+        boolean raised = false;
+        long t = 0;
+        double spo2 = 98;
+        for (int i = 0; i < 20; i++) { // -1 %/s
+            t += 1000;
+            spo2 -= 1;
+            raised = probe.test(spo2, t);
+        }
+        assertTrue(raised);
+        for (int i = 0; i < 60 && raised; i++) {
+            t += 1000;
+            raised = probe.test(spo2, t);
+        }
+        assertFalse(raised);
+    }
+
+    @Test
+    public void rateOfChangeIgnoresASlowDrift() {
+        Probe probe = new Probe(AlertRule.rateOfChange("Fall", SPO2, -0.3, 10_000, AlertRule.Severity.WARNING));
+        double spo2 = 98;
+        for (long t = 0; t <= 60_000; t += 1000) {
+            assertFalse(probe.test(spo2, t));
+            spo2 -= 0.1;
+        }
+    }
+
+    @Test
+    public void rateOfChangeSkipsRepeatedTimestamps() {
+        Probe probe = new Probe(AlertRule.rateOfChange("Rise", HEART_RATE, 5, 5_000, AlertRule.Severity.WARNING));
+        probe.test(60, 1000);
+        assertFalse(probe.test(200, 1000)); // Would be an infinite slope
+        assertEquals(60, probe.values[1], 0);
+    }
+
+    @Test
+    public void badInputIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AlertRule.threshold("Bad", AlertRule.INPUT_COUNT, true, 1, AlertRule.Severity.WARNING));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.healthmonitoringapp.processing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BiquadTest {
+    private static final double FS = 250;
+
+    /** Peak output amplitude for a unit sine of {@code hz}, after the filter has settled. */
+    private static double gain(Biquad filter, double hz) {
+        double peak = 0;
+        for (int i = 0; i < FS * 20; i++) {
+            double y = filter.process(Math.sin(2 * Math.PI * hz * i / FS));
+            if (i > FS * 10) peak = Math.max(peak, Math.abs(y));
+        }
+        return peak;
+    }
+
+    @Test
+    public void lowPassKeepsDcAndDropsHighFrequencies() {
+        Biquad filter = Biquad.lowPass(FS, 0.5);
+        double y = 0;
+        for (int i = 0; i < FS * 10; i++) y = filter.process(1000);
+        assertEquals(1000, y, 1e-6);
+        assertTrue(gain(Biquad.lowPass(FS, 0.5), 10) < 0.01);
+    }
+
+    @Test
+    public void highPassRemovesDc() {
+        Biquad filter = Biquad.highPass(FS, 0.5);
+        double y = 0;
+        for (int i = 0; i < FS * 20; i++) y = filter.process(1000);
+        assertEquals(0, y, 1e-3);
+        assertEquals(1, gain(Biquad.highPass(FS, 0.5), 10), 0.01);
+    }
+
+    @Test
+    public void bandPassHasUnitGainAtItsCentre() {
+        double centre = Math.sqrt(5 * 15);
+        assertEquals(1, gain(Biquad.bandPass(FS, 5, 15), centre), 0.01);
+        assertTrue(gain(Biquad.bandPass(FS, 5, 15), 0.5) < 0.1);
+        assertTrue(gain(Biquad.bandPass(FS, 5, 15), 100) < 0.2);
+    }
+
+    @Test
+    public void resetForgetsState() {
+        Biquad filter = Biquad.lowPass(FS, 0.5);
+        for (int i = 0; i < 100; i++) filter.process(1000);
+        filter.reset();
+        Biquad fresh = Biquad.lowPass(FS, 0.5);
+        assertEquals(fresh.process(10), filter.process(10), 0);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.healthmonitoringapp.processing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MovingAverageTest {
+
+    @Test
+    public void averagesWhatItHasUntilTheWindowFills() {
+        MovingAverage average = new MovingAverage(4);
+        assertEquals(2, average.process(2), 0);
+        assertEquals(3, average.process(4), 0);
+        assertEquals(4, average.process(6), 0);
+        assertEquals(5, average.process(8), 0);
+    }
+
+    @Test
+    public void slidesOverTheLastInputs() {
+        MovingAverage average = new MovingAverage(3);
+        for (int x = 1; x <= 9; x++) average.process(x);
+        assertEquals(9, average.process(10), 1e-9); // 8, 9, 10
+    }
+
+    @Test
+    public void resetStartsOver() {
+        MovingAverage average = new MovingAverage(3);
+        average.process(100);
+        average.process(100);
+        average.reset();
+        assertEquals(1, average.process(1), 0);
+    }
+
+    @Test
+    public void nonPositiveLengthBehavesAsOne() {
+        MovingAverage average = new MovingAverage(0);
+        average.process(5);
+        assertEquals(7, average.process(7), 0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.healthmonitoringapp.processing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PeakDetectorTest {
+    private static final double FS = 250;
+
+    /** Triangular pulses of {@code amplitude} every {@code period} samples, peaking at multiples of it plus 5. */
+    private static double pulse(long i, int period, double amplitude) {
+        long phase = i % period;
+        return (phase < 10) ? amplitude * (1 - Math.abs(phase - 5) / 5.0) : 0;
+    }
+
+    private static List<Long> detect(PeakDetector detector, long samples, int period, double amplitude, double noise) {
+        List<Long> peaks = new ArrayList<>();
+        java.util.Random random = new java.util.Random(7);
+        for (long i = 0; i < samples; i++) {
+            double x = pulse(i, period, amplitude) + noise * random.nextDouble();
+            if (detector.process(x, i)) peaks.add(detector.getLastPeakIndex());
+        }
+        return peaks;
+    }
+
+    @Test
+    public void findsEveryPulseAfterLearning() {
+        List<Long> peaks = detect(new PeakDetector(FS, 250), (long) FS * 20, 250, 100, 0);
+        // Two seconds of learning, then one beat a second
+        assertTrue(peaks.size() >= 17);
+        for (long peak : peaks) {
+            assertEquals(5, peak % 250);
+        }
+    }
+
+    @Test
+    public void ignoresNoiseBetweenPulses() {
+        List<Long> peaks = detect(new PeakDetector(FS, 250), (long) FS * 20, 250, 100, 5);
+        for (int i = 1; i < peaks.size(); i++) {
+            assertEquals(250, peaks.get(i) - peaks.get(i - 1), 2);
+        }
+    }
+
+    @Test
+    public void refractoryPeriodSuppressesCloseCandidates() {
+        // Pulses every 40 ms are faster than the 250 ms refractory period allows
+        List<Long> peaks = detect(new PeakDetector(FS, 250), (long) FS * 10, 10, 100, 0);
+        for (int i = 1; i < peaks.size(); i++) {
+            assertTrue(peaks.get(i) - peaks.get(i - 1) >= Math.round(FS * 0.25));
+        }
+    }
+
+    @Test
+    public void followsSlowBeats() {
+        // 20 bpm: three seconds between pulses
+        List<Long> peaks = detect(new PeakDetector(FS, 250), (long) FS * 60, 750, 100, 2);
+        assertTrue(peaks.size() >= 18);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.healthmonitoringapp.processing;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VitalsProcessorTest {
+    private static final double FS = 250;
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+    /** Per-sample cost the benchmark must stay under; it measures well below 1 us on a laptop. */
+    private static final long SAMPLE_BUDGET_NANOS = 10_000;
+
+    /** Last value of each metric the processor published. */
+    private static final class LastMetrics implements VitalsProcessor.MetricSink {
+        final double[] values = { Double.NaN, Double.NaN, Double.NaN };
+        final long[] times = new long[VitalsProcessor.METRIC_COUNT];
+
+        @Override
+        public void onMetric(String address, int metric, double value, long timestamp) {
+            values[metric] = value;
+            times[metric] = timestamp;
+        }
+    }
+
+    /**
+     * Synthetic ECG (channel 0) and PPG (red 1, IR 2) at 250 Hz. Beats follow {@code rrMillis} in
+     * turn; a non-positive interval means no beat at all from then on.
+     */
+    private static final class Generator {
+        final VitalsProcessor processor;
+        final String address;
+        final int[] values = new int[3];
+        long sample;
+        long nextBeat = (long) FS; // First beat after a second
+        double redAc = 500;
+        double irAc = 1000;
+
+        Generator(VitalsProcessor processor) {
+            this(processor, ADDRESS);
+        }
+
+        Generator(VitalsProcessor processor, String address) {
+            this.processor = processor;
+            this.address = address;
+        }
+
+        void run(double seconds, int... rrMillis) {
+            int rr = 0;
+            long end = sample + (long) (seconds * FS);
+            for (; sample < end; sample++) {
+                if (sample == nextBeat + 1) {
+                    int interval = rrMillis[rr++ % rrMillis.length];
+                    nextBeat = (interval > 0) ? nextBeat + Math.round(interval * FS / 1000) : Long.MAX_VALUE;
+                }
+                double sinceBeat = (sample - nextBeat) / FS;
+                double qrs = Math.exp(-sinceBeat * sinceBeat / (2 * 0.01 * 0.01));
+                double pulse = Math.sin(2 * Math.PI * 1.2 * sample / FS); // PPG at a fixed 72 bpm
+                values[0] = (int) (2000 * qrs);
+                values[1] = (int) (50_000 + redAc * pulse);
+                values[2] = (int) (50_000 + irAc * pulse);
+                processor.onSample(address, sample, Math.round(sample * 1000 / FS), values, 3);
+            }
+        }
+    }
+
+    private static Generator generator(LastMetrics metrics) {
+        VitalsProcessor processor = new VitalsProcessor(null);
+        processor.addMetricSink(metrics);
+        return new Generator(processor);
+    }
+
+    @Test
+    public void steadyRhythmGivesItsRateAndLowVariability() {
+        LastMetrics metrics = new LastMetrics();
+        generator(metrics).run(30, 1000);
+
+        assertEquals(60, metrics.values[VitalsProcessor.METRIC_HEART_RATE], 1);
+        assertTrue(metrics.values[VitalsProcessor.METRIC_RMSSD] < 5);
+    }
+
+    @Test
+    public void alternatingIntervalsGiveTheirRmssd() {
+        LastMetrics metrics = new LastMetrics();
+        generator(metrics).run(40, 900, 1100);
+
+        assertEquals(60, metrics.values[VitalsProcessor.METRIC_HEART_RATE], 1);
+        assertEquals(200, metrics.values[VitalsProcessor.METRIC_RMSSD], 10);
+    }
+
+    @Test
+    public void spo2FollowsTheRatioOfRatios() {
+        LastMetrics metrics = new LastMetrics();
+        generator(metrics).run(30, 1000);
+
+        // R = (500 / 50000) / (1000 / 50000) = 0.5, so 110 - 25 * 0.5
+        assertEquals(97.5, metrics.values[VitalsProcessor.METRIC_SPO2], 1.5);
+    }
+
+    @Test
+    public void bradycardiaBelowThirtyBpmIsReported() {
+        LastMetrics metrics = new LastMetrics();
+        Generator generator = generator(metrics);
+        generator.run(20, 1000);
+        generator.run(60, 2500); // 24 bpm
+
+        assertEquals(24, metrics.values[VitalsProcessor.METRIC_HEART_RATE], 2);
+    }
+
+    @Test
+    public void asystoleDrivesTheRateDownWhileMetricsKeepComing() {
+        LastMetrics metrics = new LastMetrics();
+        Generator generator = generator(metrics);
+        generator.run(20, 1000);
+        generator.run(12, 1000, 0); // One more beat, then nothing
+
+        assertTrue(metrics.values[VitalsProcessor.METRIC_HEART_RATE] < 10);
+        long end = Math.round(generator.sample * 1000 / FS);
+        assertTrue(end - metrics.times[VitalsProcessor.METRIC_HEART_RATE] <= VitalsProcessor.PUBLISH_INTERVAL_MS);
+    }
+
+    /**
+     * Stand-in for a JMH run, which the build has no harness for: after a warmup round, ECG and
+     * PPG from several devices go through one processor with a metric sink attached. The timed
+     * round must stay within {@link #SAMPLE_BUDGET_NANOS} and must not allocate per sample.
+     */
+    @Test
+    public void benchmarkSeveralDevicesWithoutAllocating() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean threads = (bean instanceof com.sun.management.ThreadMXBean)
+                ? (com.sun.management.ThreadMXBean) bean : null;
+
+        LastMetrics metrics = new LastMetrics();
+        VitalsProcessor processor = new VitalsProcessor(null);
+        processor.addMetricSink(metrics);
+        Generator[] generators = new Generator[4];
+        for (int i = 0; i < generators.length; i++) {
+            generators[i] = new Generator(processor, "AA:BB:CC:DD:EE:0" + (i + 1));
+            generators[i].run(1, 900 + 50 * i); // Every device exists before the timed round
+        }
+
+        // Signals are generated up front so the timed loop only measures the processor
+        int seconds = 60;
+        int samples = (int) (seconds * FS);
+        int[][] signal = new int[3][samples];
+        for (int s = 0; s < samples; s++) {
+            double sinceBeat = (s % (int) FS) / FS; // 60 bpm
+            double qrs = Math.exp(-sinceBeat * sinceBeat / (2 * 0.01 * 0.01));
+            double pulse = Math.sin(2 * Math.PI * 1.2 * s / FS);
+            signal[0][s] = (int) (2000 * qrs);
+            signal[1][s] = (int) (50_000 + 500 * pulse);
+            signal[2][s] = (int) (50_000 + 1000 * pulse);
+        }
+
+        int[] values = new int[3];
+        long sequence = generators[0].sample;
+        long perSample = 0;
+        long bytes = 0;
+        for (int round = 0; round < 2; round++) { // The first round warms up the JIT
+            long allocatedBefore = (threads != null) ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+            long start = System.nanoTime();
+            for (int s = 0; s < samples; s++, sequence++) {
+                long timestamp = Math.round(sequence * 1000 / FS);
+                for (Generator generator : generators) {
+                    values[0] = signal[0][s];
+                    values[1] = signal[1][s];
+                    values[2] = signal[2][s];
+                    processor.onSample(generator.address, sequence, timestamp, values, 3);
+                }
+            }
+            perSample = (System.nanoTime() - start) / ((long) samples * generators.length);
+            if (threads != null) {
+                bytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+            }
+        }
+
+        String figures = String.format(Locale.ROOT, "%d ns per sample, sampled %d ns, %d bytes over %d samples",
+                perSample, processor.getAverageCostNanos(), bytes, (long) samples * generators.length);
+        // 4 devices at 250 Hz are 1000 samples a second; 10 us each keeps vitals under 1% of the dispatch thread
+        assertTrue(figures, perSample < SAMPLE_BUDGET_NANOS);
+        // Filtering must not allocate; a few hundred bytes of slack covers the bean's own bookkeeping
+        assertTrue(figures, bytes < 512);
+        assertEquals(60, metrics.values[VitalsProcessor.METRIC_HEART_RATE], 1);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.healthmonitoringapp.protocol;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FrameDecoderTest {
+
+    /** Collects what a decoder emits. */
+    private static final class Recorder implements FrameDecoder.Callback {
+        final List<Integer> sequences = new ArrayList<>();
+        final List<int[]> samples = new ArrayList<>();
+        final List<byte[]> controlBodies = new ArrayList<>();
+        final List<Integer> controlTypes = new ArrayList<>();
+
+        @Override
+        public void onSample(int sequence, long timestamp, int[] values, int valueCount) {
+            sequences.add(sequence);
+            int[] copy = new int[valueCount];
+            System.arraycopy(values, 0, copy, 0, valueCount);
+            samples.add(copy);
+        }
+
+        @Override
+        public void onControlFrame(int type, int sequence, ByteBuffer body) {
+            sequences.add(sequence);
+            controlTypes.add(type);
+            byte[] copy = new byte[body.remaining()];
+            body.get(copy);
+            controlBodies.add(copy);
+        }
+    }
+
+    private static byte[] sample(FrameEncoder encoder, int sequence, int... values) {
+        ByteBuffer body = ByteBuffer.allocate(values.length * 2);
+        for (int v : values) body.putShort((short) v);
+        body.flip();
+        return bytes(encoder.encode(FrameDecoder.TYPE_SAMPLE, sequence, body));
+    }
+
+    private static byte[] bytes(Command command) {
+        byte[] result = new byte[command.size()];
+        command.bytes().get(result);
+        return result;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteBuffer out = ByteBuffer.allocate(parts.length * 600);
+        for (byte[] part : parts) out.put(part);
+        byte[] result = new byte[out.position()];
+        out.flip();
+        out.get(result);
+        return result;
+    }
+
+    /** Feed {@code stream} in {@code chunk}-byte reads through one compacting buffer, as the reader does. */
+    private static Recorder decode(FrameDecoder decoder, byte[] stream, int chunk) {
+        Recorder recorder = new Recorder();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (int offset = 0; offset < stream.length; offset += chunk) {
+            buffer.put(stream, offset, Math.min(chunk, stream.length - offset));
+            buffer.flip();
+            decoder.decode(buffer, 0, recorder);
+            buffer.compact();
+        }
+        return recorder;
+    }
+
+    @Test
+    public void lengthPrefixedFramesSurviveAnySplit() {
+        FrameEncoder encoder = new LengthPrefixedFrameEncoder();
+        byte[] stream = concat(sample(encoder, 1, 100, -200), sample(encoder, 2, 300, -400), sample(encoder, 3, 500));
+        for (int chunk = 1; chunk <= stream.length; chunk++) {
+            LengthPrefixedFrameDecoder decoder = new LengthPrefixedFrameDecoder();
+            Recorder recorder = decode(decoder, stream, chunk);
+            assertEquals("chunk " + chunk, List.of(1, 2, 3), recorder.sequences);
+            assertArrayEquals(new int[]{300, -400}, recorder.samples.get(1));
+            assertEquals(0, decoder.getErrorCount());
+            assertEquals(3, decoder.getFrameCount());
+        }
+    }
+
+    @Test
+    public void lengthPrefixedDecoderResyncsAfterNoiseAndCorruption() {
+        FrameEncoder encoder = new LengthPrefixedFrameEncoder();
+        byte[] corrupt = sample(encoder, 2, 7, 8);
+        corrupt[corrupt.length - 1] ^= 0x01;
+        byte[] noise = {0x00, (byte) LengthPrefixedFrameDecoder.SYNC, 0x01, 0x42, (byte) 0xFF};
+        byte[] stream = concat(noise, sample(encoder, 1, 1), corrupt, noise, sample(encoder, 3, 3, 4));
+
+        LengthPrefixedFrameDecoder decoder = new LengthPrefixedFrameDecoder();
+        Recorder recorder = decode(decoder, stream, stream.length);
+        assertEquals(List.of(1, 3), recorder.sequences);
+        assertArrayEquals(new int[]{3, 4}, recorder.samples.get(1));
+        assertEquals(2, decoder.getFrameCount());
+        assertEquals(3, decoder.getErrorCount()); // Two short sync lengths and the bad CRC
+    }
+
+    @Test
+    public void delimitedFramesUnstuffReservedBytes() {
+        FrameEncoder encoder = new DelimitedFrameEncoder();
+        // 0xC0DB and 0xDBC0 put both reserved bytes in the body
+        byte[] stream = concat(sample(encoder, 0xC0DB, 0xC0DB, 0xDBC0 - 0x10000), sample(encoder, 2, 5));
+        for (int chunk = 1; chunk <= stream.length; chunk++) {
+            DelimitedFrameDecoder decoder = new DelimitedFrameDecoder();
+            Recorder recorder = decode(decoder, stream, chunk);
+            assertEquals("chunk " + chunk, List.of(0xC0DB, 2), recorder.sequences);
+            assertArrayEquals(new int[]{(short) 0xC0DB, (short) 0xDBC0}, recorder.samples.get(0));
+            assertEquals(0, decoder.getErrorCount());
+        }
+    }
+
+    @Test
+    public void delimitedDecoderDropsBadFramesUpToTheNextDelimiter() {
+        FrameEncoder encoder = new DelimitedFrameEncoder();
+        byte[] corrupt = sample(encoder, 2, 7);
+        corrupt[3] ^= 0x01;
+        byte[] badEscape = {(byte) DelimitedFrameDecoder.ESC, 0x01, 0x02, (byte) DelimitedFrameDecoder.END};
+        byte[] oversize = new byte[600];
+        oversize[599] = (byte) DelimitedFrameDecoder.END;
+        byte[] stream = concat(badEscape, sample(encoder, 1, 1), corrupt, oversize, sample(encoder, 3, 3));
+
+        DelimitedFrameDecoder decoder = new DelimitedFrameDecoder();
+        Recorder recorder = decode(decoder, stream, 64);
+        assertEquals(List.of(1, 3), recorder.sequences);
+        assertEquals(2, decoder.getFrameCount());
+        assertEquals(3, decoder.getErrorCount());
+    }
+
+    @Test
+    public void resetForgetsAPartialFrame() {
+        FrameEncoder encoder = new DelimitedFrameEncoder();
+        byte[] first = sample(encoder, 1, 1);
+        DelimitedFrameDecoder decoder = new DelimitedFrameDecoder();
+        Recorder recorder = new Recorder();
+        decoder.decode(ByteBuffer.wrap(first, 0, first.length - 3), 0, recorder);
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(sample(encoder, 2, 2)), 0, recorder);
+        assertEquals(List.of(2), recorder.sequences);
+        assertEquals(0, decoder.getErrorCount());
+    }
+
+    @Test
+    public void controlFramesCarryTheirBody() {
+        for (FrameEncoder encoder : new FrameEncoder[]{new LengthPrefixedFrameEncoder(), new DelimitedFrameEncoder()}) {
+            FrameDecoder decoder = (encoder instanceof DelimitedFrameEncoder)
+                    ? new DelimitedFrameDecoder() : new LengthPrefixedFrameDecoder();
+            byte[] body = {1, 2, (byte) 0xC0, 3};
+            byte[] frame = bytes(encoder.encode(0x10 | FrameDecoder.RESPONSE_FLAG, 77, ByteBuffer.wrap(body)));
+
+            Recorder recorder = decode(decoder, frame, frame.length);
+            assertEquals(List.of(0x10 | FrameDecoder.RESPONSE_FLAG), recorder.controlTypes);
+            assertEquals(List.of(77), recorder.sequences);
+            assertArrayEquals(body, recorder.controlBodies.get(0));
+        }
+    }
+}
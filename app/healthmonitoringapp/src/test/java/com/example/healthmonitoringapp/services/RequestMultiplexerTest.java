@@ -0,0 +1,147 @@
+package com.example.healthmonitoringapp.services;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.healthmonitoringapp.protocol.FrameDecoder;
+import com.example.healthmonitoringapp.protocol.LengthPrefixedFrameEncoder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestMultiplexerTest {
+    private static final int TYPE = 0x10;
+
+    private RequestMultiplexer multiplexer;
+    private int sent;
+
+    @Before
+    public void setUp() {
+        // Deadlines are never delivered: Handler is a no-op outside a device
+        multiplexer = new RequestMultiplexer("AA:BB:CC:DD:EE:FF", new LengthPrefixedFrameEncoder(), frame -> {
+            sent++;
+            return CompletableFuture.completedFuture(null);
+        }, new Handler(Looper.getMainLooper()));
+    }
+
+    /** A request remembering the sequence it was sent with. */
+    private static final class Outstanding {
+        final int tag;
+        final CompletableFuture<RequestMultiplexer.Response> result;
+        int sequence = -1;
+
+        Outstanding(int tag, CompletableFuture<RequestMultiplexer.Response> result) {
+            this.tag = tag;
+            this.result = result;
+        }
+    }
+
+    private Outstanding request(int tag) {
+        ByteBuffer body = ByteBuffer.allocate(4).putInt(0, tag);
+        return new Outstanding(tag, multiplexer.request(TYPE, body, 0));
+    }
+
+    private boolean answer(int sequence, int tag) {
+        ByteBuffer body = ByteBuffer.allocate(4).putInt(0, tag);
+        return multiplexer.onControlFrame(TYPE | FrameDecoder.RESPONSE_FLAG, sequence, body);
+    }
+
+    @Test
+    public void repliesInAnyOrderFindTheirRequests() throws Exception {
+        // Sequences are handed out in order from 0, so the nth request carries sequence n
+        List<Outstanding> inFlight = new ArrayList<>();
+        int nextTag = 0;
+        int nextSequence = 0;
+        Random random = new Random(5);
+        for (int step = 0; step < 20_000; step++) {
+            if (inFlight.size() < RequestMultiplexer.MAX_IN_FLIGHT && (inFlight.isEmpty() || random.nextBoolean())) {
+                Outstanding request = request(nextTag++);
+                request.sequence = nextSequence;
+                nextSequence = (nextSequence + 1) & 0xFFFF;
+                inFlight.add(request);
+                continue;
+            }
+            Outstanding request = inFlight.remove(random.nextInt(inFlight.size()));
+            assertTrue(answer(request.sequence, request.tag));
+            RequestMultiplexer.Response response = request.result.get();
+            assertEquals(request.sequence, response.getSequence());
+            assertEquals(request.tag, response.getBody().getInt(0));
+            assertEquals(inFlight.size(), multiplexer.getInFlightCount());
+        }
+        for (Outstanding request : inFlight) {
+            assertFalse(request.result.isDone());
+        }
+        assertEquals(nextTag, sent);
+        assertEquals(0, multiplexer.getUnmatchedCount());
+    }
+
+    @Test
+    public void sequencesInFlightAreSkippedAfterWrapping() throws Exception {
+        Outstanding held = request(0); // Sequence 0 stays pending
+        for (int i = 1; i < 0x10000; i++) {
+            Outstanding request = request(i);
+            assertTrue(answer(i, i));
+            request.result.get();
+        }
+        Outstanding wrapped = request(0x10000); // Back at 0, which is taken, so it gets 1
+        assertTrue(answer(1, 0x10000));
+        assertEquals(0x10000, wrapped.result.get().getBody().getInt(0));
+        assertFalse(held.result.isDone());
+        assertTrue(answer(0, 0));
+        assertEquals(0, held.result.get().getBody().getInt(0));
+    }
+
+    @Test
+    public void tooManyInFlightIsRefused() {
+        for (int i = 0; i < RequestMultiplexer.MAX_IN_FLIGHT; i++) request(i);
+        Outstanding refused = request(-1);
+        try {
+            refused.result.get();
+        } catch (ExecutionException | InterruptedException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            return;
+        }
+        throw new AssertionError("expected a refusal");
+    }
+
+    @Test
+    public void strayAndMismatchedRepliesAreCounted() {
+        Outstanding request = request(1);
+        assertFalse(answer(500, 1));
+        assertFalse(multiplexer.onControlFrame(0x11 | FrameDecoder.RESPONSE_FLAG, 0, ByteBuffer.allocate(0)));
+        assertFalse(multiplexer.onControlFrame(TYPE, 0, ByteBuffer.allocate(0)));
+        assertEquals(2, multiplexer.getUnmatchedCount());
+        assertFalse(request.result.isDone());
+    }
+
+    @Test
+    public void closeFailsEveryPendingRequest() throws InterruptedException {
+        List<Outstanding> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) requests.add(request(i));
+        IOException cause = new IOException("gone");
+        multiplexer.close(cause);
+
+        assertEquals(0, multiplexer.getInFlightCount());
+        for (Outstanding request : requests) {
+            try {
+                request.result.get();
+                throw new AssertionError("expected failure");
+            } catch (ExecutionException e) {
+                assertEquals(cause, e.getCause());
+            }
+        }
+        assertTrue(request(99).result.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.healthmonitoringapp.storage;
+
+import com.example.healthmonitoringapp.stream.SampleSink;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BlockCodecTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+
+    /** One decoded sample. */
+    private static final class Sample {
+        final long sequence;
+        final long timestamp;
+        final int[] values;
+
+        Sample(long sequence, long timestamp, int[] values) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.values = values;
+        }
+    }
+
+    private static List<Sample> decode(ByteBuffer block, long from, long to) {
+        List<Sample> result = new ArrayList<>();
+        SampleSink sink = (address, sequence, timestamp, values, valueCount) -> {
+            assertEquals(ADDRESS, address);
+            int[] copy = new int[valueCount];
+            System.arraycopy(values, 0, copy, 0, valueCount);
+            result.add(new Sample(sequence, timestamp, copy));
+        };
+        int emitted = BlockCodec.decode(block, ADDRESS, from, to, sink, new int[BlockCodec.MAX_CHANNELS]);
+        assertEquals(result.size(), emitted);
+        return result;
+    }
+
+    /** Jittery timestamps, a sequence gap and values that swing across the int range. */
+    private static List<Sample> awkwardSamples(int count) {
+        List<Sample> samples = new ArrayList<>();
+        long timestamp = 1_700_000_000_000L;
+        long sequence = 40;
+        for (int i = 0; i < count; i++) {
+            timestamp += 4 + (i % 3);
+            sequence += (i == count / 2) ? 17 : 1;
+            int[] values = {i * 1_000, -i, (i % 2 == 0) ? Integer.MAX_VALUE : Integer.MIN_VALUE};
+            samples.add(new Sample(sequence, timestamp, values));
+        }
+        return samples;
+    }
+
+    private static ByteBuffer encode(List<Sample> samples) {
+        BlockCodec.Writer writer = new BlockCodec.Writer(ByteBuffer.allocate(BlockCodec.BLOCK_SIZE));
+        for (Sample s : samples) {
+            assertTrue(writer.append(s.sequence, s.timestamp, s.values, s.values.length));
+        }
+        return writer.seal();
+    }
+
+    private static void assertSamples(List<Sample> expected, List<Sample> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).sequence, actual.get(i).sequence);
+            assertEquals(expected.get(i).timestamp, actual.get(i).timestamp);
+            assertArrayEquals(expected.get(i).values, actual.get(i).values);
+        }
+    }
+
+    @Test
+    public void sealedBlockRoundTrips() {
+        List<Sample> samples = awkwardSamples(100);
+        ByteBuffer block = encode(samples);
+
+        assertEquals(0, block.position());
+        assertEquals(BlockCodec.BLOCK_SIZE, block.limit());
+        assertTrue(BlockCodec.isValid(block));
+        assertEquals(samples.get(0).timestamp, BlockCodec.firstTimestamp(block));
+        assertEquals(samples.get(99).timestamp, BlockCodec.lastTimestamp(block));
+        assertEquals(samples.get(99).sequence, BlockCodec.lastSequence(block));
+        assertSamples(samples, decode(block, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void decodeEmitsOnlyTheRequestedRange() {
+        List<Sample> samples = awkwardSamples(100);
+        ByteBuffer block = encode(samples);
+
+        List<Sample> range = decode(block, samples.get(10).timestamp, samples.get(19).timestamp);
+        assertSamples(samples.subList(10, 20), range);
+        assertEquals(0, decode(block, samples.get(99).timestamp + 1, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    public void steadyStreamPacksSeveralHundredSamplesPerBlock() {
+        BlockCodec.Writer writer = new BlockCodec.Writer(ByteBuffer.allocate(BlockCodec.BLOCK_SIZE));
+        int[] values = new int[3];
+        int appended = 0;
+        while (writer.append(appended, appended * 10L, values, 3)) {
+            values[0] += 3;
+            values[1] -= 1;
+            appended++;
+        }
+        assertTrue("appended " + appended, appended > 700);
+
+        ByteBuffer block = writer.seal();
+        assertTrue(BlockCodec.isValid(block));
+        List<Sample> decoded = decode(block, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(appended, decoded.size());
+        assertEquals((appended - 1) * 3, decoded.get(appended - 1).values[0]);
+    }
+
+    @Test
+    public void channelCountChangeStartsANewBlock() {
+        BlockCodec.Writer writer = new BlockCodec.Writer(ByteBuffer.allocate(BlockCodec.BLOCK_SIZE));
+        assertTrue(writer.append(0, 0, new int[]{1, 2}, 2));
+        assertFalse(writer.append(1, 10, new int[]{1, 2, 3}, 3));
+        assertTrue(writer.append(1, 10, new int[]{3, 4}, 2));
+    }
+
+    @Test
+    public void snapshotDecodesWithoutSealing() {
+        List<Sample> samples = awkwardSamples(30);
+        BlockCodec.Writer writer = new BlockCodec.Writer(ByteBuffer.allocate(BlockCodec.BLOCK_SIZE));
+        for (Sample s : samples.subList(0, 20)) writer.append(s.sequence, s.timestamp, s.values, s.values.length);
+
+        ByteBuffer snapshot = writer.snapshot();
+        for (Sample s : samples.subList(20, 30)) writer.append(s.sequence, s.timestamp, s.values, s.values.length);
+
+        assertSamples(samples.subList(0, 20), decode(snapshot, Long.MIN_VALUE, Long.MAX_VALUE));
+        assertSamples(samples, decode(writer.seal(), Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void flippedBodyByteFailsTheCrcButNotTheHeader() {
+        ByteBuffer block = encode(awkwardSamples(100));
+        int position = BlockCodec.HEADER_SIZE + 40;
+        block.put(position, (byte) (block.get(position) ^ 0x01));
+
+        assertTrue(BlockCodec.hasValidHeader(block));
+        assertFalse(BlockCodec.isValid(block));
+    }
+
+    @Test
+    public void damagedHeaderIsRejected() {
+        ByteBuffer badMagic = encode(awkwardSamples(10));
+        badMagic.putInt(0, 0);
+        assertFalse(BlockCodec.hasValidHeader(badMagic));
+        assertFalse(BlockCodec.isValid(badMagic));
+
+        ByteBuffer badLength = encode(awkwardSamples(10));
+        badLength.putInt(12, BlockCodec.BLOCK_SIZE); // Body length field
+        assertFalse(BlockCodec.hasValidHeader(badLength));
+
+        assertFalse(BlockCodec.isValid(ByteBuffer.allocate(BlockCodec.BLOCK_SIZE)));
+    }
+
+    @Test
+    public void zigzagVarintsRoundTripAtTheExtremes() {
+        int[] ints = {0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        long[] longs = {0, 1, -1, 1L << 40, -(1L << 40), Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (int v : ints) BlockCodec.writeVarInt(buffer, BlockCodec.zigzag(v));
+        for (long v : longs) BlockCodec.writeVarLong(buffer, BlockCodec.zigzag(v));
+        buffer.flip();
+        for (int v : ints) assertEquals(v, BlockCodec.unzigzag(BlockCodec.readVarInt(buffer)));
+        for (long v : longs) assertEquals(v, BlockCodec.unzigzagLong(BlockCodec.readVarLong(buffer)));
+        assertFalse(buffer.hasRemaining());
+
+        buffer.clear();
+        BlockCodec.writeVarInt(buffer, BlockCodec.zigzag(-1));
+        assertEquals(1, buffer.position()); // Small magnitudes cost one byte either side of zero
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.healthmonitoringapp.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+public class RollupStageTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+
+    private File root;
+    private File rollupDir;
+    private TimeSeriesStore store;
+    private RollupStage rollup;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("rollup").toFile();
+        rollupDir = Files.createTempDirectory("rollup-rings").toFile();
+        store = new TimeSeriesStore(root);
+        rollup = new RollupStage(store);
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+        TimeSeriesStoreTest.deleteRecursively(root);
+        TimeSeriesStoreTest.deleteRecursively(rollupDir);
+    }
+
+    /** 500 Hz samples from {@code start}, channel 0 counting up from 0. */
+    private void feed(long start, int count) {
+        int[] values = new int[2];
+        for (int i = 0; i < count; i++) {
+            values[0] = i;
+            values[1] = -i;
+            long timestamp = start + i * 2L;
+            store.onSample(ADDRESS, i, timestamp, values, 2);
+            rollup.onSample(ADDRESS, i, timestamp, values, 2);
+        }
+    }
+
+    /** Like {@link #feed} but into {@code target} alone, channel 0 counting up from {@code first}. */
+    private static void feedRollup(RollupStage target, long start, int first, int count) {
+        int[] values = new int[2];
+        for (int i = 0; i < count; i++) {
+            values[0] = first + i;
+            values[1] = -(first + i);
+            target.onSample(ADDRESS, first + i, start + i * 2L, values, 2);
+        }
+    }
+
+    private static int total(RollupSeries series) {
+        int count = 0;
+        for (int i = 0; i < series.size(); i++) count += series.getCount(i);
+        return count;
+    }
+
+    @Test
+    public void rawQueryOfTheLastSecondSeesUnwrittenSamples() throws IOException {
+        feed(0, 5_000); // Ten seconds, most of it still in memory
+        RollupSeries series = rollup.query(ADDRESS, 0, 9_000, 9_998, 100);
+
+        assertEquals(RollupStage.Resolution.RAW, series.getResolution());
+        assertEquals(500, total(series));
+        assertEquals(4_500, series.getMin(0));
+        assertEquals(4_999, series.getMax(series.size() - 1));
+    }
+
+    @Test
+    public void shortRangeEndingNowIsComplete() throws IOException {
+        feed(0, 5_000);
+        RollupSeries series = rollup.query(ADDRESS, 1, 0, 9_998, 9);
+
+        assertEquals(RollupStage.Resolution.SECOND, series.getResolution());
+        assertEquals(5_000, total(series));
+        assertEquals(-4_999, series.getMin(series.size() - 1));
+    }
+
+    @Test
+    public void storedRingsAnswerAfterARestartWithoutRawData() throws IOException {
+        RollupStage before = new RollupStage(store, rollupDir);
+        feedRollup(before, 0, 0, 90_000); // Three minutes
+        before.close();
+
+        // No store behind it, so every bucket below comes from the files
+        RollupStage after = new RollupStage(null, rollupDir);
+        RollupSeries minutes = after.query(ADDRESS, 0, 60_000, 179_999, 1);
+        assertEquals(RollupStage.Resolution.MINUTE, minutes.getResolution());
+        assertEquals(2, minutes.size());
+        assertEquals(60_000, minutes.getBucketStart(0));
+        assertEquals(30_000, minutes.getCount(0));
+        assertEquals(30_000, minutes.getMin(0));
+        assertEquals(59_999, minutes.getMax(0));
+        assertEquals(89_999, minutes.getMax(1));
+
+        RollupSeries seconds = after.query(ADDRESS, 1, 60_000, 69_999, 5);
+        assertEquals(RollupStage.Resolution.SECOND, seconds.getResolution());
+        assertEquals(5_000, total(seconds));
+        assertEquals(-34_999, seconds.getMin(seconds.size() - 1));
+        after.close();
+    }
+
+    @Test
+    public void samplesAfterARestartJoinTheStoredBucket() throws IOException {
+        RollupStage before = new RollupStage(null, rollupDir);
+        feedRollup(before, 0, 0, 45_000); // Into the middle of the second minute
+        before.close();
+
+        RollupStage after = new RollupStage(null, rollupDir);
+        feedRollup(after, 90_000, 45_000, 20_000);
+        RollupSeries minutes = after.query(ADDRESS, 0, 60_000, 120_000, 1);
+        assertEquals(RollupStage.Resolution.MINUTE, minutes.getResolution());
+        assertEquals(60_000, minutes.getBucketStart(0));
+        assertEquals(30_000, minutes.getCount(0));
+        assertEquals(30_000, minutes.getMin(0));
+        assertEquals(59_999, minutes.getMax(0));
+        assertEquals(44_999.5f, minutes.getAverage(0), 0.5f);
+        after.close();
+    }
+
+    @Test
+    public void aNewChannelLayoutReplacesTheStoredRings() throws IOException {
+        RollupStage before = new RollupStage(null, rollupDir);
+        feedRollup(before, 0, 0, 90_000);
+        before.close();
+
+        RollupStage after = new RollupStage(null, rollupDir);
+        int[] values = new int[3];
+        for (int i = 0; i < 90_000; i++) {
+            values[0] = 7;
+            after.onSample(ADDRESS, i, 200_000 + i * 2L, values, 3);
+        }
+        after.close();
+
+        RollupStage reopened = new RollupStage(null, rollupDir);
+        assertEquals(0, reopened.query(ADDRESS, 0, 60_000, 179_999, 1).size());
+        RollupSeries minutes = reopened.query(ADDRESS, 0, 240_000, 359_999, 1);
+        assertEquals(2, minutes.size());
+        assertEquals(7, minutes.getMin(0));
+        assertEquals(7, minutes.getMax(1));
+        reopened.close();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.healthmonitoringapp.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SampleJournalTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+    private static final String JOURNAL_FILE = "journal-00000001.wal";
+
+    private File root;
+    private File journalDir;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("journal").toFile();
+        journalDir = new File(root, "wal");
+    }
+
+    @After
+    public void tearDown() {
+        TimeSeriesStoreTest.deleteRecursively(root);
+    }
+
+    private static void append(SampleJournal journal, long fromSequence, int count) {
+        int[] values = new int[2];
+        for (long seq = fromSequence; seq < fromSequence + count; seq++) {
+            values[0] = (int) seq;
+            values[1] = -(int) seq;
+            journal.onSample(ADDRESS, seq, 1_000 + seq * 2, values, 2);
+        }
+    }
+
+    private static List<Long> sequences(TimeSeriesStore store) throws IOException {
+        List<Long> result = new ArrayList<>();
+        store.query(ADDRESS, Long.MIN_VALUE, Long.MAX_VALUE, (address, sequence, timestamp, values, valueCount) -> {
+            assertEquals(-(int) sequence, values[1]);
+            result.add(sequence);
+        });
+        return result;
+    }
+
+    /**
+     * Journal {@code count} samples and keep a copy of the journal file as a crash would leave it,
+     * with the store never flushed.
+     */
+    private File crashAfter(int count) throws Exception {
+        File storeDir = new File(root, "lost-store");
+        TimeSeriesStore store = new TimeSeriesStore(storeDir);
+        SampleJournal journal = new SampleJournal(journalDir, store, 1024, 5);
+        append(journal, 0, count);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (journal.getCommittedRecordCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, journal.getCommittedRecordCount());
+
+        File saved = new File(root, "saved.wal");
+        Files.copy(new File(journalDir, JOURNAL_FILE).toPath(), saved.toPath());
+        journal.close();
+        store.close();
+        TimeSeriesStoreTest.deleteRecursively(storeDir);
+        return saved;
+    }
+
+    private void restore(File saved) throws IOException {
+        Files.copy(saved.toPath(), new File(journalDir, JOURNAL_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Test
+    public void crashedJournalIsReplayedIntoTheStore() throws Exception {
+        restore(crashAfter(1_000));
+
+        TimeSeriesStore store = new TimeSeriesStore(new File(root, "store"));
+        SampleJournal journal = new SampleJournal(journalDir, store);
+        assertEquals(1_000, journal.getRecoveredRecordCount());
+        assertEquals(0, journal.getDiscardedBytes());
+        List<Long> stored = sequences(store);
+        assertEquals(1_000, stored.size());
+        assertEquals(999L, (long) stored.get(999));
+        journal.close();
+        store.close();
+    }
+
+    @Test
+    public void tornTailIsTruncatedAndEarlierRecordsSurvive() throws Exception {
+        File saved = crashAfter(1_000);
+        try (RandomAccessFile file = new RandomAccessFile(saved, "rw")) {
+            file.setLength(file.length() - 3); // Cut into the last record
+        }
+        restore(saved);
+
+        TimeSeriesStore store = new TimeSeriesStore(new File(root, "store"));
+        SampleJournal journal = new SampleJournal(journalDir, store);
+        assertEquals(999, journal.getRecoveredRecordCount());
+        assertTrue(journal.getDiscardedBytes() > 0);
+        assertEquals(999, sequences(store).size());
+        journal.close();
+        store.close();
+    }
+
+    @Test
+    public void corruptRecordEndsReplay() throws Exception {
+        File saved = crashAfter(1_000);
+        long recordSize = saved.length() / 1_000;
+        try (RandomAccessFile file = new RandomAccessFile(saved, "rw")) {
+            long position = 500 * recordSize + 20; // Inside the body of record 500
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+        restore(saved);
+
+        TimeSeriesStore store = new TimeSeriesStore(new File(root, "store"));
+        SampleJournal journal = new SampleJournal(journalDir, store);
+        assertEquals(500, journal.getRecoveredRecordCount());
+        assertEquals(500 * recordSize, journal.getDiscardedBytes());
+        journal.close();
+        store.close();
+    }
+
+    @Test
+    public void samplesAlreadyInTheStoreAreNotReplayedTwice() throws Exception {
+        File saved = crashAfter(1_000);
+
+        // The store wrote the first 600 before the crash
+        File storeDir = new File(root, "store");
+        TimeSeriesStore store = new TimeSeriesStore(storeDir);
+        int[] values = new int[2];
+        for (long seq = 0; seq < 600; seq++) {
+            values[0] = (int) seq;
+            values[1] = -(int) seq;
+            store.onSample(ADDRESS, seq, 1_000 + seq * 2, values, 2);
+        }
+        store.close();
+
+        restore(saved);
+        store = new TimeSeriesStore(storeDir);
+        SampleJournal journal = new SampleJournal(journalDir, store);
+        assertEquals(400, journal.getRecoveredRecordCount());
+        List<Long> stored = sequences(store);
+        assertEquals(1_000, stored.size());
+        for (int i = 0; i < stored.size(); i++) assertEquals(i, (long) stored.get(i));
+        journal.close();
+        store.close();
+    }
+
+    @Test
+    public void closeLeavesNoJournalBehind() throws Exception {
+        TimeSeriesStore store = new TimeSeriesStore(new File(root, "store"));
+        SampleJournal journal = new SampleJournal(journalDir, store);
+        append(journal, 0, 100);
+        journal.close();
+        store.close();
+
+        String[] left = journalDir.list();
+        assertEquals(0, left == null ? 0 : left.length);
+        TimeSeriesStore reopened = new TimeSeriesStore(new File(root, "store"));
+        assertEquals(100, sequences(reopened).size());
+        reopened.close();
+    }
+}
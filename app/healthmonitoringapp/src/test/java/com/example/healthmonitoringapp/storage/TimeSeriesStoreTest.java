@@ -0,0 +1,162 @@
+package com.example.healthmonitoringapp.storage;
+
+import com.example.healthmonitoringapp.stream.SampleSink;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSeriesStoreTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("tss").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(root);
+    }
+
+    private static void append(TimeSeriesStore store, long fromSequence, int count) {
+        int[] values = new int[3];
+        for (long seq = fromSequence; seq < fromSequence + count; seq++) {
+            values[0] = (int) seq;
+            values[1] = (int) (seq * 3);
+            values[2] = -(int) seq;
+            store.onSample(ADDRESS, seq, 1_000 + seq * 2, values, 3);
+        }
+    }
+
+    private static List<Long> sequences(TimeSeriesStore store) throws IOException {
+        List<Long> result = new ArrayList<>();
+        SampleSink sink = (address, sequence, timestamp, values, valueCount) -> {
+            assertEquals(1_000 + sequence * 2, timestamp);
+            assertEquals((int) (sequence * 3), values[1]);
+            result.add(sequence);
+        };
+        store.query(ADDRESS, Long.MIN_VALUE, Long.MAX_VALUE, sink);
+        return result;
+    }
+
+    private static void assertContiguous(List<Long> sequences, long count) {
+        assertEquals(count, sequences.size());
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(i, (long) sequences.get(i));
+        }
+    }
+
+    @Test
+    public void reopenedSeriesContinuesAfterStoredBlocks() throws IOException {
+        TimeSeriesStore first = new TimeSeriesStore(root);
+        append(first, 0, 5_000);
+        first.close();
+
+        TimeSeriesStore second = new TimeSeriesStore(root);
+        append(second, 5_000, 5_000); // Indexing runs on the writer thread meanwhile
+        second.flush();
+        assertContiguous(sequences(second), 10_000);
+        assertFalse(second.isNewer(ADDRESS, 9_999, 1_000 + 9_999 * 2));
+        assertTrue(second.isNewer(ADDRESS, 10_000, 1_000 + 10_000 * 2));
+        second.close();
+    }
+
+    @Test
+    public void samplesAreQueryableBeforeTheyReachDisk() throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore(root);
+        append(store, 0, 5_000);
+        assertContiguous(sequences(store), 5_000);
+
+        List<Long> recent = new ArrayList<>();
+        store.query(ADDRESS, 1_000 + 4_990 * 2, Long.MAX_VALUE,
+                (address, sequence, timestamp, values, valueCount) -> recent.add(sequence));
+        assertEquals(10, recent.size());
+        assertEquals(4_990L, (long) recent.get(0));
+        store.close();
+    }
+
+    @Test
+    public void storedSamplesAreSkippedByIsNewer() throws IOException {
+        TimeSeriesStore first = new TimeSeriesStore(root);
+        append(first, 0, 100);
+        first.close();
+
+        TimeSeriesStore second = new TimeSeriesStore(root);
+        assertFalse(second.isNewer(ADDRESS, 99, 1_000 + 99 * 2));
+        assertTrue(second.isNewer(ADDRESS, 100, 1_000 + 100 * 2));
+        assertTrue(second.isNewer("11:22:33:44:55:66", 0, 0));
+        second.close();
+    }
+
+    @Test
+    public void segmentsAfterATornOneAreDropped() throws IOException {
+        TimeSeriesStore first = new TimeSeriesStore(root);
+        append(first, 0, 5_000);
+        first.close();
+
+        // 00000.seg is not full, so a 00001.seg can only be left over from an earlier crash
+        File dir = new File(root, "AABBCCDDEEFF");
+        File stale = new File(dir, "00001.seg");
+        Files.copy(new File(dir, "00000.seg").toPath(), stale.toPath());
+
+        TimeSeriesStore second = new TimeSeriesStore(root);
+        append(second, 5_000, 5_000);
+        second.close();
+        assertFalse(stale.exists());
+
+        TimeSeriesStore third = new TimeSeriesStore(root);
+        assertContiguous(sequences(third), 10_000);
+        third.close();
+    }
+
+    @Test
+    public void blockWithIntactHeaderButTornBodyIsNotRecovered() throws IOException {
+        TimeSeriesStore first = new TimeSeriesStore(root);
+        append(first, 0, 5_000);
+        first.close();
+
+        File segment = new File(new File(root, "AABBCCDDEEFF"), "00000.seg");
+        long blocks = segment.length() / BlockCodec.BLOCK_SIZE;
+        assertTrue(blocks > 1);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            long position = (blocks - 1) * BlockCodec.BLOCK_SIZE + BlockCodec.HEADER_SIZE + 8;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        TimeSeriesStore second = new TimeSeriesStore(root);
+        List<Long> stored = sequences(second);
+        int survived = stored.size();
+        assertTrue(survived > 0 && survived < 5_000);
+        assertContiguous(stored, survived);
+        // Replay must not skip the samples of the torn block
+        assertFalse(second.isNewer(ADDRESS, survived - 1, 1_000 + (survived - 1) * 2L));
+        assertTrue(second.isNewer(ADDRESS, survived, 1_000 + survived * 2L));
+        second.close();
+        assertEquals((blocks - 1) * BlockCodec.BLOCK_SIZE, segment.length());
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) deleteRecursively(child);
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.healthmonitoringapp.stream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SampleRingBufferTest {
+    private static final String ADDRESS = "AA:BB:CC:DD:EE:FF";
+
+    private static void offer(SampleRingBuffer ring, long from, int count) {
+        int[] values = new int[2];
+        for (long seq = from; seq < from + count; seq++) {
+            values[0] = (int) seq;
+            values[1] = -(int) seq;
+            ring.offer(seq, seq * 2, values, 2);
+        }
+    }
+
+    private static List<Long> drain(SampleRingBuffer ring, int max) {
+        List<Long> sequences = new ArrayList<>();
+        ring.drain(ADDRESS, (address, sequence, timestamp, values, valueCount) -> {
+            assertEquals(sequence * 2, timestamp);
+            assertEquals(2, valueCount);
+            assertEquals((int) sequence, values[0]);
+            assertEquals(-(int) sequence, values[1]);
+            sequences.add(sequence);
+        }, max);
+        return sequences;
+    }
+
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(8, new SampleRingBuffer(5, SampleRingBuffer.OverflowPolicy.DROP_NEWEST).capacity());
+        assertEquals(8, new SampleRingBuffer(8, SampleRingBuffer.OverflowPolicy.DROP_NEWEST).capacity());
+    }
+
+    @Test
+    public void dropNewestKeepsTheQueuedSamples() {
+        SampleRingBuffer ring = new SampleRingBuffer(8, SampleRingBuffer.OverflowPolicy.DROP_NEWEST);
+        offer(ring, 0, 8);
+        assertFalse(ring.offer(8, 16, new int[2], 2));
+        offer(ring, 9, 3);
+
+        assertEquals(4, ring.getOverflowCount());
+        assertEquals(12, ring.getOfferedCount());
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L), drain(ring, 100));
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void dropOldestKeepsTheFreshestSamples() {
+        SampleRingBuffer ring = new SampleRingBuffer(8, SampleRingBuffer.OverflowPolicy.DROP_OLDEST);
+        offer(ring, 0, 12);
+
+        assertEquals(4, ring.getOverflowCount());
+        assertEquals(8, ring.size());
+        assertEquals(List.of(4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L), drain(ring, 100));
+    }
+
+    @Test
+    public void drainStopsAtTheLimitAndResumes() {
+        SampleRingBuffer ring = new SampleRingBuffer(16, SampleRingBuffer.OverflowPolicy.DROP_NEWEST);
+        offer(ring, 0, 10);
+        assertEquals(List.of(0L, 1L, 2L), drain(ring, 3));
+        assertEquals(7, ring.size());
+        offer(ring, 10, 5);
+        assertEquals(12, drain(ring, 100).size());
+        assertEquals(0, drain(ring, 100).size());
+    }
+
+    @Test
+    public void concurrentOverwritesNeverReorderOrDuplicate() throws InterruptedException {
+        SampleRingBuffer ring = new SampleRingBuffer(64, SampleRingBuffer.OverflowPolicy.DROP_OLDEST);
+        int total = 2_000_000;
+        Thread producer = new Thread(() -> offer(ring, 0, total));
+
+        List<Long> received = new ArrayList<>();
+        producer.start();
+        while (producer.isAlive() || !ring.isEmpty()) {
+            received.addAll(drain(ring, 32));
+        }
+        producer.join();
+
+        for (int i = 1; i < received.size(); i++) {
+            assertTrue(received.get(i) > received.get(i - 1));
+        }
+        assertEquals(total, received.size() + ring.getOverflowCount());
+        assertEquals(total - 1, (long) received.get(received.size() - 1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.healthmonitoringapp.stream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamContinuityTest {
+    private static final int SAMPLES_PER_CHUNK = 50;
+    private static final long CHUNK_MILLIS = 100; // 500 Hz
+
+    /** Feed one chunk received at {@code receivedAt}; returns the derived sample times. */
+    private static long[] chunk(StreamContinuity continuity, int firstRaw, long receivedAt) {
+        long[] times = new long[SAMPLES_PER_CHUNK];
+        for (int i = 0; i < SAMPLES_PER_CHUNK; i++) {
+            long sequence = continuity.unwrap((firstRaw + i) & 0xFFFF, receivedAt);
+            times[i] = continuity.sampleTime(sequence, receivedAt);
+        }
+        return times;
+    }
+
+    @Test
+    public void samplesOfOneChunkGetDistinctTimesOnceThePeriodIsKnown() {
+        StreamContinuity continuity = new StreamContinuity("AA");
+        continuity.beginSession();
+        long now = 10_000;
+        for (int c = 0; c < 4; c++) {
+            chunk(continuity, c * SAMPLES_PER_CHUNK, now);
+            now += CHUNK_MILLIS;
+        }
+
+        long[] times = chunk(continuity, 4 * SAMPLES_PER_CHUNK, now);
+        for (int i = 1; i < times.length; i++) {
+            assertEquals("sample " + i, 2, times[i] - times[i - 1], 1);
+        }
+        assertTrue("no sample may be later than its chunk", times[times.length - 1] <= now);
+    }
+
+    @Test
+    public void timesStayMonotonicAndCloseToReceiveTimeUnderJitter() {
+        StreamContinuity continuity = new StreamContinuity("AA");
+        continuity.beginSession();
+        long now = 0;
+        long previous = Long.MIN_VALUE;
+        java.util.Random random = new java.util.Random(1);
+        for (int c = 0; c < 200; c++) {
+            now += CHUNK_MILLIS + random.nextInt(80) - 40;
+            for (long time : chunk(continuity, c * SAMPLES_PER_CHUNK, now)) {
+                assertTrue("went backwards at chunk " + c, time >= previous);
+                assertTrue(time <= now);
+                assertTrue("drifted at chunk " + c, now - time <= 1000 + CHUNK_MILLIS);
+                previous = time;
+            }
+        }
+    }
+
+    @Test
+    public void clockReanchorsAfterAStall() {
+        StreamContinuity continuity = new StreamContinuity("AA");
+        continuity.beginSession();
+        long now = 0;
+        for (int c = 0; c < 4; c++) {
+            chunk(continuity, c * SAMPLES_PER_CHUNK, now += CHUNK_MILLIS);
+        }
+        // The link stalls for 5 s, then the backlog arrives in one chunk
+        now += 5000;
+        long[] times = chunk(continuity, 4 * SAMPLES_PER_CHUNK, now);
+        assertEquals(now, times[0]);
+        assertTrue(times[times.length - 1] <= now + SAMPLES_PER_CHUNK * 2);
+    }
+
+    @Test
+    public void firstSamplesUseReceiveTimeUntilThePeriodIsKnown() {
+        StreamContinuity continuity = new StreamContinuity("AA");
+        continuity.beginSession();
+        for (long time : chunk(continuity, 0, 1234)) {
+            assertEquals(1234, time);
+        }
+    }
+
+    @Test
+    public void sequenceWrapsAndGapsAreCounted() {
+        StreamContinuity continuity = new StreamContinuity("AA");
+        continuity.beginSession();
+        assertEquals(0xFFFE, continuity.unwrap(0xFFFE, 0));
+        assertEquals(0xFFFF, continuity.unwrap(0xFFFF, 1));
+        assertEquals(0x10002, continuity.unwrap(2, 2));
+        assertEquals(2, continuity.getLostSamples());
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.healthmonitoringapp.utils;
+
+import com.example.healthmonitoringapp.model.Device;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceRegistryTest {
+
+    private static String address(long packed) {
+        return MacAddress.unpack(packed);
+    }
+
+    @Test
+    public void putIfAbsentKeepsTheFirstDevice() {
+        DeviceRegistry registry = new DeviceRegistry();
+        Device first = new Device("First", "AA:BB:CC:DD:EE:01");
+        Device second = new Device("Second", "aa:bb:cc:dd:ee:01");
+
+        assertSame(first, registry.putIfAbsent(first));
+        assertSame(first, registry.putIfAbsent(second));
+        assertSame(first, registry.get("aa:bb:cc:dd:ee:01"));
+        assertSame(first, registry.getOrAdd("AA:BB:CC:DD:EE:01", "Other"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void invalidAddressesAreNeverRegistered() {
+        DeviceRegistry registry = new DeviceRegistry();
+        assertNull(registry.get("not an address"));
+        assertNull(registry.remove("not an address"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void removalKeepsProbeChainsIntact() {
+        // Random churn against a reference map: any broken chain after a backward shift shows up as a missed lookup
+        DeviceRegistry registry = new DeviceRegistry();
+        Map<Long, Device> reference = new HashMap<>();
+        List<Long> known = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int step = 0; step < 50_000; step++) {
+            // A narrow key range keeps the table dense and produces long collision runs
+            long key = 0x001122000000L | random.nextInt(400);
+            if (random.nextInt(3) == 0 && !reference.isEmpty()) {
+                long victim = known.get(random.nextInt(known.size()));
+                Device removed = registry.remove(address(victim));
+                assertSame(reference.remove(victim), removed);
+                known.remove(victim);
+            } else if (!reference.containsKey(key)) {
+                Device device = new Device("D" + key, address(key));
+                assertSame(device, registry.putIfAbsent(device));
+                reference.put(key, device);
+                known.add(key);
+            }
+            if (step % 1000 == 0) {
+                for (Map.Entry<Long, Device> entry : reference.entrySet()) {
+                    assertSame(entry.getValue(), registry.get(entry.getKey()));
+                }
+            }
+        }
+
+        assertEquals(reference.size(), registry.size());
+        assertEquals(new HashSet<>(reference.values()), new HashSet<>(registry.getDevices()));
+        for (int i = 0; i < 400; i++) {
+            long key = 0x001122000000L | i;
+            assertSame(reference.get(key), registry.get(key));
+        }
+    }
+
+    @Test
+    public void changesAreReportedSinceAVersion() {
+        DeviceRegistry registry = new DeviceRegistry();
+        Device a = registry.putIfAbsent(new Device("A", "AA:BB:CC:DD:EE:01"));
+        Device b = registry.putIfAbsent(new Device("B", "AA:BB:CC:DD:EE:02"));
+        long seen = registry.getVersion();
+        assertTrue(registry.getDevicesChangedSince(seen).isEmpty());
+
+        registry.markChanged(a);
+        assertEquals(List.of(a), registry.getDevicesChangedSince(seen));
+
+        seen = registry.getVersion();
+        registry.remove(b.getAddress());
+        assertTrue(registry.getVersion() > seen);
+        assertTrue(registry.getDevicesChangedSince(seen).isEmpty());
+        assertEquals(List.of(a), registry.getDevices());
+    }
+}
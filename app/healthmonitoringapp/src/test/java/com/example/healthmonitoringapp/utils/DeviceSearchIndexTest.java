@@ -0,0 +1,71 @@
+package com.example.healthmonitoringapp.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class DeviceSearchIndexTest {
+    private static final String[] WORDS = {"Polar", "H10", "Pulse", "Ox", "Watch", "ECG", "Band", "Sensor", "ÄÖÜ"};
+
+    private final List<String> names = new ArrayList<>();
+    private final List<String> addresses = new ArrayList<>();
+    private DeviceSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new DeviceSearchIndex();
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String address = MacAddress.unpack(random.nextLong() & 0xFFFFFFFFFFFFL);
+            names.add(name);
+            addresses.add(address);
+            index.add(name, address);
+        }
+    }
+
+    /** Ids {@link DeviceSearchIndex#matches} accepts, scanning every document. */
+    private int[] bruteForce(String query) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (DeviceSearchIndex.matches(names.get(i), addresses.get(i), query)) ids.add(i);
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    public void searchAgreesWithAFullScan() {
+        String[] queries = {"", "p", "PO", "pol", "polar", "polar h", "h10 puls", "sensor 4", "ecg band 1",
+                "äö", "ÄÖÜ ", ":", "a:", "zzz", "12", "watch watch"};
+        for (String query : queries) {
+            assertArrayEquals(query, bruteForce(query), index.search(query));
+        }
+    }
+
+    @Test
+    public void narrowingAnExtendedQueryMatchesAFreshSearch() {
+        String typed = "pulse ox 4";
+        int[] previous = index.search("");
+        for (int length = 1; length <= typed.length(); length++) {
+            String query = typed.substring(0, length);
+            int[] narrowed = index.filter(query, previous, previous.length);
+            assertArrayEquals(query, index.search(query), narrowed);
+            previous = narrowed;
+        }
+    }
+
+    @Test
+    public void renamedDocumentsAreFoundOnlyUnderTheirNewName() {
+        index.rename(7, "Renamed Thermometer");
+        names.set(7, "Renamed Thermometer");
+        for (String query : new String[]{"thermo", "renamed t", names.get(8).substring(0, 6)}) {
+            assertArrayEquals(query, bruteForce(query), index.search(query));
+        }
+        assertArrayEquals(new int[]{7}, index.search("thermometer"));
+    }
+}
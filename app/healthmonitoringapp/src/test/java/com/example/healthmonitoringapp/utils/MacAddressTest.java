@@ -0,0 +1,44 @@
+package com.example.healthmonitoringapp.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class MacAddressTest {
+
+    @Test
+    public void packsBothCasesToTheSameValue() {
+        assertEquals(0xAABBCCDDEEFFL, MacAddress.pack("AA:BB:CC:DD:EE:FF"));
+        assertEquals(0xAABBCCDDEEFFL, MacAddress.pack("aa:bb:cc:dd:ee:ff"));
+        assertEquals(0L, MacAddress.pack("00:00:00:00:00:00"));
+        assertEquals(0xFFFFFFFFFFFFL, MacAddress.pack("FF:FF:FF:FF:FF:FF"));
+    }
+
+    @Test
+    public void unpacksToUpperCase() {
+        assertEquals("AA:BB:CC:DD:EE:FF", MacAddress.unpack(MacAddress.pack("aa:bb:cc:dd:ee:ff")));
+        assertEquals("00:01:02:0A:0B:FF", MacAddress.unpack(0x0001020A0BFFL));
+    }
+
+    @Test
+    public void roundTripsRandomAddresses() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long packed = random.nextLong() & 0xFFFFFFFFFFFFL;
+            assertEquals(packed, MacAddress.pack(MacAddress.unpack(packed)));
+        }
+    }
+
+    @Test
+    public void rejectsAnythingElse() {
+        String[] invalid = {
+                null, "", "AA:BB:CC:DD:EE", "AA:BB:CC:DD:EE:FF:", "AA-BB-CC-DD-EE-FF",
+                "AA:BB:CC:DD:EE:FG", "AABBCCDDEEFF00000", " A:BB:CC:DD:EE:FF", "AA:BB:CC:DD:EE:+F"
+        };
+        for (String address : invalid) {
+            assertEquals(String.valueOf(address), MacAddress.INVALID, MacAddress.pack(address));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.healthmonitoringapp.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RssiTrackerTest {
+    private static final String A = "AA:BB:CC:DD:EE:01";
+    private static final String B = "AA:BB:CC:DD:EE:02";
+
+    @Test
+    public void firstReadingIsTakenAsIs() {
+        RssiTracker tracker = new RssiTracker();
+        assertTrue(Float.isNaN(tracker.get(A)));
+        assertEquals(-60f, tracker.update(A, -60, 0), 0f);
+        assertEquals(-60f, tracker.get(A), 0f);
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    public void singleOutlierBarelyMovesASettledEstimate() {
+        RssiTracker tracker = new RssiTracker();
+        for (int i = 0; i < 50; i++) tracker.update(A, -60, i * 100L);
+        float afterOutlier = tracker.update(A, -90, 5_000);
+        assertTrue("moved to " + afterOutlier, afterOutlier > -64);
+    }
+
+    @Test
+    public void burstConvergesOnANewLevel() {
+        RssiTracker tracker = new RssiTracker();
+        for (int i = 0; i < 50; i++) tracker.update(A, -60, i * 100L);
+        float estimate = 0;
+        for (int i = 0; i < 100; i++) estimate = tracker.update(A, -80, 5_000 + i * 100L);
+        assertEquals(-80f, estimate, 1f);
+    }
+
+    @Test
+    public void aLongSilenceTrustsTheNextReadingMore() {
+        RssiTracker recent = new RssiTracker();
+        RssiTracker stale = new RssiTracker();
+        for (int i = 0; i < 50; i++) {
+            recent.update(A, -60, i * 100L);
+            stale.update(A, -60, i * 100L);
+        }
+        float soon = recent.update(A, -80, 5_000);
+        float later = stale.update(A, -80, 600_000);
+        assertTrue(later < soon);
+    }
+
+    @Test
+    public void devicesAreTrackedSeparatelyAcrossGrowth() {
+        RssiTracker tracker = new RssiTracker();
+        tracker.update(A, -40, 0);
+        tracker.update(B, -90, 0);
+        for (int i = 0; i < 500; i++) {
+            tracker.update(MacAddress.unpack(0x112233000000L + i), -50 - i % 40, 0);
+        }
+        assertEquals(502, tracker.size());
+        assertEquals(-40f, tracker.get(A), 0f);
+        assertEquals(-90f, tracker.get(B), 0f);
+        assertEquals(-50f - 123 % 40, tracker.get(MacAddress.unpack(0x112233000000L + 123)), 0f);
+
+        tracker.clear();
+        assertEquals(0, tracker.size());
+        assertTrue(Float.isNaN(tracker.get(A)));
+    }
+
+    @Test
+    public void invalidAddressPassesTheReadingThrough() {
+        RssiTracker tracker = new RssiTracker();
+        assertEquals(-70f, tracker.update("nope", -70, 0), 0f);
+        assertEquals(0, tracker.size());
+    }
+}
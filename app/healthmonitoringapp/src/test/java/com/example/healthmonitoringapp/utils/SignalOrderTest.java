@@ -0,0 +1,91 @@
+package com.example.healthmonitoringapp.utils;
+
+import com.example.healthmonitoringapp.model.Device;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SignalOrderTest {
+
+    private static Device device(int i, int rssi) {
+        return new Device("D" + i, MacAddress.unpack(i), false, rssi, false, "BLE", "Unknown", 1);
+    }
+
+    private static void assertSorted(List<Device> list) {
+        for (int i = 1; i < list.size(); i++) {
+            assertTrue(list.get(i - 1).compareTo(list.get(i)) <= 0);
+        }
+    }
+
+    @Test
+    public void insertPlacesEqualSignalsInArrivalOrder() {
+        List<Device> list = new ArrayList<>();
+        Device a = device(1, -60);
+        Device b = device(2, -60);
+        Device strong = device(3, -30);
+        Device weak = device(4, -90);
+
+        assertEquals(0, SignalOrder.insert(list, a));
+        assertEquals(1, SignalOrder.insert(list, b));
+        assertEquals(0, SignalOrder.insert(list, strong));
+        assertEquals(3, SignalOrder.insert(list, weak));
+        assertEquals(List.of(strong, a, b, weak), list);
+    }
+
+    @Test
+    public void indexOfFindsADeviceThatAlreadyHoldsItsNewRssi() {
+        List<Device> list = new ArrayList<>();
+        Device[] devices = new Device[6];
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = device(i, -50 - (i / 2) * 10); // Pairs of equal signal
+            SignalOrder.insert(list, devices[i]);
+        }
+        devices[3].setRssi(-20);
+        assertEquals(3, SignalOrder.indexOf(list, devices[3], -60));
+        assertEquals(-1, SignalOrder.indexOf(list, device(99, -60), -60));
+    }
+
+    @Test
+    public void repositionMovesOnlyTheChangedDevice() {
+        List<Device> list = new ArrayList<>();
+        Device a = device(1, -40);
+        Device b = device(2, -50);
+        Device c = device(3, -60);
+        for (Device d : new Device[]{a, b, c}) SignalOrder.insert(list, d);
+
+        c.setRssi(-45);
+        assertArrayEquals(new int[]{2, 1}, SignalOrder.reposition(list, c, -60));
+        assertEquals(List.of(a, c, b), list);
+        assertNull(SignalOrder.reposition(list, device(9, -50), -50));
+    }
+
+    @Test
+    public void randomUpdatesKeepTheListSorted() {
+        Random random = new Random(11);
+        List<Device> list = new ArrayList<>();
+        List<Device> all = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Device d = device(i, -40 - random.nextInt(20)); // Few distinct values, many ties
+            all.add(d);
+            SignalOrder.insert(list, d);
+        }
+        for (int step = 0; step < 20_000; step++) {
+            Device d = all.get(random.nextInt(all.size()));
+            int previous = d.getRssi();
+            d.setRssi(-40 - random.nextInt(20));
+            int[] move = SignalOrder.reposition(list, d, previous);
+            assertSame(d, list.get(move[1]));
+        }
+        assertEquals(all.size(), list.size());
+        assertSorted(list);
+    }
+}